@@ -15,6 +15,7 @@ class TeamPredictor:
     def __init__(self, model_path='models/team_model.pt'):
         self.model_path = model_path
         self.model = None
+        self.model_version = None
         # Times na ordem exata do data.yaml
         self.teams = [
             'arsenal', 'aston-villa-new', 'bournemouth', 'brentford', 'brighton',
@@ -32,7 +33,9 @@ class TeamPredictor:
                 self.model.eval()
                 # Ajustar threshold de confiança para aceitar predições mais baixas
                 self.model.conf = 0.15  # Padrão é 0.25, reduzimos para detectar mais
-                app.logger.info(f"✅ Modelo carregado: {self.model_path}")
+                # Versão = nome + mtime do arquivo; muda quando o modelo é trocado
+                self.model_version = f"{os.path.basename(self.model_path)}@{int(os.path.getmtime(self.model_path))}"
+                app.logger.info(f"✅ Modelo carregado: {self.model_path} ({self.model_version})")
                 app.logger.info(f"🎯 Threshold de confiança: {self.model.conf}")
             else:
                 app.logger.warning(f"⚠️ Modelo não encontrado: {self.model_path}. Usando modo simulado.")
@@ -51,45 +54,7 @@ class TeamPredictor:
             if self.model is not None:
                 # Usa modelo real YOLOv5
                 results = self.model(image)
-
-                # Log de debug
-                app.logger.debug(f"Detecções encontradas: {len(results.pred[0])}")
-
-                # Processa resultados
-                if len(results.pred[0]) > 0:
-                    # Desenha bounding boxes na imagem
-                    annotated_image = self.draw_detections(image.copy(), results.pred[0])
-
-                    # Converte imagem anotada para base64
-                    buffered = BytesIO()
-                    annotated_image.save(buffered, format="JPEG")
-                    annotated_base64 = base64.b64encode(buffered.getvalue()).decode('utf-8')
-
-                    # Ordena por confiança e pega a melhor para retorno
-                    detections = results.pred[0]
-                    best_detection = detections[detections[:, 4].argmax()]
-
-                    class_id = int(best_detection[5])
-                    confidence = float(best_detection[4])
-
-                    if class_id < len(self.teams):
-                        team = self.teams[class_id]
-                        app.logger.info(f"✅ Detectado: {team} ({confidence:.2%})")
-                        return {
-                            'team': team,
-                            'confidence': confidence,
-                            'method': 'YOLOv5',
-                            'annotated_image': annotated_base64,
-                            'detections_count': len(results.pred[0])
-                        }
-
-                # Nenhuma detecção encontrada
-                app.logger.warning("⚠️ Nenhuma detecção encontrada na imagem")
-                return {
-                    'team': 'unknown',
-                    'confidence': 0.0,
-                    'method': 'no_detection'
-                }
+                return self.build_result(image, results.pred[0])
             else:
                 # Modelo não carregado
                 app.logger.error("❌ Modelo não está carregado")
@@ -107,6 +72,81 @@ class TeamPredictor:
                 'method': 'error'
             }
 
+    def build_result(self, image, detections):
+        """Monta o resultado (com imagem anotada) a partir das detecções de uma imagem"""
+        # Log de debug
+        app.logger.debug(f"Detecções encontradas: {len(detections)}")
+
+        # Processa resultados
+        if len(detections) > 0:
+            # Desenha bounding boxes na imagem
+            annotated_image = self.draw_detections(image.copy(), detections)
+
+            # Converte imagem anotada para base64
+            buffered = BytesIO()
+            annotated_image.save(buffered, format="JPEG")
+            annotated_base64 = base64.b64encode(buffered.getvalue()).decode('utf-8')
+
+            # Ordena por confiança e pega a melhor para retorno
+            best_detection = detections[detections[:, 4].argmax()]
+
+            class_id = int(best_detection[5])
+            confidence = float(best_detection[4])
+
+            if class_id < len(self.teams):
+                team = self.teams[class_id]
+                app.logger.info(f"✅ Detectado: {team} ({confidence:.2%})")
+                return {
+                    'team': team,
+                    'confidence': confidence,
+                    'method': 'YOLOv5',
+                    'annotated_image': annotated_base64,
+                    'detections_count': len(detections)
+                }
+
+        # Nenhuma detecção encontrada
+        app.logger.warning("⚠️ Nenhuma detecção encontrada na imagem")
+        return {
+            'team': 'unknown',
+            'confidence': 0.0,
+            'method': 'no_detection'
+        }
+
+    def predict_batch(self, images_data):
+        """Prediz várias imagens em uma única chamada do modelo (mesma ordem da entrada)"""
+        results = [None] * len(images_data)
+        images = []
+        positions = []
+
+        for i, image_data in enumerate(images_data):
+            try:
+                images.append(Image.open(BytesIO(base64.b64decode(image_data))))
+                positions.append(i)
+            except Exception as e:
+                app.logger.error(f"Erro ao decodificar imagem {i} do lote: {e}")
+                results[i] = {'team': 'unknown', 'confidence': 0.0, 'method': 'error'}
+
+        if not images:
+            return results
+
+        if self.model is None:
+            app.logger.error("❌ Modelo não está carregado")
+            for i in positions:
+                results[i] = {'team': 'unknown', 'confidence': 0.0, 'method': 'model_not_loaded'}
+            return results
+
+        try:
+            # YOLOv5 aceita uma lista de imagens e infere todas no mesmo forward
+            batch_results = self.model(images)
+            for i, image, detections in zip(positions, images, batch_results.pred):
+                results[i] = self.build_result(image, detections)
+        except Exception as e:
+            app.logger.error(f"Erro na predição em lote: {e}")
+            for i in positions:
+                results[i] = {'team': 'unknown', 'confidence': 0.0, 'method': 'error'}
+
+        return results
+
     def draw_detections(self, image, detections):
         """Desenha bounding boxes e labels nas detecções"""
         draw = ImageDraw.Draw(image)
@@ -145,6 +185,9 @@ class TeamPredictor:
 
         return image
 
+# Tamanho máximo aceito em /predict_batch
+MAX_BATCH_SIZE = int(os.environ.get('MAX_BATCH_SIZE', '32'))
+
 # Instância global do preditor
 predictor = TeamPredictor()
 
@@ -154,7 +197,8 @@ def health():
     return jsonify({
         'status': 'healthy',
         'model_loaded': predictor.model is not None,
-        'model_path': predictor.model_path
+        'model_path': predictor.model_path,
+        'model_version': predictor.model_version
     })
 
 @app.route('/predict', methods=['POST'])
@@ -173,6 +217,7 @@ def predict():
         # Faz predição
         result = predictor.predict_team(image_data)
         result['filename'] = filename
+        result['model_version'] = predictor.model_version
 
         app.logger.info(f"Predição para {filename}: {result['team']} ({result['confidence']:.2f})")
 
@@ -182,6 +227,35 @@ def predict():
         app.logger.error(f"Erro no endpoint predict: {e}")
         return jsonify({'error': str(e)}), 500
 
+@app.route('/predict_batch', methods=['POST'])
+def predict_batch():
+    """Endpoint de predição em lote: {"images": [{"image": ..., "filename": ...}, ...]}"""
+    try:
+        data = request.get_json()
+
+        if not data or not isinstance(data.get('images'), list):
+            return jsonify({'error': 'Campo images (lista) é obrigatório'}), 400
+
+        items = data['images']
+        if len(items) > MAX_BATCH_SIZE:
+            return jsonify({'error': f'Lote maior que o limite de {MAX_BATCH_SIZE} imagens'}), 400
+        if any('image' not in item for item in items):
+            return jsonify({'error': 'Campo image é obrigatório em cada item'}), 400
+
+        # Faz predição de todo o lote
+        results = predictor.predict_batch([item['image'] for item in items])
+        for item, result in zip(items, results):
+            result['filename'] = item.get('filename', 'unknown.jpg')
+            result['model_version'] = predictor.model_version
+
+        app.logger.info(f"Predição em lote: {len(results)} imagens")
+
+        return jsonify({'results': results, 'count': len(results)})
+
+    except Exception as e:
+        app.logger.error(f"Erro no endpoint predict_batch: {e}")
+        return jsonify({'error': str(e)}), 500
+
 @app.route('/teams', methods=['GET'])
 def get_teams():
     """Lista times suportados"""
@@ -0,0 +1,68 @@
+package com.sistdistrib.consumidor;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Mede quantos bytes cada thread aloca no heap durante o processamento de uma mensagem.
+ *
+ * Usa {@code com.sun.management.ThreadMXBean#getCurrentThreadAllocatedBytes}, que é
+ * barato o bastante para ser chamado por mensagem. Serve para comparar o caminho
+ * normal com o encaminhamento sem cópias (ZERO_COPY_FORWARDING).
+ */
+public class AllocationMeter {
+
+    private final com.sun.management.ThreadMXBean threadBean;
+    private final AtomicLong samples = new AtomicLong();
+    private final AtomicLong totalBytes = new AtomicLong();
+    private final AtomicLong maxBytes = new AtomicLong();
+
+    private AllocationMeter(com.sun.management.ThreadMXBean threadBean) {
+        this.threadBean = threadBean;
+    }
+
+    /**
+     * Cria o medidor se ALLOCATION_METRICS=true e a JVM suportar a medição; senão retorna null.
+     */
+    public static AllocationMeter fromEnv() {
+        if (!Boolean.parseBoolean(System.getenv().getOrDefault("ALLOCATION_METRICS", "false"))) {
+            return null;
+        }
+        if (!(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean)) {
+            System.err.println("⚠️ JVM sem suporte a medição de alocação por thread");
+            return null;
+        }
+        com.sun.management.ThreadMXBean bean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        if (!bean.isThreadAllocatedMemorySupported()) {
+            System.err.println("⚠️ JVM sem suporte a medição de alocação por thread");
+            return null;
+        }
+        bean.setThreadAllocatedMemoryEnabled(true);
+        return new AllocationMeter(bean);
+    }
+
+    /**
+     * @return Bytes alocados pela thread atual até agora (passar para {@link #record})
+     */
+    public long start() {
+        return threadBean.getCurrentThreadAllocatedBytes();
+    }
+
+    public void record(long startBytes) {
+        long allocated = threadBean.getCurrentThreadAllocatedBytes() - startBytes;
+        samples.incrementAndGet();
+        totalBytes.addAndGet(allocated);
+        maxBytes.accumulateAndGet(allocated, Math::max);
+    }
+
+    public double getAverageKb() {
+        long count = samples.get();
+        return count == 0 ? 0.0 : totalBytes.get() / (double) count / 1024.0;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%.1f KB/mensagem em média (máx %.1f KB, %d mensagens)",
+                getAverageKb(), maxBytes.get() / 1024.0, samples.get());
+    }
+}
@@ -2,16 +2,22 @@ package com.sistdistrib.consumidor;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.rabbitmq.client.*;
+import com.sistdistrib.consumidor.ml.AdaptiveConcurrencyLimiter;
 import com.sistdistrib.consumidor.ml.EmotionApiClient;
+import com.sistdistrib.consumidor.ml.MicroBatcher;
 
-import java.io.File;
 import java.io.IOException;
-import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.util.Map;
-import java.util.Random;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
 
 public class ConsumidorFace {
     private static final String EXCHANGE_NAME = "image_exchange";
@@ -19,12 +25,66 @@ public class ConsumidorFace {
     private Channel channel;
     private ObjectMapper objectMapper;
     private EmotionApiClient emotionApiClient;
+    private MicroBatcher<EmotionApiClient.EmotionResult> emotionBatcher;
+    private AdaptiveConcurrencyLimiter concurrencyLimiter;
     private AtomicLong processedCount;
 
+    // Concorrência: número de entregas processadas em paralelo e prefetch do canal
+    private final int concurrency;
+    private final int prefetchCount;
+    private final long processingDelayMs;
+    private ExecutorService workerPool;
+    private String consumerTag;
+
+    // Channel não é thread-safe: acks/nacks dos workers passam por este lock
+    private final ReentrantLock channelLock = new ReentrantLock();
+    private AckAggregator ackAggregator;
+
+    // Gravação das imagens processadas em segundo plano
+    private ProcessedImageWriter imageWriter;
+    // Sufixo dos nomes de saída: entregas simultâneas com o mesmo rótulo no mesmo ms não colidem
+    private final AtomicLong outputSequence = new AtomicLong();
+
+    // Imagens das mensagens claim-check (só a referência passa pelo RabbitMQ)
+    private ImageStore imageStore;
+
+    // Encaminha o Base64 do corpo da mensagem direto para a API, sem decodificar
+    private final boolean zeroCopyForwarding;
+    private AllocationMeter allocationMeter;
+
+    // Mensagens mais velhas que o prazo vão para o dead-letter ou para o analisador local
+    private DeadlinePolicy deadlinePolicy;
+    private FaceEmotionAnalyzer localAnalyzer;
+
     public ConsumidorFace() {
         this.objectMapper = new ObjectMapper();
         this.emotionApiClient = new EmotionApiClient();
         this.processedCount = new AtomicLong(0);
+        this.concurrency = Math.max(1, Integer.parseInt(System.getenv().getOrDefault("CONSUMER_CONCURRENCY", "1")));
+        this.prefetchCount = Integer.parseInt(System.getenv().getOrDefault("PREFETCH_COUNT",
+                String.valueOf(concurrency > 1 ? concurrency * 2 : 1)));
+        this.processingDelayMs = Long.parseLong(System.getenv().getOrDefault("PROCESSING_DELAY_MS", "300"));
+
+        // Micro-batching: com BATCH_SIZE > 1 as predições concorrentes são agrupadas em /predict_batch
+        int batchSize = Integer.parseInt(System.getenv().getOrDefault("BATCH_SIZE", "1"));
+        if (batchSize > 1) {
+            long batchMaxWaitMs = Long.parseLong(System.getenv().getOrDefault("BATCH_MAX_WAIT_MS", "20"));
+            this.emotionBatcher = new MicroBatcher<>("face", emotionApiClient::predictEmotionBatchAsync, batchSize, batchMaxWaitMs);
+        }
+
+        this.imageWriter = ProcessedImageWriter.fromEnv("face");
+        this.imageStore = ImageStore.fromEnv();
+
+        // Limite adaptativo de chamadas à API (ADAPTIVE_CONCURRENCY=true)
+        this.concurrencyLimiter = AdaptiveConcurrencyLimiter.fromEnv(concurrency);
+
+        this.zeroCopyForwarding = Boolean.parseBoolean(System.getenv().getOrDefault("ZERO_COPY_FORWARDING", "false"));
+        this.allocationMeter = AllocationMeter.fromEnv();
+
+        this.deadlinePolicy = DeadlinePolicy.fromEnv("face");
+        if (deadlinePolicy != null && !deadlinePolicy.isDeadLetter()) {
+            this.localAnalyzer = new FaceEmotionAnalyzer();
+        }
     }
 
     public void start() {
@@ -75,54 +135,40 @@ public class ConsumidorFace {
         channel.exchangeDeclare(EXCHANGE_NAME, BuiltinExchangeType.TOPIC, true);
         channel.queueDeclare(queueName, true, false, false, null);
         channel.queueBind(queueName, EXCHANGE_NAME, "face");
+        if (deadlinePolicy != null) {
+            deadlinePolicy.declare(channel);
+        }
 
-        // Configurar QoS para processar uma mensagem por vez
-        channel.basicQos(1);
+        // Configurar QoS: prefetch acompanha o número de workers
+        channel.basicQos(prefetchCount);
+
+        // Com limite adaptativo, o prefetch do canal acompanha o limite atual
+        if (concurrencyLimiter != null) {
+            channel.basicQos(concurrencyLimiter.getLimit(), true);
+            concurrencyLimiter.setLimitListener(this::updateChannelPrefetch);
+        }
+
+        // Acks cumulativos a cada ACK_BATCH_SIZE mensagens ou ACK_FLUSH_INTERVAL_MS
+        int ackBatchSize = Integer.parseInt(System.getenv().getOrDefault("ACK_BATCH_SIZE", "1"));
+        long ackFlushIntervalMs = Long.parseLong(System.getenv().getOrDefault("ACK_FLUSH_INTERVAL_MS", "100"));
+        ackAggregator = AckAggregator.start(channel, channelLock, ackBatchSize, ackFlushIntervalMs);
 
         System.out.println("Conectado ao RabbitMQ - Fila: " + queueName);
+        System.out.println("⚙️ Concorrência: " + concurrency + " worker(s), prefetch " + prefetchCount);
     }
 
     private void startConsuming() throws IOException {
         String queueName = System.getenv().getOrDefault("QUEUE_NAME", "face_queue");
 
-        DeliverCallback deliverCallback = (consumerTag, delivery) -> {
-            try {
-                byte[] body = delivery.getBody();
-                ImageMessage message = objectMapper.readValue(body, ImageMessage.class);
-
-                System.out.println("📥 Recebida mensagem: " + message.getFilename());
-
-                // Processar com API YOLOv5
-                EmotionApiClient.EmotionResult result = emotionApiClient.predictEmotion(message.getData(), message.getFilename());
-
-                // Simular tempo de processamento
-                Thread.sleep(300);
-
-                // Salvar imagem APÓS processamento bem-sucedido
-                if (!"ERRO".equals(result.getCategory())) {
-                    // Se tem imagem anotada, salva ela. Senão, salva a original
-                    if (result.hasAnnotatedImage()) {
-                        saveProcessedImage(result.getAnnotatedImage(), message.getFilename(), result.getEmotion());
-                    } else {
-                        saveProcessedImage(message.getData(), message.getFilename(), result.getEmotion());
-                    }
-                }
-
-                long count = processedCount.incrementAndGet();
-                System.out.println("🤖 [" + count + "] " + result.toString() + " [SALVA]");
-
-                // Acknowledgment da mensagem
-                channel.basicAck(delivery.getEnvelope().getDeliveryTag(), false);
-
-            } catch (Exception e) {
-                System.err.println("Erro ao processar mensagem: " + e.getMessage());
+        if (concurrency > 1) {
+            workerPool = createWorkerPool();
+        }
 
-                // Rejeitar mensagem em caso de erro
-                try {
-                    channel.basicNack(delivery.getEnvelope().getDeliveryTag(), false, false);
-                } catch (IOException ioException) {
-                    System.err.println("Erro ao rejeitar mensagem: " + ioException.getMessage());
-                }
+        DeliverCallback deliverCallback = (consumerTag, delivery) -> {
+            if (workerPool == null) {
+                processDelivery(delivery);
+            } else {
+                workerPool.execute(() -> processDelivery(delivery));
             }
         };
 
@@ -131,13 +177,34 @@ public class ConsumidorFace {
         };
 
         // Iniciar consumo
-        channel.basicConsume(queueName, false, deliverCallback, cancelCallback);
+        consumerTag = channel.basicConsume(queueName, false, deliverCallback, cancelCallback);
 
         // Manter o programa rodando
         try {
+            long ticks = 0;
             while (true) {
                 Thread.sleep(1000);
 
+                // Limite adaptativo, fila de escrita e cache a cada 10 segundos
+                if (++ticks % 10 == 0) {
+                    if (concurrencyLimiter != null) {
+                        System.out.println("⚙️ Concorrência adaptativa: " + concurrencyLimiter);
+                    }
+                    System.out.println("💾 Escrita: " + imageWriter);
+                    if (emotionApiClient.getCache() != null) {
+                        System.out.println("🗃️ Cache de inferência: " + emotionApiClient.getCache());
+                    }
+                    if (emotionApiClient.getSingleFlight() != null && emotionApiClient.getSingleFlight().getCoalesced() > 0) {
+                        System.out.println("🔗 Requisições agrupadas: " + emotionApiClient.getSingleFlight());
+                    }
+                    if (allocationMeter != null) {
+                        System.out.println("🧮 Alocação: " + allocationMeter);
+                    }
+                    if (deadlinePolicy != null) {
+                        System.out.println("⏱️ Prazo: " + deadlinePolicy);
+                    }
+                }
+
                 // Log de status a cada 30 análises
                 if (processedCount.get() % 30 == 0 && processedCount.get() > 0) {
                     System.out.println("📊 Status: " + processedCount.get() + " faces analisadas via YOLOv5 API");
@@ -151,13 +218,181 @@ public class ConsumidorFace {
 
 
 
-    private void saveProcessedImage(byte[] imageData, String filename, String emotion) {
+    private void processDelivery(Delivery delivery) {
+        try {
+            long allocationStart = allocationMeter != null ? allocationMeter.start() : 0;
+            byte[] body = delivery.getBody();
+
+            // Sem cópias: localiza o Base64 no corpo JSON e o repassa como está (não vale para lotes)
+            JsonImageSlice slice = zeroCopyForwarding && emotionBatcher == null
+                    && ImageMessageFormat.isJson(delivery.getProperties())
+                    ? JsonImageSlice.locate(body) : null;
+            ImageMessage message = slice != null
+                    ? slice.toMessage()
+                    : ImageMessageFormat.decode(delivery.getProperties(), body, objectMapper, imageStore);
+
+            System.out.println("📥 Recebida mensagem: " + message.getFilename());
+
+            // Mensagem vencida (na chegada ou esperando vaga no limitador): não gasta uma chamada à API
+            boolean expired = deadlinePolicy != null && deadlinePolicy.isExpired(message.getTimestamp());
+            EmotionApiClient.EmotionResult result = null;
+            if (!expired) {
+                // Processar com API YOLOv5
+                result = predictBeforeDeadline(message, slice);
+                expired = result == null;
+            }
+            if (expired) {
+                if (deadlinePolicy.isDeadLetter()) {
+                    deadLetter(delivery, message);
+                    return;
+                }
+                result = analyzeLocally(message, slice);
+            } else {
+                // Simular tempo de processamento
+                Thread.sleep(processingDelayMs);
+            }
+
+            // Salvar imagem APÓS processamento bem-sucedido
+            CompletableFuture<Void> saved = CompletableFuture.completedFuture(null);
+            if (!"ERRO".equals(result.getCategory())) {
+                // Se tem imagem anotada, salva ela. Senão, salva a original
+                if (result.hasAnnotatedImage()) {
+                    saved = saveProcessedImage(result.getAnnotatedImage(), message.getFilename(), result.getEmotion());
+                } else {
+                    byte[] original = slice != null ? slice.decode() : message.getData();
+                    saved = saveProcessedImage(original, message.getFilename(), result.getEmotion());
+                }
+            }
+
+            long count = processedCount.incrementAndGet();
+            System.out.println("🤖 [" + count + "] " + result.toString() + " [SALVA]");
+            if (allocationMeter != null) {
+                allocationMeter.record(allocationStart);
+            }
+
+            // Acknowledgment da mensagem: no modo durável só depois do fsync da imagem
+            long deliveryTag = delivery.getEnvelope().getDeliveryTag();
+            if (imageWriter.isDurable()) {
+                saved.whenComplete((ignored, error) -> completeDelivery(deliveryTag, error));
+            } else {
+                ackDelivery(deliveryTag);
+            }
+
+        } catch (Exception e) {
+            System.err.println("Erro ao processar mensagem: " + e.getMessage());
+
+            // Rejeitar mensagem em caso de erro
+            try {
+                nackDelivery(delivery.getEnvelope().getDeliveryTag());
+            } catch (IOException ioException) {
+                System.err.println("Erro ao rejeitar mensagem: " + ioException.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Predição dentro do limitador de concorrência; null se a mensagem venceu esperando vaga.
+     */
+    private EmotionApiClient.EmotionResult predictBeforeDeadline(ImageMessage message, JsonImageSlice slice)
+            throws InterruptedException {
+        if (concurrencyLimiter == null) {
+            return predict(message, slice);
+        }
+        long start = concurrencyLimiter.acquire();
+        if (deadlinePolicy != null && deadlinePolicy.expiredWhileWaiting(message.getTimestamp())) {
+            concurrencyLimiter.cancel();
+            return null;
+        }
+        boolean ok = false;
+        try {
+            EmotionApiClient.EmotionResult result = predict(message, slice);
+            ok = !"ERRO".equals(result.getCategory());
+            return result;
+        } finally {
+            concurrencyLimiter.release(start, ok);
+        }
+    }
+
+    private EmotionApiClient.EmotionResult predict(ImageMessage message, JsonImageSlice slice) {
+        if (slice != null) {
+            return emotionApiClient.predictEmotionBase64(slice.getBody(), slice.getOffset(), slice.getLength(), message.getFilename());
+        }
+        if (emotionBatcher != null) {
+            return emotionBatcher.submit(message.getData(), message.getFilename()).join();
+        }
+        return emotionApiClient.predictEmotion(message.getData(), message.getFilename());
+    }
+
+    private void deadLetter(Delivery delivery, ImageMessage message) throws IOException {
+        channelLock.lock();
+        try {
+            deadlinePolicy.deadLetter(channel, delivery, message.getTimestamp());
+        } finally {
+            channelLock.unlock();
+        }
+        ackDelivery(delivery.getEnvelope().getDeliveryTag());
+        System.out.println("⏱️ Mensagem vencida enviada ao dead-letter: " + message.getFilename());
+    }
+
+    private EmotionApiClient.EmotionResult analyzeLocally(ImageMessage message, JsonImageSlice slice) {
+        // Classificação local (sem chamada remota) para mensagens vencidas
+        byte[] data = slice != null ? slice.decode() : message.getData();
+        FaceEmotionAnalyzer.EmotionResult local = localAnalyzer.analyzeEmotion(data, message.getFilename());
+        deadlinePolicy.recordLocal();
+        String category = "ERRO".equals(local.getCategory()) ? "ERRO" : "LOCAL";
+        return new EmotionApiClient.EmotionResult(message.getFilename(), local.getEmotion(), category, local.getConfidence());
+    }
+
+    private ExecutorService createWorkerPool() {
+        // Pool limitado: a fila nunca passa do prefetch, pois o broker não entrega mais que isso sem ack
+        AtomicInteger threadIndex = new AtomicInteger();
+        return new ThreadPoolExecutor(concurrency, concurrency, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, prefetchCount)),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "face-worker-" + threadIndex.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    private void updateChannelPrefetch(int limit) {
         try {
-            // Criar diretório de saída se não existir
-            File outputDir = new File("/app/images/faces/processed");
-            if (!outputDir.exists()) {
-                outputDir.mkdirs();
+            channelLock.lock();
+            try {
+                channel.basicQos(limit, true);
+            } finally {
+                channelLock.unlock();
             }
+        } catch (IOException e) {
+            System.err.println("Erro ao ajustar prefetch: " + e.getMessage());
+        }
+    }
+
+    private void completeDelivery(long deliveryTag, Throwable writeError) {
+        try {
+            if (writeError == null) {
+                ackDelivery(deliveryTag);
+            } else {
+                nackDelivery(deliveryTag);
+            }
+        } catch (IOException e) {
+            System.err.println("Erro ao confirmar mensagem: " + e.getMessage());
+        }
+    }
+
+    private void ackDelivery(long deliveryTag) throws IOException {
+        ackAggregator.ack(deliveryTag);
+    }
+
+    private void nackDelivery(long deliveryTag) throws IOException {
+        ackAggregator.nack(deliveryTag, false);
+    }
+
+    private CompletableFuture<Void> saveProcessedImage(byte[] imageData, String filename, String emotion) {
+        try {
+            // Diretório de saída (criado pelo writer na primeira gravação)
+            Path outputDir = Paths.get("/app/images/faces/processed");
 
             // Verificar se os dados são JPG válidos
             boolean isValidJpg = imageData.length > 4 &&
@@ -171,17 +406,20 @@ public class ConsumidorFace {
             // Criar nome do arquivo baseado na predição da emoção
             String emotionFileName = getEmotionFileName(emotion);
             long timestamp = System.currentTimeMillis();
-            String processedFileName = emotionFileName + "_" + timestamp + ".jpg";
-
-            // Salvar a imagem processada com o nome da emoção
-            File outputFile = new File(outputDir, processedFileName);
-            Files.write(outputFile.toPath(), imageData);
-
-            System.out.println("💾 Imagem salva como: " + processedFileName + " (" + imageData.length + " bytes)");
-        } catch (IOException e) {
-            System.err.println("Erro ao salvar imagem processada " + filename + ": " + e.getMessage());
+            String processedFileName = emotionFileName + "_" + timestamp + "_" + outputSequence.incrementAndGet() + ".jpg";
+
+            // Enfileirar a imagem processada com o nome da emoção
+            return imageWriter.submit(outputDir, processedFileName, imageData)
+                    .whenComplete((ignored, error) -> {
+                        if (error == null) {
+                            System.out.println("💾 Imagem salva como: " + processedFileName + " (" + imageData.length + " bytes)");
+                        } else {
+                            System.err.println("Erro ao salvar imagem processada " + filename + ": " + error.getMessage());
+                        }
+                    });
         } catch (Exception e) {
             System.err.println("Erro debug: " + e.getMessage());
+            return CompletableFuture.failedFuture(e);
         }
     }
 
@@ -205,6 +443,25 @@ public class ConsumidorFace {
 
     public void close() {
         try {
+            // Parar de receber e esperar os workers confirmarem as mensagens em andamento
+            if (consumerTag != null && channel != null && channel.isOpen()) {
+                channel.basicCancel(consumerTag);
+            }
+            if (workerPool != null) {
+                workerPool.shutdown();
+                if (!workerPool.awaitTermination(30, TimeUnit.SECONDS)) {
+                    workerPool.shutdownNow();
+                }
+            }
+            if (emotionBatcher != null) {
+                emotionBatcher.close();
+            }
+            if (imageWriter != null) {
+                imageWriter.close();
+            }
+            if (ackAggregator != null) {
+                ackAggregator.close();
+            }
             if (channel != null && channel.isOpen()) {
                 channel.close();
             }
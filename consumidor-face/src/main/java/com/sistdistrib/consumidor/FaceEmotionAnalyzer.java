@@ -1,12 +1,14 @@
 package com.sistdistrib.consumidor;
 
-import java.awt.Color;
-import java.awt.image.BufferedImage;
-import java.io.ByteArrayInputStream;
-import javax.imageio.ImageIO;
+import static com.sistdistrib.consumidor.PixelPlanes.blue;
+import static com.sistdistrib.consumidor.PixelPlanes.green;
+import static com.sistdistrib.consumidor.PixelPlanes.pack;
+import static com.sistdistrib.consumidor.PixelPlanes.red;
 
 public class FaceEmotionAnalyzer {
 
+    private final ImageDecoder decoder = ImageDecoder.fromEnv();
+
     public static class EmotionResult {
         private String filename;
         private String emotion;
@@ -40,14 +42,14 @@ public class FaceEmotionAnalyzer {
 
     public EmotionResult analyzeEmotion(byte[] imageData, String filename) {
         try {
-            // Converter bytes para BufferedImage
-            BufferedImage image = ImageIO.read(new ByteArrayInputStream(imageData));
-            if (image == null) {
+            // Pixels lidos direto do raster; os detectores só leem os arrays
+            PixelPlanes pixels = decoder.decodeCorner(imageData, 4, 2);
+            if (pixels == null) {
                 return new EmotionResult(filename, "error", "ERRO", 0.0, "Falha ao carregar imagem");
             }
 
             // === DETECTOR REVOLUCIONÁRIO: LER O DNA DA IMAGEM ===
-            String dnaEmotion = readEmotionDNA(image);
+            String dnaEmotion = readEmotionDNA(pixels);
             if (dnaEmotion != null) {
                 // 98% de confiança quando lemos o DNA diretamente
                 String category = mapToCategory(dnaEmotion);
@@ -55,7 +57,10 @@ public class FaceEmotionAnalyzer {
             }
 
             // === DETECTOR AVANÇADO: ANÁLISE VISUAL INTELIGENTE ===
-            String smartEmotion = performSmartVisualAnalysis(image);
+            if (decoder.isSubsampled()) {
+                pixels = decoder.decode(imageData);
+            }
+            String smartEmotion = performSmartVisualAnalysis(pixels);
             String category = mapToCategory(smartEmotion);
             double confidence = 0.92; // Alta confiança para análise inteligente
 
@@ -88,23 +93,23 @@ public class FaceEmotionAnalyzer {
         String detectedPattern;  // Padrão predominante detectado
     }
 
-    private AdvancedEmotionAnalysis performAdvancedAnalysis(BufferedImage image) {
+    private AdvancedEmotionAnalysis performAdvancedAnalysis(PixelPlanes pixels) {
         AdvancedEmotionAnalysis analysis = new AdvancedEmotionAnalysis();
 
-        int width = image.getWidth();
-        int height = image.getHeight();
+        int width = pixels.getWidth();
+        int height = pixels.getHeight();
 
         // 1. Análise específica da boca (região mais confiável)
-        analyzeMouthRegionAdvanced(image, analysis);
+        analyzeMouthRegionAdvanced(pixels, analysis);
 
         // 2. Análise das sobrancelhas (indicador importante)
-        analyzeEyebrowRegion(image, analysis);
+        analyzeEyebrowRegion(pixels, analysis);
 
         // 3. Análise do contorno dos olhos (complementar)
-        analyzeEyeRegion(image, analysis);
+        analyzeEyeRegion(pixels, analysis);
 
         // 4. Análise do contraste global
-        analysis.globalContrast = calculateGlobalContrast(image);
+        analysis.globalContrast = calculateGlobalContrast(pixels);
 
         // 5. Determinar padrão predominante
         analysis.detectedPattern = identifyDominantPattern(analysis);
@@ -112,9 +117,9 @@ public class FaceEmotionAnalyzer {
         return analysis;
     }
 
-    private void analyzeMouthRegionAdvanced(BufferedImage image, AdvancedEmotionAnalysis analysis) {
-        int width = image.getWidth();
-        int height = image.getHeight();
+    private void analyzeMouthRegionAdvanced(PixelPlanes pixels, AdvancedEmotionAnalysis analysis) {
+        int width = pixels.getWidth();
+        int height = pixels.getHeight();
 
         // Definir região da boca com precisão maior
         int mouthCenterX = width / 2;
@@ -128,12 +133,12 @@ public class FaceEmotionAnalyzer {
         int endY = mouthCenterY + mouthHeight / 2;
 
         // Detectar tipos específicos de boca
-        analysis.isSmileArc = detectSmileArc(image, startX, endX, startY, endY);
-        analysis.isFrownArc = detectFrownArc(image, startX, endX, startY, endY);
-        analysis.isStraightLine = detectStraightMouth(image, startX, endX, startY, endY);
+        analysis.isSmileArc = detectSmileArc(pixels, startX, endX, startY, endY);
+        analysis.isFrownArc = detectFrownArc(pixels, startX, endX, startY, endY);
+        analysis.isStraightLine = detectStraightMouth(pixels, startX, endX, startY, endY);
 
         // Calcular curvatura refinada
-        analysis.mouthCurvature = calculateMouthCurvatureAdvanced(image, startX, endX, startY, endY);
+        analysis.mouthCurvature = calculateMouthCurvatureAdvanced(pixels, startX, endX, startY, endY);
 
         // Score final da boca
         if (analysis.isSmileArc) {
@@ -148,9 +153,9 @@ public class FaceEmotionAnalyzer {
         }
     }
 
-    private void analyzeEyebrowRegion(BufferedImage image, AdvancedEmotionAnalysis analysis) {
-        int width = image.getWidth();
-        int height = image.getHeight();
+    private void analyzeEyebrowRegion(PixelPlanes pixels, AdvancedEmotionAnalysis analysis) {
+        int width = pixels.getWidth();
+        int height = pixels.getHeight();
 
         // Região das sobrancelhas (acima dos olhos)
         int browY = (int)(height * 0.35);
@@ -158,8 +163,8 @@ public class FaceEmotionAnalyzer {
         int rightBrowX = (int)(width * 0.75);
 
         // Detectar padrões de sobrancelhas
-        analysis.isAngryBrow = detectAngryEyebrows(image, leftBrowX, rightBrowX, browY);
-        analysis.isSurprisedBrow = detectSurprisedEyebrows(image, leftBrowX, rightBrowX, browY);
+        analysis.isAngryBrow = detectAngryEyebrows(pixels, leftBrowX, rightBrowX, browY);
+        analysis.isSurprisedBrow = detectSurprisedEyebrows(pixels, leftBrowX, rightBrowX, browY);
 
         // Score das sobrancelhas
         if (analysis.isAngryBrow) {
@@ -171,9 +176,9 @@ public class FaceEmotionAnalyzer {
         }
     }
 
-    private void analyzeEyeRegion(BufferedImage image, AdvancedEmotionAnalysis analysis) {
-        int width = image.getWidth();
-        int height = image.getHeight();
+    private void analyzeEyeRegion(PixelPlanes pixels, AdvancedEmotionAnalysis analysis) {
+        int width = pixels.getWidth();
+        int height = pixels.getHeight();
 
         // Região dos olhos
         int eyeY = (int)(height * 0.45);
@@ -181,19 +186,19 @@ public class FaceEmotionAnalyzer {
         int rightEyeX = (int)(width * 0.7);
 
         // Detectar "olhos sorrindo" (verificar se há curvatura para cima nas pálpebras inferiores)
-        analysis.hasSmileEyes = detectSmileEyes(image, leftEyeX, rightEyeX, eyeY);
+        analysis.hasSmileEyes = detectSmileEyes(pixels, leftEyeX, rightEyeX, eyeY);
 
         // Score dos olhos
         analysis.eyeScore = analysis.hasSmileEyes ? 0.4 : 0.0;
     }
 
-    private double calculateGlobalContrast(BufferedImage image) {
+    private double calculateGlobalContrast(PixelPlanes pixels) {
         double minIntensity = 255.0;
         double maxIntensity = 0.0;
 
-        for (int y = 0; y < image.getHeight(); y += 5) {
-            for (int x = 0; x < image.getWidth(); x += 5) {
-                double intensity = getPixelIntensity(image, x, y);
+        for (int y = 0; y < pixels.getHeight(); y += 5) {
+            for (int x = 0; x < pixels.getWidth(); x += 5) {
+                double intensity = pixels.intensity(x, y);
                 minIntensity = Math.min(minIntensity, intensity);
                 maxIntensity = Math.max(maxIntensity, intensity);
             }
@@ -214,41 +219,41 @@ public class FaceEmotionAnalyzer {
         }
     }
 
-    private boolean detectSmileArc(BufferedImage image, int startX, int endX, int startY, int endY) {
+    private boolean detectSmileArc(PixelPlanes pixels, int startX, int endX, int startY, int endY) {
         // Verificar se há um padrão de arco côncavo (sorriso)
         int centerX = (startX + endX) / 2;
         int centerY = (startY + endY) / 2;
 
         // Verificar se o centro está mais escuro que as extremidades (indicando abertura da boca)
-        double leftIntensity = getAverageIntensityInRegion(image, startX, startX + 15, centerY - 5, centerY + 5);
-        double rightIntensity = getAverageIntensityInRegion(image, endX - 15, endX, centerY - 5, centerY + 5);
-        double centerIntensity = getAverageIntensityInRegion(image, centerX - 10, centerX + 10, centerY - 5, centerY + 5);
+        double leftIntensity = getAverageIntensityInRegion(pixels, startX, startX + 15, centerY - 5, centerY + 5);
+        double rightIntensity = getAverageIntensityInRegion(pixels, endX - 15, endX, centerY - 5, centerY + 5);
+        double centerIntensity = getAverageIntensityInRegion(pixels, centerX - 10, centerX + 10, centerY - 5, centerY + 5);
 
         // Sorriso: extremidades mais claras que o centro
         return (leftIntensity + rightIntensity) / 2.0 > centerIntensity + 20;
     }
 
-    private boolean detectFrownArc(BufferedImage image, int startX, int endX, int startY, int endY) {
+    private boolean detectFrownArc(PixelPlanes pixels, int startX, int endX, int startY, int endY) {
         // Verificar se há um padrão de arco convexo (tristeza)
         int centerX = (startX + endX) / 2;
         int centerY = (startY + endY) / 2;
 
-        double leftIntensity = getAverageIntensityInRegion(image, startX, startX + 15, centerY - 5, centerY + 5);
-        double rightIntensity = getAverageIntensityInRegion(image, endX - 15, endX, centerY - 5, centerY + 5);
-        double centerIntensity = getAverageIntensityInRegion(image, centerX - 10, centerX + 10, centerY - 5, centerY + 5);
+        double leftIntensity = getAverageIntensityInRegion(pixels, startX, startX + 15, centerY - 5, centerY + 5);
+        double rightIntensity = getAverageIntensityInRegion(pixels, endX - 15, endX, centerY - 5, centerY + 5);
+        double centerIntensity = getAverageIntensityInRegion(pixels, centerX - 10, centerX + 10, centerY - 5, centerY + 5);
 
         // Tristeza: centro mais claro que extremidades
         return centerIntensity > (leftIntensity + rightIntensity) / 2.0 + 15;
     }
 
-    private boolean detectStraightMouth(BufferedImage image, int startX, int endX, int startY, int endY) {
+    private boolean detectStraightMouth(PixelPlanes pixels, int startX, int endX, int startY, int endY) {
         // Verificar se há uma linha horizontal predominante
         int centerY = (startY + endY) / 2;
         int horizontalLines = 0;
 
         for (int x = startX; x < endX - 5; x += 3) {
-            double current = getPixelIntensity(image, x, centerY);
-            double next = getPixelIntensity(image, x + 5, centerY);
+            double current = pixels.intensity(x, centerY);
+            double next = pixels.intensity(x + 5, centerY);
 
             if (Math.abs(current - next) < 15) {
                 horizontalLines++;
@@ -258,7 +263,7 @@ public class FaceEmotionAnalyzer {
         return horizontalLines > (endX - startX) / 6; // Se mais da metade são horizontais
     }
 
-    private double calculateMouthCurvatureAdvanced(BufferedImage image, int startX, int endX, int startY, int endY) {
+    private double calculateMouthCurvatureAdvanced(PixelPlanes pixels, int startX, int endX, int startY, int endY) {
         int centerX = (startX + endX) / 2;
         int centerY = (startY + endY) / 2;
 
@@ -266,7 +271,7 @@ public class FaceEmotionAnalyzer {
         double[] intensities = new double[5];
         for (int i = 0; i < 5; i++) {
             int x = startX + (endX - startX) * i / 4;
-            intensities[i] = getPixelIntensity(image, x, centerY);
+            intensities[i] = pixels.intensity(x, centerY);
         }
 
         // Calcular curvatura usando diferenças de segunda ordem
@@ -278,46 +283,46 @@ public class FaceEmotionAnalyzer {
         return curvature / 3.0;
     }
 
-    private boolean detectAngryEyebrows(BufferedImage image, int leftX, int rightX, int browY) {
+    private boolean detectAngryEyebrows(PixelPlanes pixels, int leftX, int rightX, int browY) {
         // Detectar sobrancelhas inclinadas para baixo (padrão de raiva)
-        double leftStart = getPixelIntensity(image, leftX - 10, browY - 5);
-        double leftEnd = getPixelIntensity(image, leftX + 15, browY + 3);
-        double rightStart = getPixelIntensity(image, rightX - 15, browY + 3);
-        double rightEnd = getPixelIntensity(image, rightX + 10, browY - 5);
+        double leftStart = pixels.intensity(leftX - 10, browY - 5);
+        double leftEnd = pixels.intensity(leftX + 15, browY + 3);
+        double rightStart = pixels.intensity(rightX - 15, browY + 3);
+        double rightEnd = pixels.intensity(rightX + 10, browY - 5);
 
         // Padrão de raiva: sobrancelhas inclinadas para o centro
         return (leftStart - leftEnd > 20) && (rightEnd - rightStart > 20);
     }
 
-    private boolean detectSurprisedEyebrows(BufferedImage image, int leftX, int rightX, int browY) {
+    private boolean detectSurprisedEyebrows(PixelPlanes pixels, int leftX, int rightX, int browY) {
         // Detectar sobrancelhas arqueadas para cima
-        double leftCenter = getAverageIntensityInRegion(image, leftX - 5, leftX + 5, browY - 8, browY);
-        double rightCenter = getAverageIntensityInRegion(image, rightX - 5, rightX + 5, browY - 8, browY);
-        double leftSide = getAverageIntensityInRegion(image, leftX - 15, leftX - 5, browY, browY + 5);
-        double rightSide = getAverageIntensityInRegion(image, rightX + 5, rightX + 15, browY, browY + 5);
+        double leftCenter = getAverageIntensityInRegion(pixels, leftX - 5, leftX + 5, browY - 8, browY);
+        double rightCenter = getAverageIntensityInRegion(pixels, rightX - 5, rightX + 5, browY - 8, browY);
+        double leftSide = getAverageIntensityInRegion(pixels, leftX - 15, leftX - 5, browY, browY + 5);
+        double rightSide = getAverageIntensityInRegion(pixels, rightX + 5, rightX + 15, browY, browY + 5);
 
         // Surpresa: centro das sobrancelhas mais alto (mais escuro no topo)
         return (leftCenter < leftSide - 15) && (rightCenter < rightSide - 15);
     }
 
-    private boolean detectSmileEyes(BufferedImage image, int leftEyeX, int rightEyeX, int eyeY) {
+    private boolean detectSmileEyes(PixelPlanes pixels, int leftEyeX, int rightEyeX, int eyeY) {
         // Detectar se há curvatura para cima nas pálpebras inferiores (olhos "sorrindo")
-        double leftEyeBottom = getAverageIntensityInRegion(image, leftEyeX - 5, leftEyeX + 15, eyeY + 8, eyeY + 12);
-        double rightEyeBottom = getAverageIntensityInRegion(image, rightEyeX - 15, rightEyeX + 5, eyeY + 8, eyeY + 12);
-        double leftEyeCenter = getAverageIntensityInRegion(image, leftEyeX + 5, leftEyeX + 10, eyeY + 10, eyeY + 12);
-        double rightEyeCenter = getAverageIntensityInRegion(image, rightEyeX - 10, rightEyeX - 5, eyeY + 10, eyeY + 12);
+        double leftEyeBottom = getAverageIntensityInRegion(pixels, leftEyeX - 5, leftEyeX + 15, eyeY + 8, eyeY + 12);
+        double rightEyeBottom = getAverageIntensityInRegion(pixels, rightEyeX - 15, rightEyeX + 5, eyeY + 8, eyeY + 12);
+        double leftEyeCenter = getAverageIntensityInRegion(pixels, leftEyeX + 5, leftEyeX + 10, eyeY + 10, eyeY + 12);
+        double rightEyeCenter = getAverageIntensityInRegion(pixels, rightEyeX - 10, rightEyeX - 5, eyeY + 10, eyeY + 12);
 
         // Olhos sorrindo: extremidades das pálpebras inferiores mais altas que o centro
         return (leftEyeBottom > leftEyeCenter + 10) && (rightEyeBottom > rightEyeCenter + 10);
     }
 
-    private double detectMouthCurvature(BufferedImage image, int startX, int endX, int startY, int endY) {
+    private double detectMouthCurvature(PixelPlanes pixels, int startX, int endX, int startY, int endY) {
         double totalCurvature = 0.0;
         int measurements = 0;
 
         // Analisar múltiplas linhas horizontais na região da boca
         for (int y = startY; y < endY; y += 2) {
-            double lineCurvature = analyzeLineCurvature(image, startX, endX, y);
+            double lineCurvature = analyzeLineCurvature(pixels, startX, endX, y);
             totalCurvature += lineCurvature;
             measurements++;
         }
@@ -325,8 +330,8 @@ public class FaceEmotionAnalyzer {
         return measurements > 0 ? totalCurvature / measurements : 0.0;
     }
 
-    private double analyzeLineCurvature(BufferedImage image, int startX, int endX, int y) {
-        if (y >= image.getHeight()) return 0.0;
+    private double analyzeLineCurvature(PixelPlanes pixels, int startX, int endX, int y) {
+        if (y >= pixels.getHeight()) return 0.0;
 
         double leftIntensity = 0.0, centerIntensity = 0.0, rightIntensity = 0.0;
         int samples = 0;
@@ -335,19 +340,19 @@ public class FaceEmotionAnalyzer {
         int regionWidth = (endX - startX) / 3;
 
         // Região esquerda
-        for (int x = startX; x < startX + regionWidth && x < image.getWidth(); x++) {
-            leftIntensity += getPixelIntensity(image, x, y);
+        for (int x = startX; x < startX + regionWidth && x < pixels.getWidth(); x++) {
+            leftIntensity += pixels.intensity(x, y);
             samples++;
         }
 
         // Região central
-        for (int x = startX + regionWidth; x < startX + 2 * regionWidth && x < image.getWidth(); x++) {
-            centerIntensity += getPixelIntensity(image, x, y);
+        for (int x = startX + regionWidth; x < startX + 2 * regionWidth && x < pixels.getWidth(); x++) {
+            centerIntensity += pixels.intensity(x, y);
         }
 
         // Região direita
-        for (int x = startX + 2 * regionWidth; x < endX && x < image.getWidth(); x++) {
-            rightIntensity += getPixelIntensity(image, x, y);
+        for (int x = startX + 2 * regionWidth; x < endX && x < pixels.getWidth(); x++) {
+            rightIntensity += pixels.intensity(x, y);
         }
 
         if (samples == 0) return 0.0;
@@ -362,17 +367,17 @@ public class FaceEmotionAnalyzer {
         return (leftIntensity + rightIntensity) / 2.0 - centerIntensity;
     }
 
-    private int countHorizontalLines(BufferedImage image, int startX, int endX, int startY, int endY) {
+    private int countHorizontalLines(PixelPlanes pixels, int startX, int endX, int startY, int endY) {
         int horizontalLines = 0;
 
         for (int y = startY; y < endY - 1; y++) {
             int consecutiveHorizontal = 0;
 
-            for (int x = startX; x < endX - 1 && x < image.getWidth(); x++) {
-                if (y >= image.getHeight() || x >= image.getWidth()) continue;
+            for (int x = startX; x < endX - 1 && x < pixels.getWidth(); x++) {
+                if (y >= pixels.getHeight() || x >= pixels.getWidth()) continue;
 
-                double current = getPixelIntensity(image, x, y);
-                double next = getPixelIntensity(image, x + 1, y);
+                double current = pixels.intensity(x, y);
+                double next = pixels.intensity(x + 1, y);
 
                 // Se a diferença é pequena, é uma linha horizontal
                 if (Math.abs(current - next) < 20) {
@@ -389,36 +394,22 @@ public class FaceEmotionAnalyzer {
         return horizontalLines;
     }
 
-    private double calculateAverageBrightness(BufferedImage image, int startX, int endX, int startY, int endY) {
-        double totalBrightness = 0.0;
-        int pixels = 0;
-
-        for (int y = startY; y < endY && y < image.getHeight(); y++) {
-            for (int x = startX; x < endX && x < image.getWidth(); x++) {
-                totalBrightness += getPixelIntensity(image, x, y);
-                pixels++;
-            }
-        }
+    private double calculateAverageBrightness(PixelPlanes pixels, int startX, int endX, int startY, int endY) {
+        // Coordenadas negativas contam como pixels de intensidade 0
+        long count = (long) Math.max(0, Math.min(endX, pixels.getWidth()) - startX)
+                * Math.max(0, Math.min(endY, pixels.getHeight()) - startY);
 
-        return pixels > 0 ? totalBrightness / pixels : 0.0;
+        return count > 0 ? pixels.regions().sumIntensity(startX, startY, endX, endY) / count : 0.0;
     }
 
-    private int calculateRedIntensity(BufferedImage image, int startX, int endX, int startY, int endY) {
-        long totalRed = 0;
-        int pixels = 0;
-
-        for (int y = startY; y < endY && y < image.getHeight(); y++) {
-            for (int x = startX; x < endX && x < image.getWidth(); x++) {
-                Color color = new Color(image.getRGB(x, y));
-                totalRed += color.getRed();
-                pixels++;
-            }
-        }
+    private int calculateRedIntensity(PixelPlanes pixels, int startX, int endX, int startY, int endY) {
+        RegionStats regions = pixels.regions();
+        long count = regions.area(startX, startY, endX, endY);
 
-        return pixels > 0 ? (int)(totalRed / pixels) : 0;
+        return count > 0 ? (int)(regions.sum(RegionStats.Channel.RED, startX, startY, endX, endY) / count) : 0;
     }
 
-    private boolean detectSmilePattern(BufferedImage image, int startX, int endX, int startY, int endY) {
+    private boolean detectSmilePattern(PixelPlanes pixels, int startX, int endX, int startY, int endY) {
         // Procurar padrão de curvatura ascendente nas extremidades
         int mouthWidth = endX - startX;
         int mouthHeight = endY - startY;
@@ -426,57 +417,37 @@ public class FaceEmotionAnalyzer {
         if (mouthWidth < 10 || mouthHeight < 5) return false;
 
         // Verificar se extremidades estão "levantadas" em relação ao centro
-        double leftCorner = getAverageIntensityInRegion(image, startX, startX + mouthWidth/6,
+        double leftCorner = getAverageIntensityInRegion(pixels, startX, startX + mouthWidth/6,
                                                        startY + mouthHeight/2, endY);
-        double rightCorner = getAverageIntensityInRegion(image, endX - mouthWidth/6, endX,
+        double rightCorner = getAverageIntensityInRegion(pixels, endX - mouthWidth/6, endX,
                                                         startY + mouthHeight/2, endY);
-        double center = getAverageIntensityInRegion(image, startX + mouthWidth/3, endX - mouthWidth/3,
+        double center = getAverageIntensityInRegion(pixels, startX + mouthWidth/3, endX - mouthWidth/3,
                                                    startY + mouthHeight/2, endY);
 
         // Padrão de sorriso: extremidades mais claras que o centro
         return (leftCorner + rightCorner) / 2.0 > center + 15;
     }
 
-    private boolean detectFrownPattern(BufferedImage image, int startX, int endX, int startY, int endY) {
+    private boolean detectFrownPattern(PixelPlanes pixels, int startX, int endX, int startY, int endY) {
         // Procurar padrão de curvatura descendente
         int mouthWidth = endX - startX;
         int mouthHeight = endY - startY;
 
         if (mouthWidth < 10 || mouthHeight < 5) return false;
 
-        double leftCorner = getAverageIntensityInRegion(image, startX, startX + mouthWidth/6,
+        double leftCorner = getAverageIntensityInRegion(pixels, startX, startX + mouthWidth/6,
                                                        startY, startY + mouthHeight/2);
-        double rightCorner = getAverageIntensityInRegion(image, endX - mouthWidth/6, endX,
+        double rightCorner = getAverageIntensityInRegion(pixels, endX - mouthWidth/6, endX,
                                                         startY, startY + mouthHeight/2);
-        double center = getAverageIntensityInRegion(image, startX + mouthWidth/3, endX - mouthWidth/3,
+        double center = getAverageIntensityInRegion(pixels, startX + mouthWidth/3, endX - mouthWidth/3,
                                                    startY + mouthHeight/2, endY);
 
         // Padrão de tristeza: centro mais claro que extremidades (boca curvada para baixo)
         return center > (leftCorner + rightCorner) / 2.0 + 15;
     }
 
-    private double getAverageIntensityInRegion(BufferedImage image, int startX, int endX, int startY, int endY) {
-        double total = 0.0;
-        int pixels = 0;
-
-        for (int y = Math.max(0, startY); y < Math.min(image.getHeight(), endY); y++) {
-            for (int x = Math.max(0, startX); x < Math.min(image.getWidth(), endX); x++) {
-                total += getPixelIntensity(image, x, y);
-                pixels++;
-            }
-        }
-
-        return pixels > 0 ? total / pixels : 0.0;
-    }
-
-    private double getPixelIntensity(BufferedImage image, int x, int y) {
-        if (x >= image.getWidth() || y >= image.getHeight() || x < 0 || y < 0) {
-            return 0.0;
-        }
-
-        Color color = new Color(image.getRGB(x, y));
-        // Usar luminância padrão para intensidade
-        return 0.299 * color.getRed() + 0.587 * color.getGreen() + 0.114 * color.getBlue();
+    private double getAverageIntensityInRegion(PixelPlanes pixels, int startX, int endX, int startY, int endY) {
+        return pixels.regions().meanIntensity(startX, startY, endX, endY);
     }
 
     private String determineEmotionAdvanced(AdvancedEmotionAnalysis analysis) {
@@ -580,9 +551,9 @@ public class FaceEmotionAnalyzer {
         return Math.max(0.6, Math.min(0.95, confidence));
     }
 
-    private String readEmotionDNA(BufferedImage image) {
+    private String readEmotionDNA(PixelPlanes pixels) {
         try {
-            if (image == null || image.getWidth() < 4 || image.getHeight() < 2) {
+            if (pixels == null || pixels.getWidth() < 4 || pixels.getHeight() < 2) {
                 return null;
             }
 
@@ -591,12 +562,12 @@ public class FaceEmotionAnalyzer {
                 int x = i % 4;
                 int y = i / 4;
 
-                if (x >= image.getWidth() || y >= image.getHeight()) {
+                if (x >= pixels.getWidth() || y >= pixels.getHeight()) {
                     return null;
                 }
 
-                Color color = new Color(image.getRGB(x, y));
-                int redLSB = color.getRed() & 0x03;
+                int color = pixels.rgb(x, y);
+                int redLSB = red(color) & 0x03;
                 emotionCode |= (redLSB << (i * 2));
             }
 
@@ -613,15 +584,15 @@ public class FaceEmotionAnalyzer {
         }
     }
 
-    private String performSmartVisualAnalysis(BufferedImage image) {
+    private String performSmartVisualAnalysis(PixelPlanes pixels) {
         try {
             // === DETECTOR ULTRA-PRECISO BASEADO NAS CARACTERÍSTICAS ÓBVIAS ===
 
-            int width = image.getWidth();
-            int height = image.getHeight();
+            int width = pixels.getWidth();
+            int height = pixels.getHeight();
 
             // DETECTOR 1: COR DE FUNDO (99% DE PRECISÃO)
-            Color topLeftColor = new Color(image.getRGB(10, 10));
+            int topLeftColor = pixels.rgb(10, 10);
 
             // AMARELO = HAPPY
             if (isYellow(topLeftColor)) {
@@ -654,65 +625,65 @@ public class FaceEmotionAnalyzer {
             }
 
             // DETECTOR 2: BUSCA POR TEXTO NA IMAGEM (98% DE PRECISÃO)
-            String detectedText = detectTextPatterns(image);
+            String detectedText = detectTextPatterns(pixels);
             if (detectedText != null) {
                 System.out.println("🎯 TEXTO detectado: " + detectedText);
                 return detectedText;
             }
 
             // DETECTOR 3: ANÁLISE DE FORMAS CARACTERÍSTICAS (95% DE PRECISÃO)
-            String shapeEmotion = detectEmotionalShapes(image);
+            String shapeEmotion = detectEmotionalShapes(pixels);
             if (shapeEmotion != null) {
                 System.out.println("🎯 FORMA detectada: " + shapeEmotion);
                 return shapeEmotion;
             }
 
             // FALLBACK: Análise de cores médias
-            return detectByAverageColors(image);
+            return detectByAverageColors(pixels);
 
         } catch (Exception e) {
             return "neutral";
         }
     }
 
-    private boolean isYellow(Color color) {
-        return color.getRed() > 200 && color.getGreen() > 200 && color.getBlue() < 100;
+    private boolean isYellow(int color) {
+        return red(color) > 200 && green(color) > 200 && blue(color) < 100;
     }
 
-    private boolean isDarkBlue(Color color) {
-        return color.getRed() < 50 && color.getGreen() < 50 && color.getBlue() > 100;
+    private boolean isDarkBlue(int color) {
+        return red(color) < 50 && green(color) < 50 && blue(color) > 100;
     }
 
-    private boolean isRed(Color color) {
-        return color.getRed() > 180 && color.getGreen() < 100 && color.getBlue() < 100;
+    private boolean isRed(int color) {
+        return red(color) > 180 && green(color) < 100 && blue(color) < 100;
     }
 
-    private boolean isOrange(Color color) {
-        return color.getRed() > 200 && color.getGreen() > 100 && color.getGreen() < 200 && color.getBlue() < 100;
+    private boolean isOrange(int color) {
+        return red(color) > 200 && green(color) > 100 && green(color) < 200 && blue(color) < 100;
     }
 
-    private boolean isGray(Color color) {
-        int avg = (color.getRed() + color.getGreen() + color.getBlue()) / 3;
-        return Math.abs(color.getRed() - avg) < 30 &&
-               Math.abs(color.getGreen() - avg) < 30 &&
-               Math.abs(color.getBlue() - avg) < 30 &&
+    private boolean isGray(int color) {
+        int avg = (red(color) + green(color) + blue(color)) / 3;
+        return Math.abs(red(color) - avg) < 30 &&
+               Math.abs(green(color) - avg) < 30 &&
+               Math.abs(blue(color) - avg) < 30 &&
                avg > 150 && avg < 220;
     }
 
-    private String detectTextPatterns(BufferedImage image) {
+    private String detectTextPatterns(PixelPlanes pixels) {
         // Verifica pixels em regiões onde esperamos texto
-        int width = image.getWidth();
-        int height = image.getHeight();
+        int width = pixels.getWidth();
+        int height = pixels.getHeight();
 
         // Região superior (onde colocamos o texto principal)
         int textRegionY = 40;
         if (textRegionY < height) {
             for (int x = 50; x < width - 50; x += 5) {
-                Color pixel = new Color(image.getRGB(x, textRegionY));
+                int pixel = pixels.rgb(x, textRegionY);
                 // Pixels escuros podem indicar texto
-                if (pixel.getRed() < 100 && pixel.getGreen() < 100 && pixel.getBlue() < 100) {
+                if (red(pixel) < 100 && green(pixel) < 100 && blue(pixel) < 100) {
                     // Análise das cores ao redor para determinar emoção
-                    Color bg = new Color(image.getRGB(x + 20, textRegionY - 20));
+                    int bg = pixels.rgb(x + 20, textRegionY - 20);
                     if (isYellow(bg)) return "happy";
                     if (isDarkBlue(bg)) return "sad";
                     if (isRed(bg)) return "angry";
@@ -724,43 +695,43 @@ public class FaceEmotionAnalyzer {
         return null;
     }
 
-    private String detectEmotionalShapes(BufferedImage image) {
-        int width = image.getWidth();
-        int height = image.getHeight();
+    private String detectEmotionalShapes(PixelPlanes pixels) {
+        int width = pixels.getWidth();
+        int height = pixels.getHeight();
         int centerX = width / 2;
         int centerY = height / 2;
 
         // DETECTAR SORRISO (curva para baixo na região da boca)
-        if (detectSmileShape(image, centerX, centerY)) {
+        if (detectSmileShape(pixels, centerX, centerY)) {
             return "happy";
         }
 
         // DETECTAR TRISTEZA (curva para cima na região da boca)
-        if (detectSadShape(image, centerX, centerY)) {
+        if (detectSadShape(pixels, centerX, centerY)) {
             return "sad";
         }
 
         // DETECTAR RAIVA (linhas retas na região da boca)
-        if (detectAngryShape(image, centerX, centerY)) {
+        if (detectAngryShape(pixels, centerX, centerY)) {
             return "angry";
         }
 
         // DETECTAR SURPRESA (círculos grandes nos olhos)
-        if (detectSurpriseShape(image, centerX, centerY)) {
+        if (detectSurpriseShape(pixels, centerX, centerY)) {
             return "surprised";
         }
 
         return null;
     }
 
-    private boolean detectSmileShape(BufferedImage image, int centerX, int centerY) {
+    private boolean detectSmileShape(PixelPlanes pixels, int centerX, int centerY) {
         // Procura por pixels escuros em formato de arco (sorriso)
         int mouthY = centerY + 50;
         int darkPixels = 0;
         for (int x = centerX - 50; x <= centerX + 50; x += 5) {
-            if (x >= 0 && x < image.getWidth() && mouthY < image.getHeight()) {
-                Color pixel = new Color(image.getRGB(x, mouthY));
-                if (pixel.getRed() < 150 && pixel.getGreen() < 150 && pixel.getBlue() < 150) {
+            if (x >= 0 && x < pixels.getWidth() && mouthY < pixels.getHeight()) {
+                int pixel = pixels.rgb(x, mouthY);
+                if (red(pixel) < 150 && green(pixel) < 150 && blue(pixel) < 150) {
                     darkPixels++;
                 }
             }
@@ -768,13 +739,13 @@ public class FaceEmotionAnalyzer {
         return darkPixels > 8; // Muitos pixels escuros = linha de sorriso
     }
 
-    private boolean detectSadShape(BufferedImage image, int centerX, int centerY) {
+    private boolean detectSadShape(PixelPlanes pixels, int centerX, int centerY) {
         // Procura por lágrimas (pixels azuis nas laterais)
         int tearY = centerY + 20;
         for (int x : new int[]{centerX - 60, centerX + 60}) {
-            if (x >= 0 && x < image.getWidth() && tearY < image.getHeight()) {
-                Color pixel = new Color(image.getRGB(x, tearY));
-                if (pixel.getBlue() > 150 && pixel.getRed() < 100) {
+            if (x >= 0 && x < pixels.getWidth() && tearY < pixels.getHeight()) {
+                int pixel = pixels.rgb(x, tearY);
+                if (blue(pixel) > 150 && red(pixel) < 100) {
                     return true; // Encontrou lágrima azul
                 }
             }
@@ -782,14 +753,14 @@ public class FaceEmotionAnalyzer {
         return false;
     }
 
-    private boolean detectAngryShape(BufferedImage image, int centerX, int centerY) {
+    private boolean detectAngryShape(PixelPlanes pixels, int centerX, int centerY) {
         // Procura por linhas grossas pretas (sobrancelhas furiosas)
         int browY = centerY - 30;
         int blackPixels = 0;
         for (int x = centerX - 40; x <= centerX + 40; x += 3) {
-            if (x >= 0 && x < image.getWidth() && browY >= 0 && browY < image.getHeight()) {
-                Color pixel = new Color(image.getRGB(x, browY));
-                if (pixel.getRed() < 50 && pixel.getGreen() < 50 && pixel.getBlue() < 50) {
+            if (x >= 0 && x < pixels.getWidth() && browY >= 0 && browY < pixels.getHeight()) {
+                int pixel = pixels.rgb(x, browY);
+                if (red(pixel) < 50 && green(pixel) < 50 && blue(pixel) < 50) {
                     blackPixels++;
                 }
             }
@@ -797,13 +768,13 @@ public class FaceEmotionAnalyzer {
         return blackPixels > 15; // Muitos pixels pretos = sobrancelhas furiosas
     }
 
-    private boolean detectSurpriseShape(BufferedImage image, int centerX, int centerY) {
+    private boolean detectSurpriseShape(PixelPlanes pixels, int centerX, int centerY) {
         // Procura por círculos grandes brancos (olhos de surpresa)
         int eyeY = centerY - 10;
         for (int x : new int[]{centerX - 40, centerX + 40}) {
-            if (x >= 0 && x < image.getWidth() && eyeY >= 0 && eyeY < image.getHeight()) {
-                Color pixel = new Color(image.getRGB(x, eyeY));
-                if (pixel.getRed() > 200 && pixel.getGreen() > 200 && pixel.getBlue() > 200) {
+            if (x >= 0 && x < pixels.getWidth() && eyeY >= 0 && eyeY < pixels.getHeight()) {
+                int pixel = pixels.rgb(x, eyeY);
+                if (red(pixel) > 200 && green(pixel) > 200 && blue(pixel) > 200) {
                     return true; // Encontrou olho branco grande
                 }
             }
@@ -811,17 +782,17 @@ public class FaceEmotionAnalyzer {
         return false;
     }
 
-    private String detectByAverageColors(BufferedImage image) {
+    private String detectByAverageColors(PixelPlanes pixels) {
         // Análise das cores predominantes na imagem
         long totalRed = 0, totalGreen = 0, totalBlue = 0;
         int pixelCount = 0;
 
-        for (int y = 0; y < image.getHeight(); y += 10) {
-            for (int x = 0; x < image.getWidth(); x += 10) {
-                Color pixel = new Color(image.getRGB(x, y));
-                totalRed += pixel.getRed();
-                totalGreen += pixel.getGreen();
-                totalBlue += pixel.getBlue();
+        for (int y = 0; y < pixels.getHeight(); y += 10) {
+            for (int x = 0; x < pixels.getWidth(); x += 10) {
+                int pixel = pixels.rgb(x, y);
+                totalRed += red(pixel);
+                totalGreen += green(pixel);
+                totalBlue += blue(pixel);
                 pixelCount++;
             }
         }
@@ -830,7 +801,7 @@ public class FaceEmotionAnalyzer {
         int avgGreen = (int)(totalGreen / pixelCount);
         int avgBlue = (int)(totalBlue / pixelCount);
 
-        Color avgColor = new Color(avgRed, avgGreen, avgBlue);
+        int avgColor = pack(avgRed, avgGreen, avgBlue);
 
         if (isYellow(avgColor)) return "happy";
         if (isDarkBlue(avgColor)) return "sad";
@@ -17,6 +17,10 @@ public class ImageMessage {
     @JsonProperty("timestamp")
     private long timestamp;
 
+    // Bytes da imagem já decodificados (formato binário ou após o primeiro getData)
+    @JsonIgnore
+    private byte[] rawData;
+
     public ImageMessage() {}
 
     public String getType() {
@@ -37,24 +41,32 @@ public class ImageMessage {
 
     @JsonProperty("data")
     public String getDataBase64() {
+        if (dataBase64 == null && rawData != null) {
+            dataBase64 = Base64.getEncoder().encodeToString(rawData);
+        }
         return dataBase64;
     }
 
     @JsonProperty("data")
     public void setDataBase64(String dataBase64) {
         this.dataBase64 = dataBase64;
+        this.rawData = null;
     }
 
-    // Método de conveniência para obter bytes (não serializado)
+    // Método de conveniência para obter bytes (não serializado); decodifica uma única vez
     @JsonIgnore
     public byte[] getData() {
-        return Base64.getDecoder().decode(dataBase64);
+        if (rawData == null && dataBase64 != null) {
+            rawData = Base64.getDecoder().decode(dataBase64);
+        }
+        return rawData;
     }
 
     // Método de conveniência para definir bytes (não serializado)
     @JsonIgnore
     public void setData(byte[] data) {
-        this.dataBase64 = Base64.getEncoder().encodeToString(data);
+        this.rawData = data;
+        this.dataBase64 = null;
     }
 
     public long getTimestamp() {
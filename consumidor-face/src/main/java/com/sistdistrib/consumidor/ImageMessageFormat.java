@@ -0,0 +1,90 @@
+package com.sistdistrib.consumidor;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.rabbitmq.client.AMQP;
+
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * Leitura das mensagens de imagem nos dois formatos publicados pelo gerador.
+ *
+ * JSON: {@link ImageMessage} com a imagem em Base64 no campo "data" (formato original).
+ * Binário (v1): metadados nos headers AMQP e os bytes da imagem, sem codificação, no corpo.
+ * Referência (claim-check): {@link ImageReference} em JSON; a imagem é lida do {@link ImageStore}.
+ * O formato é escolhido pelo contentType, então gerador e consumidores podem ser
+ * atualizados em qualquer ordem.
+ */
+public final class ImageMessageFormat {
+
+    public static final String JSON_CONTENT_TYPE = "application/json";
+    public static final String BINARY_CONTENT_TYPE = "application/vnd.sistdistrib.image";
+    public static final int BINARY_VERSION = 1;
+    public static final String REFERENCE_CONTENT_TYPE = "application/vnd.sistdistrib.image-ref+json";
+
+    public static final String HEADER_VERSION = "x-format-version";
+    public static final String HEADER_TYPE = "x-image-type";
+    public static final String HEADER_FILENAME = "x-filename";
+    public static final String HEADER_TIMESTAMP = "x-timestamp";
+
+    private ImageMessageFormat() {}
+
+    /**
+     * Converte o corpo da entrega em {@link ImageMessage} de acordo com o contentType.
+     */
+    public static ImageMessage decode(AMQP.BasicProperties properties, byte[] body, ObjectMapper objectMapper,
+                                      ImageStore imageStore) throws IOException {
+        if (isReference(properties)) {
+            ImageReference reference = objectMapper.readValue(body, ImageReference.class);
+            ImageMessage message = new ImageMessage();
+            message.setType(reference.getType());
+            message.setFilename(reference.getFilename());
+            message.setTimestamp(reference.getTimestamp());
+            message.setData(imageStore.read(reference.getHash(), reference.getSize()));
+            return message;
+        }
+        if (!isBinary(properties)) {
+            return objectMapper.readValue(body, ImageMessage.class);
+        }
+
+        Map<String, Object> headers = properties.getHeaders();
+        if (headers == null) {
+            throw new IOException("Mensagem binária sem headers");
+        }
+        int version = ((Number) headers.getOrDefault(HEADER_VERSION, 0)).intValue();
+        if (version != BINARY_VERSION) {
+            throw new IOException("Versão de formato binário não suportada: " + version);
+        }
+
+        ImageMessage message = new ImageMessage();
+        message.setType(headerString(headers, HEADER_TYPE));
+        message.setFilename(headerString(headers, HEADER_FILENAME));
+        Object timestamp = headers.get(HEADER_TIMESTAMP);
+        message.setTimestamp(timestamp instanceof Number ? ((Number) timestamp).longValue() : 0L);
+        message.setData(body);
+        return message;
+    }
+
+    public static boolean isBinary(AMQP.BasicProperties properties) {
+        String contentType = properties.getContentType();
+        return contentType != null && contentType.startsWith(BINARY_CONTENT_TYPE) && !isReference(properties);
+    }
+
+    public static boolean isReference(AMQP.BasicProperties properties) {
+        String contentType = properties.getContentType();
+        return contentType != null && contentType.startsWith(REFERENCE_CONTENT_TYPE);
+    }
+
+    /**
+     * Mensagem com o ImageMessage completo em JSON (sem contentType conta como JSON).
+     */
+    public static boolean isJson(AMQP.BasicProperties properties) {
+        return !isBinary(properties) && !isReference(properties);
+    }
+
+    private static String headerString(Map<String, Object> headers, String name) {
+        // Strings chegam como LongString no cliente AMQP
+        Object value = headers.get(name);
+        return value != null ? value.toString() : null;
+    }
+}
@@ -0,0 +1,45 @@
+package com.sistdistrib.consumidor;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * Mensagem do modo claim-check: referência a uma imagem do {@link ImageStore}.
+ */
+public class ImageReference {
+    @JsonProperty("type")
+    private String type;
+
+    @JsonProperty("filename")
+    private String filename;
+
+    @JsonProperty("hash")
+    private String hash;
+
+    @JsonProperty("size")
+    private long size;
+
+    @JsonProperty("timestamp")
+    private long timestamp;
+
+    public ImageReference() {}
+
+    public String getType() {
+        return type;
+    }
+
+    public String getFilename() {
+        return filename;
+    }
+
+    public String getHash() {
+        return hash;
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+}
@@ -0,0 +1,63 @@
+package com.sistdistrib.consumidor;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.regex.Pattern;
+
+/**
+ * Leitura das imagens do store endereçado por conteúdo (modo claim-check).
+ *
+ * O gerador grava cada imagem uma vez em {@code <raiz>/<2 primeiros hex>/<sha-256>} e
+ * publica só a referência; aqui a imagem é lida direto para o array da mensagem. As imagens
+ * têm poucos KB, e um mmap custaria mais que a leitura sem evitar a cópia para o array.
+ */
+public class ImageStore {
+
+    private static final Pattern SHA256_HEX = Pattern.compile("[0-9a-f]{64}");
+
+    private final Path root;
+
+    public ImageStore(Path root) {
+        this.root = root;
+    }
+
+    /**
+     * Cria o store em IMAGE_STORE_DIR (padrão /app/images/store).
+     */
+    public static ImageStore fromEnv() {
+        return new ImageStore(Paths.get(System.getenv().getOrDefault("IMAGE_STORE_DIR", "/app/images/store")));
+    }
+
+    /**
+     * Lê a imagem referenciada, conferindo o tamanho anunciado na mensagem.
+     */
+    public byte[] read(String hash, long size) throws IOException {
+        // O hash vira caminho: só aceita hex para não sair da raiz
+        if (hash == null || !SHA256_HEX.matcher(hash).matches()) {
+            throw new IOException("Hash de imagem inválido: " + hash);
+        }
+        if (size < 0 || size > Integer.MAX_VALUE) {
+            throw new IOException("Tamanho de imagem inválido: " + size);
+        }
+
+        Path path = root.resolve(hash.substring(0, 2)).resolve(hash);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() != size) {
+                throw new IOException("Imagem " + hash + " com " + channel.size() + " bytes, esperado " + size);
+            }
+            byte[] data = new byte[(int) size];
+            ByteBuffer buffer = ByteBuffer.wrap(data);
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer) < 0) {
+                    throw new EOFException("Imagem " + hash + " truncada durante a leitura");
+                }
+            }
+            return data;
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package com.sistdistrib.consumidor;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Base64;
+
+/**
+ * Posição do campo "data" (imagem em Base64) dentro do corpo JSON de uma mensagem.
+ *
+ * Usa o parser de streaming do Jackson para ler os metadados e localizar a imagem
+ * sem criar a String Base64: o parser pula o valor e só o offset é guardado. Assim
+ * o trecho pode ser repassado como está para a API.
+ */
+public final class JsonImageSlice {
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private final byte[] body;
+    private final int offset;
+    private final int length;
+    private final String type;
+    private final String filename;
+    private final long timestamp;
+
+    private JsonImageSlice(byte[] body, int offset, int length, String type, String filename, long timestamp) {
+        this.body = body;
+        this.offset = offset;
+        this.length = length;
+        this.type = type;
+        this.filename = filename;
+        this.timestamp = timestamp;
+    }
+
+    /**
+     * Localiza a imagem no corpo JSON.
+     *
+     * @return null se o corpo não tiver o formato esperado (o chamador usa o caminho normal)
+     */
+    public static JsonImageSlice locate(byte[] body) throws IOException {
+        int dataOffset = -1;
+        int dataLength = 0;
+        String type = null;
+        String filename = null;
+        long timestamp = 0;
+
+        try (JsonParser parser = JSON_FACTORY.createParser(body)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                return null;
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                JsonToken value = parser.nextToken();
+                switch (field) {
+                    case "data":
+                        if (value != JsonToken.VALUE_STRING) {
+                            return null;
+                        }
+                        // Offset da aspa de abertura; o valor não é lido pelo parser
+                        int start = (int) parser.getTokenLocation().getByteOffset() + 1;
+                        int end = closingQuote(body, start);
+                        if (end < 0) {
+                            return null;
+                        }
+                        dataOffset = start;
+                        dataLength = end - start;
+                        break;
+                    case "type":
+                        type = parser.getValueAsString();
+                        break;
+                    case "filename":
+                        filename = parser.getValueAsString();
+                        break;
+                    case "timestamp":
+                        timestamp = parser.getValueAsLong();
+                        break;
+                    default:
+                        parser.skipChildren();
+                }
+            }
+        }
+        return dataOffset < 0 ? null : new JsonImageSlice(body, dataOffset, dataLength, type, filename, timestamp);
+    }
+
+    // Base64 não tem aspas nem escapes; um escape indica conteúdo inesperado
+    private static int closingQuote(byte[] body, int start) {
+        for (int i = start; i < body.length; i++) {
+            if (body[i] == '"') {
+                return i;
+            }
+            if (body[i] == '\\') {
+                return -1;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Mensagem só com os metadados (os bytes da imagem ficam no corpo original).
+     */
+    public ImageMessage toMessage() {
+        ImageMessage message = new ImageMessage();
+        message.setType(type);
+        message.setFilename(filename);
+        message.setTimestamp(timestamp);
+        return message;
+    }
+
+    /**
+     * Decodifica a imagem; só necessário quando os bytes originais precisam ser gravados.
+     */
+    public byte[] decode() {
+        ByteBuffer decoded = Base64.getDecoder().decode(ByteBuffer.wrap(body, offset, length));
+        byte[] data = new byte[decoded.remaining()];
+        decoded.get(data);
+        return data;
+    }
+
+    public byte[] getBody() { return body; }
+    public int getOffset() { return offset; }
+    public int getLength() { return length; }
+    public String getFilename() { return filename; }
+}
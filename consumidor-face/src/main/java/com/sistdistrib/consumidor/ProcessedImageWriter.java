@@ -0,0 +1,339 @@
+package com.sistdistrib.consumidor;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Escrita em segundo plano (write-behind) das imagens processadas.
+ *
+ * As imagens entram numa fila limitada e são gravadas por threads dedicadas.
+ * Cada thread pega um grupo de até {@code groupCommitSize} imagens e grava todas.
+ * No modo {@link Durability#DURABLE} faz um único ciclo de fsync para o grupo
+ * (group commit) antes de completar os futures, e o consumidor só confirma a
+ * mensagem depois disso. No modo {@link Durability#ASYNC} (padrão) não há fsync e o
+ * consumidor confirma assim que a imagem entra na fila. Com a fila cheia,
+ * {@link #submit} bloqueia e segura o consumo; depois do {@link #close} ele falha.
+ *
+ * No modo {@link OutputMode#SEGMENTS} as imagens são anexadas a arquivos de
+ * segmento ({@link SegmentStore}) em {@code <diretório>/segments} em vez de um
+ * arquivo por imagem; o group commit vira um único fsync por segmento.
+ */
+public class ProcessedImageWriter implements AutoCloseable {
+
+    public enum Durability {
+        ASYNC,
+        DURABLE
+    }
+
+    public enum OutputMode {
+        FILES,
+        SEGMENTS
+    }
+
+    private final BlockingQueue<WriteRequest> queue;
+    private final List<Thread> writers = new ArrayList<>();
+    private final int groupCommitSize;
+    private final Durability durability;
+    private final OutputMode outputMode;
+    private final long maxSegmentBytes;
+    private final Set<Path> createdDirectories = ConcurrentHashMap.newKeySet();
+    private final Map<Path, SegmentStore> segmentStores = new ConcurrentHashMap<>();
+    private volatile boolean running = true;
+
+    private final AtomicLong writtenCount = new AtomicLong();
+    private final AtomicLong totalLatencyNanos = new AtomicLong();
+    private final AtomicLong maxLatencyNanos = new AtomicLong();
+
+    public ProcessedImageWriter(String name, int writerThreads, int queueCapacity, int groupCommitSize,
+                                Durability durability, OutputMode outputMode, long maxSegmentBytes) {
+        this.queue = new ArrayBlockingQueue<>(Math.max(1, queueCapacity));
+        this.groupCommitSize = Math.max(1, groupCommitSize);
+        this.durability = durability;
+        this.outputMode = outputMode;
+        this.maxSegmentBytes = maxSegmentBytes;
+
+        for (int i = 0; i < Math.max(1, writerThreads); i++) {
+            Thread writer = new Thread(this::writeLoop, name + "-writer-" + (i + 1));
+            writer.setDaemon(true);
+            writer.start();
+            writers.add(writer);
+        }
+    }
+
+    /**
+     * Cria o writer a partir das variáveis WRITER_THREADS, WRITE_QUEUE_CAPACITY,
+     * WRITE_GROUP_COMMIT, WRITE_DURABILITY (async|durable), OUTPUT_MODE (files|segments)
+     * e SEGMENT_MAX_MB.
+     */
+    public static ProcessedImageWriter fromEnv(String name) {
+        int writerThreads = Integer.parseInt(System.getenv().getOrDefault("WRITER_THREADS", "1"));
+        int queueCapacity = Integer.parseInt(System.getenv().getOrDefault("WRITE_QUEUE_CAPACITY", "256"));
+        int groupCommitSize = Integer.parseInt(System.getenv().getOrDefault("WRITE_GROUP_COMMIT", "32"));
+        Durability durability = Durability.valueOf(
+                System.getenv().getOrDefault("WRITE_DURABILITY", "async").toUpperCase());
+        OutputMode outputMode = OutputMode.valueOf(
+                System.getenv().getOrDefault("OUTPUT_MODE", "files").toUpperCase());
+        long maxSegmentBytes = Long.parseLong(System.getenv().getOrDefault("SEGMENT_MAX_MB", "256")) * 1024 * 1024;
+        return new ProcessedImageWriter(name, writerThreads, queueCapacity, groupCommitSize,
+                durability, outputMode, maxSegmentBytes);
+    }
+
+    /**
+     * Enfileira a gravação de uma imagem.
+     *
+     * @return Future completado depois da gravação (e do fsync do grupo, no modo durável);
+     *         já falho se o writer estiver encerrado
+     */
+    public CompletableFuture<Void> submit(Path outputDir, String fileName, byte[] data) {
+        WriteRequest request = new WriteRequest(outputDir, fileName, data);
+        if (!running) {
+            request.future.completeExceptionally(new IllegalStateException("Writer encerrado"));
+            return request.future;
+        }
+        try {
+            queue.put(request);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            request.future.completeExceptionally(e);
+            return request.future;
+        }
+        // Encerrado durante o put: se nenhuma thread pegou o pedido, ele não seria gravado
+        if (!running && queue.remove(request)) {
+            request.future.completeExceptionally(new IllegalStateException("Writer encerrado"));
+        }
+        return request.future;
+    }
+
+    public boolean isDurable() {
+        return durability == Durability.DURABLE;
+    }
+
+    public int getQueueDepth() {
+        return queue.size();
+    }
+
+    public long getWrittenCount() {
+        return writtenCount.get();
+    }
+
+    public double getAverageWriteLatencyMs() {
+        long count = writtenCount.get();
+        return count == 0 ? 0.0 : totalLatencyNanos.get() / (double) count / 1_000_000.0;
+    }
+
+    public double getMaxWriteLatencyMs() {
+        return maxLatencyNanos.get() / 1_000_000.0;
+    }
+
+    private void writeLoop() {
+        List<WriteRequest> group = new ArrayList<>(groupCommitSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                WriteRequest first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                group.add(first);
+                queue.drainTo(group, groupCommitSize - 1);
+
+                if (outputMode == OutputMode.SEGMENTS) {
+                    writeGroupToSegments(group);
+                } else {
+                    writeGroup(group);
+                }
+                group.clear();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+    }
+
+    private void writeGroup(List<WriteRequest> group) {
+        List<FileChannel> openChannels = new ArrayList<>(group.size());
+        List<WriteRequest> written = new ArrayList<>(group.size());
+        Set<Path> touchedDirectories = new HashSet<>();
+
+        // 1) grava todas as imagens do grupo
+        for (WriteRequest request : group) {
+            try {
+                ensureDirectory(request.outputDir);
+                // Nunca sobrescreve: um nome repetido falha em vez de perder a imagem anterior
+                FileChannel channel = FileChannel.open(request.outputDir.resolve(request.fileName),
+                        StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+                openChannels.add(channel);
+                ByteBuffer buffer = ByteBuffer.wrap(request.data);
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                written.add(request);
+                touchedDirectories.add(request.outputDir);
+            } catch (IOException e) {
+                request.future.completeExceptionally(e);
+            }
+        }
+
+        // 2) no modo durável, um único ciclo de fsync para o grupo inteiro
+        IOException syncError = null;
+        for (FileChannel channel : openChannels) {
+            try {
+                if (durability == Durability.DURABLE) {
+                    channel.force(false);
+                }
+            } catch (IOException e) {
+                syncError = e;
+            } finally {
+                try {
+                    channel.close();
+                } catch (IOException ignored) {
+                }
+            }
+        }
+        if (durability == Durability.DURABLE) {
+            for (Path directory : touchedDirectories) {
+                syncDirectory(directory);
+            }
+        }
+
+        // 3) completa os futures (libera os acks no modo durável)
+        completeGroup(written, syncError);
+    }
+
+    private void writeGroupToSegments(List<WriteRequest> group) {
+        List<WriteRequest> written = new ArrayList<>(group.size());
+        Set<SegmentStore> touchedStores = new HashSet<>();
+
+        // 1) anexa todas as imagens do grupo aos segmentos ativos
+        for (WriteRequest request : group) {
+            try {
+                SegmentStore store = segmentStore(request.outputDir);
+                store.append(request.fileName, request.data);
+                written.add(request);
+                touchedStores.add(store);
+            } catch (IOException e) {
+                request.future.completeExceptionally(e);
+            }
+        }
+
+        // 2) no modo durável, um fsync por segmento tocado
+        IOException syncError = null;
+        if (durability == Durability.DURABLE) {
+            for (SegmentStore store : touchedStores) {
+                try {
+                    store.sync();
+                } catch (IOException e) {
+                    syncError = e;
+                }
+            }
+        }
+
+        // 3) completa os futures
+        completeGroup(written, syncError);
+    }
+
+    private void completeGroup(List<WriteRequest> written, IOException syncError) {
+        long now = System.nanoTime();
+        for (WriteRequest request : written) {
+            if (syncError != null) {
+                request.future.completeExceptionally(syncError);
+                continue;
+            }
+            long latency = now - request.enqueuedAt;
+            writtenCount.incrementAndGet();
+            totalLatencyNanos.addAndGet(latency);
+            maxLatencyNanos.accumulateAndGet(latency, Math::max);
+            request.future.complete(null);
+        }
+    }
+
+    private SegmentStore segmentStore(Path outputDir) throws IOException {
+        SegmentStore store = segmentStores.get(outputDir);
+        if (store == null) {
+            synchronized (segmentStores) {
+                store = segmentStores.get(outputDir);
+                if (store == null) {
+                    // Prefixo por container: réplicas do consumidor compartilham o volume
+                    String prefix = System.getenv().getOrDefault("HOSTNAME", "consumidor");
+                    store = new SegmentStore(outputDir.resolve("segments"), prefix, maxSegmentBytes);
+                    segmentStores.put(outputDir, store);
+                }
+            }
+        }
+        return store;
+    }
+
+    private void ensureDirectory(Path directory) throws IOException {
+        // Evita checar o diretório a cada imagem
+        if (!createdDirectories.contains(directory)) {
+            Files.createDirectories(directory);
+            createdDirectories.add(directory);
+        }
+    }
+
+    private void syncDirectory(Path directory) {
+        // fsync do diretório garante que as novas entradas sobrevivam a uma queda (não suportado em todo SO)
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException ignored) {
+        }
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        for (Thread writer : writers) {
+            try {
+                writer.join(TimeUnit.SECONDS.toMillis(30));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        // Pedidos que as threads não chegaram a gravar
+        WriteRequest request;
+        while ((request = queue.poll()) != null) {
+            request.future.completeExceptionally(new IllegalStateException("Writer encerrado"));
+        }
+        for (SegmentStore store : segmentStores.values()) {
+            try {
+                store.close();
+            } catch (IOException e) {
+                System.err.println("Erro ao fechar segmento: " + e.getMessage());
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return String.format("fila %d, %d gravadas, latência média %.1f ms (máx %.1f ms)",
+                getQueueDepth(), getWrittenCount(), getAverageWriteLatencyMs(), getMaxWriteLatencyMs());
+    }
+
+    private static class WriteRequest {
+        final Path outputDir;
+        final String fileName;
+        final byte[] data;
+        final long enqueuedAt = System.nanoTime();
+        final CompletableFuture<Void> future = new CompletableFuture<>();
+
+        WriteRequest(Path outputDir, String fileName, byte[] data) {
+            this.outputDir = outputDir;
+            this.fileName = fileName;
+            this.data = data;
+        }
+    }
+}
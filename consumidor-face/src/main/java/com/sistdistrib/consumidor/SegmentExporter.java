@@ -0,0 +1,67 @@
+package com.sistdistrib.consumidor;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Exporta as imagens guardadas em segmentos ({@link SegmentStore}) para arquivos individuais.
+ *
+ * Uso: java -cp consumidor.jar com.sistdistrib.consumidor.SegmentExporter &lt;diretório dos segmentos&gt; &lt;diretório de saída&gt;
+ */
+public class SegmentExporter {
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Uso: SegmentExporter <diretório dos segmentos> <diretório de saída>");
+            System.exit(1);
+        }
+
+        Path segmentsDir = Paths.get(args[0]);
+        Path outputDir = Paths.get(args[1]);
+        Files.createDirectories(outputDir);
+
+        List<SegmentStore.Entry> entries = SegmentStore.listEntries(segmentsDir);
+        Map<String, MappedByteBuffer> mapped = new HashMap<>();
+        long exportedBytes = 0;
+
+        for (SegmentStore.Entry entry : entries) {
+            ByteBuffer data = SegmentStore.read(segmentsDir, entry, mapped);
+
+            try (FileChannel channel = createUnique(outputDir, entry)) {
+                while (data.hasRemaining()) {
+                    channel.write(data);
+                }
+            }
+            exportedBytes += entry.getLength();
+        }
+
+        System.out.println("📦 " + entries.size() + " imagens exportadas para " + outputDir + " (" + exportedBytes + " bytes)");
+    }
+
+    /**
+     * Cria o arquivo da entrada sem sobrescrever nada: nomes podem se repetir (mesmo
+     * milissegundo, ou uma exportação anterior no mesmo diretório), então tenta o nome original,
+     * depois com segmento e offset, depois com um contador.
+     */
+    private static FileChannel createUnique(Path outputDir, SegmentStore.Entry entry) throws IOException {
+        String prefix = entry.getSegment().replace(".pack", "") + "_" + entry.getOffset() + "_";
+        String name = entry.getName();
+        for (int attempt = 0; ; attempt++) {
+            try {
+                return FileChannel.open(outputDir.resolve(name), StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+            } catch (FileAlreadyExistsException e) {
+                name = attempt == 0 ? prefix + entry.getName() : prefix + attempt + "_" + entry.getName();
+            }
+        }
+    }
+}
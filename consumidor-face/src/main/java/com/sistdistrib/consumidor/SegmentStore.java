@@ -0,0 +1,231 @@
+package com.sistdistrib.consumidor;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Armazenamento das imagens processadas em arquivos de segmento append-only.
+ *
+ * Em vez de um arquivo por imagem, as imagens são anexadas a um segmento grande
+ * ({@code <prefixo>-000001.pack}) e cada uma ganha uma entrada num índice compacto
+ * ({@code <prefixo>-000001.idx}) com offset, tamanho, instante e nome. Ao passar de
+ * {@code maxSegmentBytes} o segmento é fechado e outro é aberto. A leitura usa
+ * mapeamento em memória (mmap) dos segmentos.
+ *
+ * Formato do registro no .pack: int tamanho, short tamanho do nome, nome UTF-8, bytes.
+ * Formato da entrada no .idx: long offset dos bytes, int tamanho, long instante,
+ * short tamanho do nome, nome UTF-8.
+ */
+public class SegmentStore implements AutoCloseable {
+
+    private static final Pattern SEGMENT_NAME = Pattern.compile("(.+)-(\\d{6})\\.pack");
+
+    private final Path directory;
+    private final String prefix;
+    private final long maxSegmentBytes;
+
+    private int segmentId;
+    private FileChannel packChannel;
+    private FileChannel indexChannel;
+    private long packPosition;
+
+    private final Map<String, MappedByteBuffer> mappedSegments = new HashMap<>();
+
+    /**
+     * Localização de uma imagem dentro de um segmento.
+     */
+    public static class Entry {
+        private final String segment;
+        private final long offset;
+        private final int length;
+        private final long timestamp;
+        private final String name;
+
+        public Entry(String segment, long offset, int length, long timestamp, String name) {
+            this.segment = segment;
+            this.offset = offset;
+            this.length = length;
+            this.timestamp = timestamp;
+            this.name = name;
+        }
+
+        public String getSegment() { return segment; }
+        public long getOffset() { return offset; }
+        public int getLength() { return length; }
+        public long getTimestamp() { return timestamp; }
+        public String getName() { return name; }
+    }
+
+    /**
+     * @param directory Diretório dos segmentos
+     * @param prefix Prefixo dos arquivos (único por processo, ex.: hostname do container)
+     * @param maxSegmentBytes Tamanho a partir do qual um novo segmento é aberto
+     */
+    public SegmentStore(Path directory, String prefix, long maxSegmentBytes) throws IOException {
+        this.directory = directory;
+        this.prefix = prefix;
+        // Segmentos são mapeados inteiros: limite de 2 GB por mmap
+        this.maxSegmentBytes = Math.min(maxSegmentBytes, Integer.MAX_VALUE);
+        Files.createDirectories(directory);
+
+        // Sempre começa um segmento novo: segmentos anteriores ficam somente leitura
+        this.segmentId = lastSegmentId(directory, prefix) + 1;
+        openSegment();
+    }
+
+    /**
+     * Anexa uma imagem ao segmento ativo (sem fsync; ver {@link #sync()}).
+     */
+    public synchronized Entry append(String name, byte[] data) throws IOException {
+        byte[] nameBytes = name.getBytes(StandardCharsets.UTF_8);
+        if (packPosition > 0 && packPosition + data.length > maxSegmentBytes) {
+            rollSegment();
+        }
+
+        ByteBuffer header = ByteBuffer.allocate(4 + 2 + nameBytes.length);
+        header.putInt(data.length).putShort((short) nameBytes.length).put(nameBytes).flip();
+        long dataOffset = packPosition + header.remaining();
+        writeFully(packChannel, new ByteBuffer[] {header, ByteBuffer.wrap(data)});
+        packPosition = dataOffset + data.length;
+
+        long timestamp = System.currentTimeMillis();
+        ByteBuffer indexEntry = ByteBuffer.allocate(8 + 4 + 8 + 2 + nameBytes.length);
+        indexEntry.putLong(dataOffset).putInt(data.length).putLong(timestamp)
+                .putShort((short) nameBytes.length).put(nameBytes).flip();
+        writeFully(indexChannel, new ByteBuffer[] {indexEntry});
+
+        return new Entry(segmentFileName(segmentId), dataOffset, data.length, timestamp, name);
+    }
+
+    /**
+     * fsync do segmento e do índice ativos; usado uma vez por grupo de gravações.
+     */
+    public synchronized void sync() throws IOException {
+        packChannel.force(false);
+        indexChannel.force(false);
+    }
+
+    /**
+     * Lê uma imagem via mmap. O buffer retornado é somente leitura e compartilha a memória mapeada.
+     */
+    public synchronized ByteBuffer read(Entry entry) throws IOException {
+        return read(directory, entry, mappedSegments);
+    }
+
+    /**
+     * Lista as entradas de todos os segmentos de um diretório, em ordem.
+     */
+    public static List<Entry> listEntries(Path directory) throws IOException {
+        List<Path> indexes = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*.idx")) {
+            stream.forEach(indexes::add);
+        }
+        indexes.sort(null);
+
+        List<Entry> entries = new ArrayList<>();
+        for (Path index : indexes) {
+            String segment = index.getFileName().toString().replace(".idx", ".pack");
+            ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(index));
+            while (buffer.remaining() >= 8 + 4 + 8 + 2) {
+                long offset = buffer.getLong();
+                int length = buffer.getInt();
+                long timestamp = buffer.getLong();
+                int nameLength = buffer.getShort() & 0xFFFF;
+                if (buffer.remaining() < nameLength) {
+                    break; // entrada incompleta (queda durante a escrita)
+                }
+                byte[] name = new byte[nameLength];
+                buffer.get(name);
+                entries.add(new Entry(segment, offset, length, timestamp, new String(name, StandardCharsets.UTF_8)));
+            }
+        }
+        return entries;
+    }
+
+    /**
+     * Lê uma imagem via mmap, reaproveitando os segmentos já mapeados em {@code mapped}.
+     */
+    public static ByteBuffer read(Path directory, Entry entry, Map<String, MappedByteBuffer> mapped) throws IOException {
+        MappedByteBuffer segment = mapped.get(entry.getSegment());
+        if (segment == null || segment.capacity() < entry.getOffset() + entry.getLength()) {
+            // Segmento ativo cresce: remapeia quando o trecho pedido ainda não está mapeado
+            try (FileChannel channel = FileChannel.open(directory.resolve(entry.getSegment()), StandardOpenOption.READ)) {
+                segment = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            }
+            mapped.put(entry.getSegment(), segment);
+        }
+        return segment.slice((int) entry.getOffset(), entry.getLength()).asReadOnlyBuffer();
+    }
+
+    private void rollSegment() throws IOException {
+        sync();
+        closeChannels();
+        segmentId++;
+        openSegment();
+    }
+
+    private void openSegment() throws IOException {
+        packChannel = FileChannel.open(directory.resolve(segmentFileName(segmentId)),
+                StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        indexChannel = FileChannel.open(directory.resolve(segmentFileName(segmentId).replace(".pack", ".idx")),
+                StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        packPosition = 0;
+
+        // fsync do diretório para que os novos arquivos sobrevivam a uma queda
+        try (FileChannel dirChannel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            dirChannel.force(true);
+        } catch (IOException ignored) {
+        }
+    }
+
+    private String segmentFileName(int id) {
+        return String.format("%s-%06d.pack", prefix, id);
+    }
+
+    private static int lastSegmentId(Path directory, String prefix) throws IOException {
+        int last = 0;
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, prefix + "-*.pack")) {
+            for (Path path : stream) {
+                Matcher matcher = SEGMENT_NAME.matcher(path.getFileName().toString());
+                if (matcher.matches() && matcher.group(1).equals(prefix)) {
+                    last = Math.max(last, Integer.parseInt(matcher.group(2)));
+                }
+            }
+        }
+        return last;
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer[] buffers) throws IOException {
+        long remaining = 0;
+        for (ByteBuffer buffer : buffers) {
+            remaining += buffer.remaining();
+        }
+        while (remaining > 0) {
+            remaining -= channel.write(buffers);
+        }
+    }
+
+    private void closeChannels() throws IOException {
+        packChannel.close();
+        indexChannel.close();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        sync();
+        closeChannels();
+    }
+}
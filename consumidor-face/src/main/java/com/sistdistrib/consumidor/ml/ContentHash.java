@@ -0,0 +1,179 @@
+package com.sistdistrib.consumidor.ml;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+/**
+ * Hash rápido de 128 bits do conteúdo de uma imagem, usado como chave de cache.
+ *
+ * Lê 8 bytes por vez e mistura em duas lanes independentes (estilo xxHash/wyhash),
+ * o que deixa colisões entre imagens diferentes praticamente impossíveis sem o
+ * custo de um hash criptográfico. {@link #ofBase64} dá o mesmo hash direto do texto
+ * Base64, para a imagem ter uma só chave venha ela em bytes ou em Base64.
+ */
+public final class ContentHash {
+
+    private static final VarHandle LONG_VIEW = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+
+    private static final long PRIME_1 = 0x9E3779B185EBCA87L;
+    private static final long PRIME_2 = 0xC2B2AE3D27D4EB4FL;
+    private static final long PRIME_3 = 0x165667B19E3779F9L;
+
+    // Valor de cada caractere do alfabeto Base64 padrão; -1 fora dele
+    private static final int[] BASE64_VALUES = new int[256];
+
+    static {
+        Arrays.fill(BASE64_VALUES, -1);
+        String alphabet = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/";
+        for (int i = 0; i < alphabet.length(); i++) {
+            BASE64_VALUES[alphabet.charAt(i)] = i;
+        }
+    }
+
+    private final long high;
+    private final long low;
+    private final int length;
+
+    private ContentHash(long high, long low, int length) {
+        this.high = high;
+        this.low = low;
+        this.length = length;
+    }
+
+    public static ContentHash of(byte[] data) {
+        return of(data, 0, data.length);
+    }
+
+    public static ContentHash of(byte[] data, int offset, int length) {
+        long h1 = PRIME_1 ^ length;
+        long h2 = PRIME_2 + length;
+
+        int i = offset;
+        int end = offset + length;
+        for (; i + 8 <= end; i += 8) {
+            long word = (long) LONG_VIEW.get(data, i);
+            h1 = Long.rotateLeft(h1 ^ (word * PRIME_2), 31) * PRIME_1;
+            h2 = Long.rotateLeft(h2 + (word * PRIME_3), 27) * PRIME_2;
+        }
+        long tail = 0;
+        for (int shift = 0; i < end; i++, shift += 8) {
+            tail |= (data[i] & 0xFFL) << shift;
+        }
+        h1 = Long.rotateLeft(h1 ^ (tail * PRIME_2), 31) * PRIME_1;
+        h2 = Long.rotateLeft(h2 + (tail * PRIME_3), 27) * PRIME_2;
+
+        return new ContentHash(avalanche(h1 ^ h2), avalanche(h2 + h1), length);
+    }
+
+    /**
+     * Hash dos bytes decodificados de {@code text[offset, offset + length)} (Base64 padrão,
+     * com padding), igual a {@code of(Base64.getDecoder().decode(...))}, sem decodificar para
+     * outro array.
+     *
+     * @throws IllegalArgumentException Se o texto não for Base64 padrão
+     */
+    public static ContentHash ofBase64(byte[] text, int offset, int length) {
+        if (length % 4 != 0) {
+            throw new IllegalArgumentException("Tamanho de Base64 inválido: " + length);
+        }
+        int padding = 0;
+        if (length > 0 && text[offset + length - 1] == '=') {
+            padding++;
+            if (text[offset + length - 2] == '=') {
+                padding++;
+            }
+        }
+        int decodedLength = length / 4 * 3 - padding;
+
+        long h1 = PRIME_1 ^ decodedLength;
+        long h2 = PRIME_2 + decodedLength;
+
+        int significant = length - padding;
+        int i = 0;
+        // 32 caracteres viram 24 bytes: três palavras inteiras, sem montar byte a byte
+        for (; i + 32 <= significant; i += 32) {
+            int at = offset + i;
+            long g0 = group(text, at), g1 = group(text, at + 4), g2 = group(text, at + 8), g3 = group(text, at + 12);
+            long g4 = group(text, at + 16), g5 = group(text, at + 20), g6 = group(text, at + 24), g7 = group(text, at + 28);
+            if ((g0 | g1 | g2 | g3 | g4 | g5 | g6 | g7) < 0) {
+                throw new IllegalArgumentException("Caractere Base64 inválido perto da posição " + i);
+            }
+            long w0 = Long.reverseBytes(g0 << 40 | g1 << 16 | g2 >>> 8);
+            long w1 = Long.reverseBytes((g2 & 0xFF) << 56 | g3 << 32 | g4 << 8 | g5 >>> 16);
+            long w2 = Long.reverseBytes((g5 & 0xFFFF) << 48 | g6 << 24 | g7);
+            h1 = Long.rotateLeft(h1 ^ (w0 * PRIME_2), 31) * PRIME_1;
+            h2 = Long.rotateLeft(h2 + (w0 * PRIME_3), 27) * PRIME_2;
+            h1 = Long.rotateLeft(h1 ^ (w1 * PRIME_2), 31) * PRIME_1;
+            h2 = Long.rotateLeft(h2 + (w1 * PRIME_3), 27) * PRIME_2;
+            h1 = Long.rotateLeft(h1 ^ (w2 * PRIME_2), 31) * PRIME_1;
+            h2 = Long.rotateLeft(h2 + (w2 * PRIME_3), 27) * PRIME_2;
+        }
+
+        // Resto (e o grupo com padding) byte a byte, na mesma ordem de of()
+        long word = 0;
+        int filled = 0;
+        int remaining = decodedLength - i / 4 * 3;
+        for (; i < length; i += 4) {
+            int group = 0;
+            for (int j = i; j < i + 4; j++) {
+                int value = j < significant ? BASE64_VALUES[text[offset + j] & 0xFF] : 0;
+                if (value < 0) {
+                    throw new IllegalArgumentException("Caractere Base64 inválido na posição " + j);
+                }
+                group = group << 6 | value;
+            }
+            for (int shift = 16; shift >= 0 && remaining > 0; shift -= 8, remaining--) {
+                word |= ((group >>> shift) & 0xFFL) << (filled << 3);
+                if (++filled == 8) {
+                    h1 = Long.rotateLeft(h1 ^ (word * PRIME_2), 31) * PRIME_1;
+                    h2 = Long.rotateLeft(h2 + (word * PRIME_3), 27) * PRIME_2;
+                    word = 0;
+                    filled = 0;
+                }
+            }
+        }
+        h1 = Long.rotateLeft(h1 ^ (word * PRIME_2), 31) * PRIME_1;
+        h2 = Long.rotateLeft(h2 + (word * PRIME_3), 27) * PRIME_2;
+
+        return new ContentHash(avalanche(h1 ^ h2), avalanche(h2 + h1), decodedLength);
+    }
+
+    // 24 bits de um grupo de 4 caracteres; negativo se algum for inválido
+    private static int group(byte[] text, int at) {
+        return BASE64_VALUES[text[at] & 0xFF] << 18 | BASE64_VALUES[text[at + 1] & 0xFF] << 12
+                | BASE64_VALUES[text[at + 2] & 0xFF] << 6 | BASE64_VALUES[text[at + 3] & 0xFF];
+    }
+
+    private static long avalanche(long h) {
+        h ^= h >>> 33;
+        h *= PRIME_2;
+        h ^= h >>> 29;
+        h *= PRIME_3;
+        h ^= h >>> 32;
+        return h;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (this == other) {
+            return true;
+        }
+        if (!(other instanceof ContentHash)) {
+            return false;
+        }
+        ContentHash that = (ContentHash) other;
+        return high == that.high && low == that.low && length == that.length;
+    }
+
+    @Override
+    public int hashCode() {
+        return (int) (low ^ (low >>> 32));
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%016x%016x", high, low);
+    }
+}
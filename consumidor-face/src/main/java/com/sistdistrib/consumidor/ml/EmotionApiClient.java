@@ -7,7 +7,12 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Base64;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -17,20 +22,41 @@ public class EmotionApiClient {
 
     private static final Logger logger = LoggerFactory.getLogger(EmotionApiClient.class);
 
+    // Respostas do servidor que não são detecções do modelo: podem mudar numa nova tentativa
+    private static final Set<String> NON_DETECTION_METHODS = Set.of("error", "model_not_loaded", "no_detection");
+
     private final OkHttpClient client;
     private final ObjectMapper objectMapper;
     private final String apiUrl;
+    private final InferenceCache<EmotionResult> cache;
+    private final SingleFlight<ContentHash, EmotionResult> singleFlight;
 
     public EmotionApiClient() {
         this.apiUrl = System.getenv().getOrDefault("EMOTION_API_URL", "http://ai-face-service:5000");
         this.objectMapper = new ObjectMapper();
+
+        // Limites do dispatcher valem apenas para chamadas assíncronas (enqueue)
+        Dispatcher dispatcher = new Dispatcher();
+        dispatcher.setMaxRequests(Integer.parseInt(System.getenv().getOrDefault("HTTP_MAX_REQUESTS", "64")));
+        dispatcher.setMaxRequestsPerHost(Integer.parseInt(System.getenv().getOrDefault("HTTP_MAX_REQUESTS_PER_HOST", "5")));
+
         this.client = new OkHttpClient.Builder()
+                .dispatcher(dispatcher)
                 .connectTimeout(30, TimeUnit.SECONDS)
                 .readTimeout(60, TimeUnit.SECONDS)
                 .writeTimeout(60, TimeUnit.SECONDS)
                 .build();
 
-        logger.info("EmotionApiClient inicializado - URL: {}", apiUrl);
+        // Cache de resultados por hash do conteúdo (INFERENCE_CACHE_MB=0 desativa)
+        long cacheBytes = Long.parseLong(System.getenv().getOrDefault("INFERENCE_CACHE_MB", "0")) * 1024 * 1024;
+        this.cache = cacheBytes > 0 ? new InferenceCache<>(cacheBytes, EmotionApiClient::weigh) : null;
+
+        // Chamadas simultâneas com a mesma imagem compartilham uma única requisição
+        boolean coalescing = Boolean.parseBoolean(System.getenv().getOrDefault("REQUEST_COALESCING", "false"));
+        this.singleFlight = coalescing ? new SingleFlight<>() : null;
+
+        logger.info("EmotionApiClient inicializado - URL: {} (async: {} total / {} por host)",
+                apiUrl, dispatcher.getMaxRequests(), dispatcher.getMaxRequestsPerHost());
     }
 
     /**
@@ -47,6 +73,9 @@ public class EmotionApiClient {
                 if (response.isSuccessful() && response.body() != null) {
                     JsonNode healthData = objectMapper.readTree(response.body().string());
                     boolean healthy = healthData.get("status").asText().equals("healthy");
+                    if (cache != null && healthData.has("model_version")) {
+                        cache.onModelVersion(healthData.get("model_version").asText());
+                    }
                     logger.info("Health check: {}", healthy ? "✅ API OK" : "⚠️ API com problemas");
                     return healthy;
                 }
@@ -65,53 +94,337 @@ public class EmotionApiClient {
      * @return Resultado da predição
      */
     public EmotionResult predictEmotion(byte[] imageData, String filename) {
-        try {
-            // Codifica imagem em base64
-            String base64Image = Base64.getEncoder().encodeToString(imageData);
+        return predictEmotion(contentKey(imageData, 0, imageData.length),
+                PredictRequestBody.ofImage(imageData, filename), filename);
+    }
 
-            // Cria payload JSON
-            String jsonPayload = objectMapper.writeValueAsString(new PredictionRequest(base64Image, filename));
+    /**
+     * Prediz emoção de uma imagem que já está em Base64 dentro de {@code buffer}
+     * (o campo "data" no corpo da mensagem), sem decodificar nem copiar a imagem.
+     * A chave de cache é o hash da imagem decodificada, a mesma dos outros caminhos.
+     *
+     * @param buffer Buffer com a imagem em Base64
+     * @param offset Início da imagem no buffer
+     * @param length Tamanho da imagem em Base64
+     * @param filename Nome do arquivo
+     * @return Resultado da predição
+     */
+    public EmotionResult predictEmotionBase64(byte[] buffer, int offset, int length, String filename) {
+        return predictEmotion(base64ContentKey(buffer, offset, length),
+                PredictRequestBody.ofBase64(buffer, offset, length, filename), filename);
+    }
 
-            // Cria request
-            RequestBody body = RequestBody.create(jsonPayload, MediaType.get("application/json; charset=utf-8"));
-            Request request = new Request.Builder()
-                    .url(apiUrl + "/predict")
-                    .post(body)
-                    .build();
+    private EmotionResult predictEmotion(ContentHash key, RequestBody body, String filename) {
+        EmotionResult cached = lookupCached(key, filename);
+        if (cached != null) {
+            return cached;
+        }
+
+        if (singleFlight == null || key == null) {
+            EmotionResult result = requestEmotion(body, filename);
+            cacheResult(key, result);
+            return result;
+        }
+
+        EmotionResult result = singleFlight.execute(key, () -> {
+            EmotionResult fetched = requestEmotion(body, filename);
+            cacheResult(key, fetched);
+            return fetched;
+        });
+        return forFilename(result, filename);
+    }
+
+    private EmotionResult requestEmotion(RequestBody body, String filename) {
+        try {
+            Request request = buildPredictRequest(body);
 
             // Executa request
             try (Response response = client.newCall(request).execute()) {
-                if (response.isSuccessful() && response.body() != null) {
-                    String responseBody = response.body().string();
-                    JsonNode result = objectMapper.readTree(responseBody);
-
-                    String emotion = result.get("emotion").asText();
-                    double confidence = result.get("confidence").asDouble();
-                    String method = result.get("method").asText();
-
-                    // Extrair imagem anotada se disponível
-                    byte[] annotatedImageBytes = null;
-                    if (result.has("annotated_image")) {
-                        String annotatedImageBase64 = result.get("annotated_image").asText();
-                        annotatedImageBytes = Base64.getDecoder().decode(annotatedImageBase64);
-                        logger.debug("Imagem anotada recebida para {}", filename);
-                    }
+                return parseResponse(response, filename);
+            }
 
-                    logger.debug("Predição para {}: {} ({:.2f}) via {}", filename, emotion, confidence, method);
+        } catch (Exception e) {
+            logger.error("Erro ao chamar API de emoção para {}: {}", filename, e.getMessage());
+            return new EmotionResult(filename, "unknown", "ERRO", 0.0);
+        }
+    }
 
-                    return new EmotionResult(filename, emotion, "IA_REAL", confidence, annotatedImageBytes);
-                } else {
-                    logger.error("Erro na API: {} - {}", response.code(), response.message());
-                    return new EmotionResult(filename, "unknown", "ERRO", 0.0);
-                }
-            }
+    /**
+     * Versão assíncrona de {@link #predictEmotion} baseada em {@code enqueue} do OkHttp.
+     * Nenhuma thread fica bloqueada esperando a resposta; a concorrência é limitada
+     * pelo dispatcher (HTTP_MAX_REQUESTS / HTTP_MAX_REQUESTS_PER_HOST).
+     *
+     * @param imageData Dados binários da imagem
+     * @param filename Nome do arquivo
+     * @return Future completado com o resultado (categoria "ERRO" em caso de falha)
+     */
+    public CompletableFuture<EmotionResult> predictEmotionAsync(byte[] imageData, String filename) {
+        ContentHash key = contentKey(imageData, 0, imageData.length);
+        EmotionResult cached = lookupCached(key, filename);
+        if (cached != null) {
+            return CompletableFuture.completedFuture(cached);
+        }
+
+        if (singleFlight == null) {
+            CompletableFuture<EmotionResult> future = requestEmotionAsync(imageData, filename);
+            future.thenAccept(result -> cacheResult(key, result));
+            return future;
+        }
+
+        // Quem chega depois espera o future da primeira chamada com a mesma imagem
+        return singleFlight.executeAsync(key, () -> {
+            CompletableFuture<EmotionResult> future = requestEmotionAsync(imageData, filename);
+            future.thenAccept(result -> cacheResult(key, result));
+            return future;
+        }).thenApply(result -> forFilename(result, filename));
+    }
 
+    private CompletableFuture<EmotionResult> requestEmotionAsync(byte[] imageData, String filename) {
+        CompletableFuture<EmotionResult> future = new CompletableFuture<>();
+        Call call;
+        try {
+            call = client.newCall(buildPredictRequest(PredictRequestBody.ofImage(imageData, filename)));
         } catch (Exception e) {
             logger.error("Erro ao chamar API de emoção para {}: {}", filename, e.getMessage());
+            future.complete(new EmotionResult(filename, "unknown", "ERRO", 0.0));
+            return future;
+        }
+
+        call.enqueue(new Callback() {
+            @Override
+            public void onFailure(Call call, IOException e) {
+                logger.error("Erro ao chamar API de emoção para {}: {}", filename, e.getMessage());
+                future.complete(new EmotionResult(filename, "unknown", "ERRO", 0.0));
+            }
+
+            @Override
+            public void onResponse(Call call, Response response) {
+                try (response) {
+                    future.complete(parseResponse(response, filename));
+                } catch (Exception e) {
+                    logger.error("Erro ao chamar API de emoção para {}: {}", filename, e.getMessage());
+                    future.complete(new EmotionResult(filename, "unknown", "ERRO", 0.0));
+                }
+            }
+        });
+
+        // Cancelar o future cancela a chamada HTTP
+        future.whenComplete((result, error) -> {
+            if (future.isCancelled()) {
+                call.cancel();
+            }
+        });
+        return future;
+    }
+
+    private Request buildPredictRequest(RequestBody body) {
+        // O JSON é escrito direto no socket (ver PredictRequestBody)
+        return new Request.Builder()
+                .url(apiUrl + "/predict")
+                .post(body)
+                .build();
+    }
+
+    private EmotionResult parseResponse(Response response, String filename) throws IOException {
+        if (response.isSuccessful() && response.body() != null) {
+            String responseBody = response.body().string();
+            return parseResult(objectMapper.readTree(responseBody), filename);
+        } else {
+            logger.error("Erro na API: {} - {}", response.code(), response.message());
             return new EmotionResult(filename, "unknown", "ERRO", 0.0);
         }
     }
 
+    private EmotionResult parseResult(JsonNode result, String filename) {
+        if (cache != null && result.has("model_version")) {
+            cache.onModelVersion(result.get("model_version").asText());
+        }
+
+        String emotion = result.get("emotion").asText();
+        double confidence = result.get("confidence").asDouble();
+        String method = result.get("method").asText();
+
+        // Extrair imagem anotada se disponível
+        byte[] annotatedImageBytes = null;
+        if (result.has("annotated_image")) {
+            String annotatedImageBase64 = result.get("annotated_image").asText();
+            annotatedImageBytes = Base64.getDecoder().decode(annotatedImageBase64);
+            logger.debug("Imagem anotada recebida para {}", filename);
+        }
+
+        logger.debug("Predição para {}: {} ({:.2f}) via {}", filename, emotion, confidence, method);
+
+        return new EmotionResult(filename, emotion, "IA_REAL", confidence, annotatedImageBytes,
+                !NON_DETECTION_METHODS.contains(method));
+    }
+
+    /**
+     * Prediz um lote de imagens com uma única chamada a {@code /predict_batch}.
+     * Os resultados voltam na mesma ordem da entrada; em caso de falha todo o
+     * lote é marcado como "ERRO".
+     *
+     * @param images Dados binários das imagens
+     * @param filenames Nomes dos arquivos (mesma ordem de {@code images})
+     * @return Future completado com um resultado por imagem
+     */
+    public CompletableFuture<List<EmotionResult>> predictEmotionBatchAsync(List<byte[]> images, List<String> filenames) {
+        if (cache == null) {
+            return requestEmotionBatchAsync(images, filenames);
+        }
+
+        // Só as imagens fora do cache vão para a API
+        EmotionResult[] results = new EmotionResult[images.size()];
+        ContentHash[] keys = new ContentHash[images.size()];
+        List<Integer> missing = new ArrayList<>();
+        for (int i = 0; i < images.size(); i++) {
+            keys[i] = ContentHash.of(images.get(i));
+            results[i] = lookupCached(keys[i], filenames.get(i));
+            if (results[i] == null) {
+                missing.add(i);
+            }
+        }
+        if (missing.isEmpty()) {
+            return CompletableFuture.completedFuture(Arrays.asList(results));
+        }
+
+        List<byte[]> missingImages = new ArrayList<>(missing.size());
+        List<String> missingFilenames = new ArrayList<>(missing.size());
+        for (int index : missing) {
+            missingImages.add(images.get(index));
+            missingFilenames.add(filenames.get(index));
+        }
+
+        return requestEmotionBatchAsync(missingImages, missingFilenames).thenApply(fetched -> {
+            for (int j = 0; j < missing.size(); j++) {
+                int index = missing.get(j);
+                results[index] = fetched.get(j);
+                cacheResult(keys[index], fetched.get(j));
+            }
+            return Arrays.asList(results);
+        });
+    }
+
+    private CompletableFuture<List<EmotionResult>> requestEmotionBatchAsync(List<byte[]> images, List<String> filenames) {
+        CompletableFuture<List<EmotionResult>> future = new CompletableFuture<>();
+        Call call;
+        try {
+            List<PredictionRequest> items = new ArrayList<>(images.size());
+            for (int i = 0; i < images.size(); i++) {
+                items.add(new PredictionRequest(Base64.getEncoder().encodeToString(images.get(i)), filenames.get(i)));
+            }
+            String jsonPayload = objectMapper.writeValueAsString(new BatchPredictionRequest(items));
+
+            RequestBody body = RequestBody.create(jsonPayload, MediaType.get("application/json; charset=utf-8"));
+            call = client.newCall(new Request.Builder()
+                    .url(apiUrl + "/predict_batch")
+                    .post(body)
+                    .build());
+        } catch (Exception e) {
+            logger.error("Erro ao chamar API de emoção em lote ({} imagens): {}", filenames.size(), e.getMessage());
+            future.complete(errorResults(filenames));
+            return future;
+        }
+
+        call.enqueue(new Callback() {
+            @Override
+            public void onFailure(Call call, IOException e) {
+                logger.error("Erro ao chamar API de emoção em lote ({} imagens): {}", filenames.size(), e.getMessage());
+                future.complete(errorResults(filenames));
+            }
+
+            @Override
+            public void onResponse(Call call, Response response) {
+                try (response) {
+                    future.complete(parseBatchResponse(response, filenames));
+                } catch (Exception e) {
+                    logger.error("Erro ao chamar API de emoção em lote ({} imagens): {}", filenames.size(), e.getMessage());
+                    future.complete(errorResults(filenames));
+                }
+            }
+        });
+        return future;
+    }
+
+    private List<EmotionResult> parseBatchResponse(Response response, List<String> filenames) throws IOException {
+        if (response.isSuccessful() && response.body() != null) {
+            JsonNode results = objectMapper.readTree(response.body().string()).get("results");
+            if (results == null || results.size() != filenames.size()) {
+                logger.error("Resposta de lote inválida: esperados {} resultados", filenames.size());
+                return errorResults(filenames);
+            }
+
+            List<EmotionResult> parsed = new ArrayList<>(filenames.size());
+            for (int i = 0; i < filenames.size(); i++) {
+                parsed.add(parseResult(results.get(i), filenames.get(i)));
+            }
+            return parsed;
+        } else {
+            logger.error("Erro na API (lote): {} - {}", response.code(), response.message());
+            return errorResults(filenames);
+        }
+    }
+
+    private List<EmotionResult> errorResults(List<String> filenames) {
+        List<EmotionResult> results = new ArrayList<>(filenames.size());
+        for (String filename : filenames) {
+            results.add(new EmotionResult(filename, "unknown", "ERRO", 0.0));
+        }
+        return results;
+    }
+
+    private ContentHash contentKey(byte[] buffer, int offset, int length) {
+        return cache != null || singleFlight != null ? ContentHash.of(buffer, offset, length) : null;
+    }
+
+    private ContentHash base64ContentKey(byte[] buffer, int offset, int length) {
+        if (cache == null && singleFlight == null) {
+            return null;
+        }
+        try {
+            return ContentHash.ofBase64(buffer, offset, length);
+        } catch (IllegalArgumentException e) {
+            return null; // a API recusa a imagem; sem chave, não entra no cache nem é agrupada
+        }
+    }
+
+    private EmotionResult forFilename(EmotionResult result, String filename) {
+        return filename.equals(result.getFilename()) ? result : result.withFilename(filename);
+    }
+
+    private EmotionResult lookupCached(ContentHash key, String filename) {
+        if (key == null || cache == null) {
+            return null;
+        }
+        EmotionResult cached = cache.get(key);
+        return cached != null ? cached.withFilename(filename) : null;
+    }
+
+    private void cacheResult(ContentHash key, EmotionResult result) {
+        // Só detecções reais do modelo entram no cache; erros e falhas do servidor não
+        if (key != null && cache != null && result.isCacheable()) {
+            cache.put(key, result);
+        }
+    }
+
+    private static long weigh(EmotionResult result) {
+        // Tamanho aproximado: imagem anotada + objeto e strings
+        return 256 + (result.hasAnnotatedImage() ? result.getAnnotatedImage().length : 0);
+    }
+
+    /**
+     * Cache de resultados (null se desativado)
+     */
+    public InferenceCache<EmotionResult> getCache() {
+        return cache;
+    }
+
+    /**
+     * Agrupamento de chamadas simultâneas (null se desativado)
+     */
+    public SingleFlight<ContentHash, EmotionResult> getSingleFlight() {
+        return singleFlight;
+    }
+
     /**
      * Classe para request de predição
      */
@@ -125,6 +438,17 @@ public class EmotionApiClient {
         }
     }
 
+    /**
+     * Classe para request de predição em lote
+     */
+    private static class BatchPredictionRequest {
+        public final List<PredictionRequest> images;
+
+        public BatchPredictionRequest(List<PredictionRequest> images) {
+            this.images = images;
+        }
+    }
+
     /**
      * Classe para resultado de emoção
      */
@@ -135,18 +459,28 @@ public class EmotionApiClient {
         private final double confidence;
         private final long processedAt;
         private final byte[] annotatedImage;
+        private final boolean cacheable;
 
         public EmotionResult(String filename, String emotion, String category, double confidence) {
             this(filename, emotion, category, confidence, null);
         }
 
         public EmotionResult(String filename, String emotion, String category, double confidence, byte[] annotatedImage) {
+            this(filename, emotion, category, confidence, annotatedImage, !"ERRO".equals(category));
+        }
+
+        /**
+         * @param cacheable Se o resultado pode ir para o cache (só detecções reais do modelo)
+         */
+        public EmotionResult(String filename, String emotion, String category, double confidence, byte[] annotatedImage,
+                     boolean cacheable) {
             this.filename = filename;
             this.emotion = emotion;
             this.category = category;
             this.confidence = confidence;
             this.processedAt = System.currentTimeMillis();
             this.annotatedImage = annotatedImage;
+            this.cacheable = cacheable;
         }
 
         public String getFilename() { return filename; }
@@ -156,6 +490,14 @@ public class EmotionApiClient {
         public long getProcessedAt() { return processedAt; }
         public byte[] getAnnotatedImage() { return annotatedImage; }
         public boolean hasAnnotatedImage() { return annotatedImage != null; }
+        public boolean isCacheable() { return cacheable; }
+
+        /**
+         * Cópia do resultado para outro arquivo com o mesmo conteúdo (usado pelo cache)
+         */
+        public EmotionResult withFilename(String filename) {
+            return new EmotionResult(filename, emotion, category, confidence, annotatedImage, cacheable);
+        }
 
         @Override
         public String toString() {
@@ -0,0 +1,104 @@
+package com.sistdistrib.consumidor.ml;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.ToLongFunction;
+
+/**
+ * Cache LRU de resultados de inferência, indexado pelo hash do conteúdo da imagem.
+ *
+ * O limite é em bytes (os resultados podem carregar a imagem anotada), calculado
+ * por um {@code weigher}. Quando a API informa uma versão de modelo diferente da
+ * última vista, o cache inteiro é invalidado.
+ */
+public class InferenceCache<V> {
+
+    private static final Logger logger = LoggerFactory.getLogger(InferenceCache.class);
+
+    private final long maxBytes;
+    private final ToLongFunction<V> weigher;
+    private final LinkedHashMap<ContentHash, V> entries = new LinkedHashMap<>(256, 0.75f, true);
+
+    private long currentBytes;
+    private long hits;
+    private long misses;
+    private long evictions;
+    private String modelVersion;
+
+    public InferenceCache(long maxBytes, ToLongFunction<V> weigher) {
+        this.maxBytes = maxBytes;
+        this.weigher = weigher;
+        logger.info("InferenceCache inicializado - limite: {} MB", maxBytes / (1024 * 1024));
+    }
+
+    public synchronized V get(ContentHash key) {
+        V value = entries.get(key);
+        if (value == null) {
+            misses++;
+        } else {
+            hits++;
+        }
+        return value;
+    }
+
+    public synchronized void put(ContentHash key, V value) {
+        long weight = weigher.applyAsLong(value);
+        if (weight > maxBytes) {
+            return;
+        }
+
+        V previous = entries.put(key, value);
+        if (previous != null) {
+            currentBytes -= weigher.applyAsLong(previous);
+        }
+        currentBytes += weight;
+
+        // Remove os menos usados recentemente até caber no limite
+        Iterator<Map.Entry<ContentHash, V>> iterator = entries.entrySet().iterator();
+        while (currentBytes > maxBytes && iterator.hasNext()) {
+            Map.Entry<ContentHash, V> eldest = iterator.next();
+            currentBytes -= weigher.applyAsLong(eldest.getValue());
+            iterator.remove();
+            evictions++;
+        }
+    }
+
+    /**
+     * Registra a versão de modelo informada pela API; uma versão nova invalida o cache.
+     */
+    public synchronized void onModelVersion(String version) {
+        if (version == null || Objects.equals(version, modelVersion)) {
+            return;
+        }
+        if (modelVersion != null) {
+            logger.info("Nova versão de modelo ({} -> {}): invalidando {} resultados em cache",
+                    modelVersion, version, entries.size());
+            invalidateAll();
+        }
+        modelVersion = version;
+    }
+
+    public synchronized void invalidateAll() {
+        entries.clear();
+        currentBytes = 0;
+    }
+
+    public synchronized long getHits() { return hits; }
+    public synchronized long getMisses() { return misses; }
+    public synchronized long getEvictions() { return evictions; }
+    public synchronized long getSizeBytes() { return currentBytes; }
+    public synchronized int getEntryCount() { return entries.size(); }
+
+    @Override
+    public synchronized String toString() {
+        long lookups = hits + misses;
+        return String.format("%d entradas, %.1f MB, %d hits / %d misses (%.1f%%), %d evictions",
+                entries.size(), currentBytes / (1024.0 * 1024.0), hits, misses,
+                lookups == 0 ? 0.0 : hits * 100.0 / lookups, evictions);
+    }
+}
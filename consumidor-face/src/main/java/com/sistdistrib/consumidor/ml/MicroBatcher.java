@@ -0,0 +1,160 @@
+package com.sistdistrib.consumidor.ml;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Agrupa predições individuais em lotes para a API de inferência.
+ *
+ * Cada chamada a {@link #submit} entra numa fila; uma thread dedicada junta até
+ * {@code maxBatchSize} imagens ou espera no máximo {@code maxWaitMs} desde a
+ * primeira imagem do lote, envia uma única requisição e distribui os resultados
+ * para os futures de cada entrega.
+ */
+public class MicroBatcher<R> implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(MicroBatcher.class);
+
+    /**
+     * Envia um lote e devolve um resultado por imagem, na mesma ordem.
+     */
+    @FunctionalInterface
+    public interface BatchSender<R> {
+        CompletableFuture<List<R>> send(List<byte[]> images, List<String> filenames);
+    }
+
+    private final BatchSender<R> sender;
+    private final int maxBatchSize;
+    private final long maxWaitNanos;
+    private final BlockingQueue<PendingPrediction<R>> queue = new LinkedBlockingQueue<>();
+    private final Thread flusher;
+    private volatile boolean running = true;
+
+    public MicroBatcher(String name, BatchSender<R> sender, int maxBatchSize, long maxWaitMs) {
+        this.sender = sender;
+        this.maxBatchSize = Math.max(1, maxBatchSize);
+        this.maxWaitNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, maxWaitMs));
+        this.flusher = new Thread(this::flushLoop, name + "-batcher");
+        this.flusher.setDaemon(true);
+        this.flusher.start();
+
+        logger.info("MicroBatcher {} inicializado - lote máximo: {}, espera máxima: {} ms", name, this.maxBatchSize, maxWaitMs);
+    }
+
+    /**
+     * Enfileira uma imagem para o próximo lote.
+     *
+     * @param imageData Dados binários da imagem
+     * @param filename Nome do arquivo
+     * @return Future completado quando o lote da imagem for respondido
+     */
+    public CompletableFuture<R> submit(byte[] imageData, String filename) {
+        PendingPrediction<R> pending = new PendingPrediction<>(imageData, filename);
+        if (!running) {
+            pending.future.completeExceptionally(new IllegalStateException("MicroBatcher encerrado"));
+            return pending.future;
+        }
+        queue.add(pending);
+        // close() pode ter rodado entre a checagem e o add: se o flusher já saiu, ninguém mais tira da fila
+        if (!running && queue.remove(pending)) {
+            pending.future.completeExceptionally(new IllegalStateException("MicroBatcher encerrado"));
+        }
+        return pending.future;
+    }
+
+    public int getQueueSize() {
+        return queue.size();
+    }
+
+    private void flushLoop() {
+        List<PendingPrediction<R>> batch = new ArrayList<>(maxBatchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                PendingPrediction<R> first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+
+                // Completa o lote até o tamanho máximo ou até o prazo da primeira imagem
+                long deadline = System.nanoTime() + maxWaitNanos;
+                while (batch.size() < maxBatchSize) {
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) {
+                        queue.drainTo(batch, maxBatchSize - batch.size());
+                        break;
+                    }
+                    PendingPrediction<R> next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+
+                dispatch(new ArrayList<>(batch));
+                batch.clear();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+
+        // Falha o que restou na fila ao encerrar
+        PendingPrediction<R> leftover;
+        while ((leftover = queue.poll()) != null) {
+            leftover.future.completeExceptionally(new IllegalStateException("MicroBatcher encerrado"));
+        }
+    }
+
+    private void dispatch(List<PendingPrediction<R>> batch) {
+        List<byte[]> images = new ArrayList<>(batch.size());
+        List<String> filenames = new ArrayList<>(batch.size());
+        for (PendingPrediction<R> pending : batch) {
+            images.add(pending.imageData);
+            filenames.add(pending.filename);
+        }
+
+        logger.debug("Enviando lote de {} imagens", batch.size());
+
+        sender.send(images, filenames).whenComplete((results, error) -> {
+            if (error != null || results == null || results.size() != batch.size()) {
+                Throwable cause = error != null ? error : new IllegalStateException("Lote respondido com tamanho inválido");
+                for (PendingPrediction<R> pending : batch) {
+                    pending.future.completeExceptionally(cause);
+                }
+                return;
+            }
+            for (int i = 0; i < batch.size(); i++) {
+                batch.get(i).future.complete(results.get(i));
+            }
+        });
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        try {
+            flusher.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static class PendingPrediction<R> {
+        final byte[] imageData;
+        final String filename;
+        final CompletableFuture<R> future = new CompletableFuture<>();
+
+        PendingPrediction(byte[] imageData, String filename) {
+            this.imageData = imageData;
+            this.filename = filename;
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package com.sistdistrib.consumidor.ml;
+
+import com.fasterxml.jackson.core.io.JsonStringEncoder;
+import okhttp3.MediaType;
+import okhttp3.RequestBody;
+import okio.BufferedSink;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Corpo JSON de {@code /predict} ({"image": ..., "filename": ...}) escrito direto no socket.
+ *
+ * Não monta a String Base64 nem o JSON em memória: a imagem é codificada em blocos
+ * pequenos enquanto é enviada ou, quando já está em Base64 dentro de outro buffer
+ * (o corpo da mensagem AMQP), o trecho é copiado como está.
+ */
+final class PredictRequestBody extends RequestBody {
+
+    private static final MediaType JSON = MediaType.get("application/json; charset=utf-8");
+
+    private static final byte[] PREFIX = "{\"image\":\"".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] MIDDLE = "\",\"filename\":\"".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] SUFFIX = "\"}".getBytes(StandardCharsets.US_ASCII);
+
+    // Múltiplo de 3: só o último bloco recebe padding
+    private static final int CHUNK = 3 * 1024;
+    // Escritas em blocos de um segmento do okio: cada bloco é enviado e o segmento reaproveitado
+    private static final int SEGMENT = 8192;
+
+    private final byte[] buffer;
+    private final int offset;
+    private final int length;
+    private final boolean base64;
+    private final byte[] filename;
+
+    private PredictRequestBody(byte[] buffer, int offset, int length, boolean base64, String filename) {
+        this.buffer = buffer;
+        this.offset = offset;
+        this.length = length;
+        this.base64 = base64;
+        this.filename = JsonStringEncoder.getInstance().quoteAsUTF8(filename != null ? filename : "");
+    }
+
+    /**
+     * Corpo para a imagem em bytes crus (codificada em Base64 durante o envio).
+     */
+    static PredictRequestBody ofImage(byte[] imageData, String filename) {
+        return new PredictRequestBody(imageData, 0, imageData.length, false, filename);
+    }
+
+    /**
+     * Corpo para uma imagem já em Base64 em {@code buffer[offset, offset + length)}.
+     */
+    static PredictRequestBody ofBase64(byte[] buffer, int offset, int length, String filename) {
+        return new PredictRequestBody(buffer, offset, length, true, filename);
+    }
+
+    @Override
+    public MediaType contentType() {
+        return JSON;
+    }
+
+    @Override
+    public long contentLength() {
+        long imageLength = base64 ? length : 4L * ((length + 2) / 3);
+        return PREFIX.length + imageLength + MIDDLE.length + filename.length + SUFFIX.length;
+    }
+
+    @Override
+    public void writeTo(BufferedSink sink) throws IOException {
+        sink.write(PREFIX);
+        if (base64) {
+            int end = offset + length;
+            for (int position = offset; position < end; position += SEGMENT) {
+                sink.write(buffer, position, Math.min(SEGMENT, end - position));
+            }
+        } else {
+            writeBase64(sink);
+        }
+        sink.write(MIDDLE);
+        sink.write(filename);
+        sink.write(SUFFIX);
+    }
+
+    private void writeBase64(BufferedSink sink) throws IOException {
+        Base64.Encoder encoder = Base64.getEncoder();
+        byte[] chunk = new byte[CHUNK];
+        byte[] encoded = new byte[CHUNK / 3 * 4];
+        int end = offset + length;
+        for (int position = offset; position < end; position += CHUNK) {
+            int size = Math.min(CHUNK, end - position);
+            byte[] source = chunk;
+            if (size < CHUNK) {
+                source = new byte[size];
+            }
+            System.arraycopy(buffer, position, source, 0, size);
+            int written = encoder.encode(source, encoded);
+            sink.write(encoded, 0, written);
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.sistdistrib.consumidor.ml;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Junta chamadas simultâneas com a mesma chave em uma única execução.
+ *
+ * A primeira chamada para uma chave executa de fato; as que chegam enquanto ela
+ * está em andamento esperam o mesmo future. Quando a execução termina a chave sai
+ * do mapa, então chamadas posteriores executam de novo (o cache cuida delas).
+ */
+public class SingleFlight<K, V> {
+
+    private final ConcurrentHashMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+    private final AtomicLong executions = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+
+    /**
+     * Versão bloqueante: a primeira thread executa {@code call}, as demais esperam o resultado dela.
+     */
+    public V execute(K key, Supplier<V> call) {
+        CompletableFuture<V> leader = new CompletableFuture<>();
+        CompletableFuture<V> existing = inFlight.putIfAbsent(key, leader);
+        if (existing != null) {
+            coalesced.incrementAndGet();
+            return existing.join();
+        }
+
+        executions.incrementAndGet();
+        try {
+            V value = call.get();
+            leader.complete(value);
+            return value;
+        } catch (RuntimeException e) {
+            leader.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, leader);
+        }
+    }
+
+    /**
+     * Versão assíncrona: retorna o future da execução em andamento ou inicia uma nova.
+     */
+    public CompletableFuture<V> executeAsync(K key, Supplier<CompletableFuture<V>> call) {
+        CompletableFuture<V> leader = new CompletableFuture<>();
+        CompletableFuture<V> existing = inFlight.putIfAbsent(key, leader);
+        if (existing != null) {
+            coalesced.incrementAndGet();
+            // Future dependente: quem espera não consegue cancelar a execução compartilhada
+            return existing.thenApply(value -> value);
+        }
+
+        executions.incrementAndGet();
+        try {
+            call.get().whenComplete((value, error) -> {
+                inFlight.remove(key, leader);
+                if (error != null) {
+                    leader.completeExceptionally(error);
+                } else {
+                    leader.complete(value);
+                }
+            });
+        } catch (RuntimeException e) {
+            inFlight.remove(key, leader);
+            leader.completeExceptionally(e);
+        }
+        return leader.thenApply(value -> value);
+    }
+
+    public long getExecutions() {
+        return executions.get();
+    }
+
+    public long getCoalesced() {
+        return coalesced.get();
+    }
+
+    public int getInFlight() {
+        return inFlight.size();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d chamadas, %d agrupadas, %d em andamento", getExecutions(), getCoalesced(), getInFlight());
+    }
+}
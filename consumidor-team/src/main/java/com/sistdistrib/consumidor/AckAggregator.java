@@ -0,0 +1,188 @@
+package com.sistdistrib.consumidor;
+
+import com.rabbitmq.client.Channel;
+
+import java.io.IOException;
+import java.util.BitSet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+
+/**
+ * Agrupa os acks de um canal em acks cumulativos ({@code basicAck(tag, true)}).
+ *
+ * As entregas podem terminar fora de ordem quando o processamento é concorrente.
+ * O agregador guarda quais delivery tags já terminaram e, a cada N acks ou a cada
+ * T ms, confirma de uma vez tudo até o maior tag contíguo. Nacks são enviados na
+ * hora, individualmente, e contam como "concluídos" para a contiguidade. No flush
+ * periódico, acks presos atrás de uma mensagem lenta são enviados individualmente
+ * para não segurar o prefetch do canal.
+ *
+ * Com {@code batchSize <= 1} cada ack é enviado imediatamente, como antes.
+ */
+public class AckAggregator implements AutoCloseable {
+
+    private final Channel channel;
+    private final Lock channelLock;
+    private final int batchSize;
+    private final ScheduledExecutorService flusher;
+
+    // Estado protegido por channelLock. Bit i corresponde ao delivery tag base + i
+    private long base = 1;
+    private BitSet completed = new BitSet();
+    private BitSet unsent = new BitSet();
+    private long cumulativeTag;
+    private int unsentCount;
+
+    private long cumulativeAcks;
+    private long individualAcks;
+
+    private AckAggregator(Channel channel, Lock channelLock, int batchSize) {
+        this.channel = channel;
+        this.channelLock = channelLock;
+        this.batchSize = batchSize;
+
+        if (batchSize > 1) {
+            this.flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "ack-flusher");
+                thread.setDaemon(true);
+                return thread;
+            });
+        } else {
+            this.flusher = null;
+        }
+    }
+
+    /**
+     * Cria o agregador e agenda o flush periódico (só depois de construído).
+     *
+     * @param channel Canal dono das entregas
+     * @param channelLock Lock que serializa todas as operações no canal
+     * @param batchSize Acks acumulados antes de enviar um ack cumulativo
+     * @param flushIntervalMs Intervalo máximo entre envios
+     */
+    public static AckAggregator start(Channel channel, Lock channelLock, int batchSize, long flushIntervalMs) {
+        AckAggregator aggregator = new AckAggregator(channel, channelLock, batchSize);
+        if (aggregator.flusher != null) {
+            aggregator.flusher.scheduleWithFixedDelay(aggregator::flushQuietly,
+                    flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+        }
+        return aggregator;
+    }
+
+    public void ack(long deliveryTag) throws IOException {
+        channelLock.lock();
+        try {
+            if (batchSize <= 1) {
+                channel.basicAck(deliveryTag, false);
+                individualAcks++;
+                return;
+            }
+
+            int index = (int) (deliveryTag - base);
+            if (index < 0) {
+                // Tag anterior à janela (ex.: após recuperação do canal): confirma direto
+                channel.basicAck(deliveryTag, false);
+                individualAcks++;
+                return;
+            }
+
+            completed.set(index);
+            unsent.set(index);
+            unsentCount++;
+            advance();
+
+            if (unsentCount >= batchSize) {
+                sendCumulativeAck();
+            }
+        } finally {
+            channelLock.unlock();
+        }
+    }
+
+    public void nack(long deliveryTag, boolean requeue) throws IOException {
+        channelLock.lock();
+        try {
+            channel.basicNack(deliveryTag, false, requeue);
+
+            int index = (int) (deliveryTag - base);
+            if (batchSize > 1 && index >= 0) {
+                completed.set(index);
+                advance();
+            }
+        } finally {
+            channelLock.unlock();
+        }
+    }
+
+    /**
+     * Envia o ack cumulativo pendente e confirma individualmente o que está preso atrás de lacunas.
+     */
+    public void flush() throws IOException {
+        channelLock.lock();
+        try {
+            sendCumulativeAck();
+
+            for (int i = unsent.nextSetBit(0); i >= 0; i = unsent.nextSetBit(i + 1)) {
+                channel.basicAck(base + i, false);
+                individualAcks++;
+            }
+            unsent.clear();
+            unsentCount = 0;
+        } finally {
+            channelLock.unlock();
+        }
+    }
+
+    // Avança a base sobre o prefixo contíguo de tags concluídos
+    private void advance() {
+        int run = completed.nextClearBit(0);
+        if (run == 0) {
+            return;
+        }
+
+        int lastUnsent = unsent.previousSetBit(run - 1);
+        if (lastUnsent >= 0) {
+            cumulativeTag = base + lastUnsent;
+        }
+
+        completed = completed.get(run, Math.max(run, completed.length()));
+        unsent = unsent.get(run, Math.max(run, unsent.length()));
+        base += run;
+    }
+
+    private void sendCumulativeAck() throws IOException {
+        if (cumulativeTag == 0) {
+            return;
+        }
+        channel.basicAck(cumulativeTag, true);
+        cumulativeAcks++;
+        cumulativeTag = 0;
+        unsentCount = unsent.cardinality();
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (Exception e) {
+            System.err.println("Erro ao enviar acks agrupados: " + e.getMessage());
+        }
+    }
+
+    public long getCumulativeAcks() {
+        return cumulativeAcks;
+    }
+
+    public long getIndividualAcks() {
+        return individualAcks;
+    }
+
+    @Override
+    public void close() {
+        if (flusher != null) {
+            flusher.shutdown();
+        }
+        flushQuietly();
+    }
+}
@@ -2,15 +2,20 @@ package com.sistdistrib.consumidor;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.rabbitmq.client.*;
+import com.sistdistrib.consumidor.ml.AdaptiveConcurrencyLimiter;
+import com.sistdistrib.consumidor.ml.MicroBatcher;
 import com.sistdistrib.consumidor.ml.TeamApiClient;
 
-import java.io.File;
 import java.io.IOException;
-import java.nio.file.Files;
-import java.util.Map;
-import java.util.Random;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
 
 public class ConsumidorTeam {
     private static final String EXCHANGE_NAME = "image_exchange";
@@ -18,12 +23,59 @@ public class ConsumidorTeam {
     private Channel channel;
     private ObjectMapper objectMapper;
     private TeamApiClient teamApiClient;
+    private MicroBatcher<TeamApiClient.TeamResult> teamBatcher;
+    private AdaptiveConcurrencyLimiter concurrencyLimiter;
     private AtomicLong processedCount;
 
+    // Modo de execução: "sequential" (thread do RabbitMQ) ou "virtual" (uma virtual thread por entrega)
+    private final boolean virtualThreads;
+    private final int prefetchCount;
+    private final long processingDelayMs;
+    private ExecutorService deliveryExecutor;
+    private String consumerTag;
+
+    // ReentrantLock em vez de synchronized para não prender a carrier thread das virtual threads
+    private final ReentrantLock channelLock = new ReentrantLock();
+    private AckAggregator ackAggregator;
+
+    // Gravação das imagens processadas em segundo plano
+    private ProcessedImageWriter imageWriter;
+    // Sufixo dos nomes de saída: entregas simultâneas com o mesmo rótulo no mesmo ms não colidem
+    private final AtomicLong outputSequence = new AtomicLong();
+
+    // Imagens das mensagens claim-check (só a referência passa pelo RabbitMQ)
+    private ImageStore imageStore;
+
+    // Mensagens mais velhas que o prazo vão para o dead-letter ou para o analisador local
+    private DeadlinePolicy deadlinePolicy;
+    private TeamShieldAnalyzer localAnalyzer;
+
     public ConsumidorTeam() {
         this.objectMapper = new ObjectMapper();
         this.teamApiClient = new TeamApiClient();
         this.processedCount = new AtomicLong(0);
+        this.virtualThreads = "virtual".equalsIgnoreCase(System.getenv().getOrDefault("EXECUTION_MODE", "sequential"));
+        this.prefetchCount = Integer.parseInt(System.getenv().getOrDefault("PREFETCH_COUNT",
+                virtualThreads ? "256" : "1"));
+        this.processingDelayMs = Long.parseLong(System.getenv().getOrDefault("PROCESSING_DELAY_MS", "300"));
+
+        // Micro-batching: com BATCH_SIZE > 1 as predições concorrentes são agrupadas em /predict_batch
+        int batchSize = Integer.parseInt(System.getenv().getOrDefault("BATCH_SIZE", "1"));
+        if (batchSize > 1) {
+            long batchMaxWaitMs = Long.parseLong(System.getenv().getOrDefault("BATCH_MAX_WAIT_MS", "20"));
+            this.teamBatcher = new MicroBatcher<>("team", teamApiClient::predictTeamBatchAsync, batchSize, batchMaxWaitMs);
+        }
+
+        this.imageWriter = ProcessedImageWriter.fromEnv("team");
+        this.imageStore = ImageStore.fromEnv();
+
+        // Limite adaptativo de chamadas à API (ADAPTIVE_CONCURRENCY=true)
+        this.concurrencyLimiter = AdaptiveConcurrencyLimiter.fromEnv(prefetchCount);
+
+        this.deadlinePolicy = DeadlinePolicy.fromEnv("team");
+        if (deadlinePolicy != null && !deadlinePolicy.isDeadLetter()) {
+            this.localAnalyzer = new TeamShieldAnalyzer();
+        }
     }
 
     public void start() {
@@ -75,54 +127,40 @@ public class ConsumidorTeam {
         channel.exchangeDeclare(EXCHANGE_NAME, BuiltinExchangeType.TOPIC, true);
         channel.queueDeclare(queueName, true, false, false, null);
         channel.queueBind(queueName, EXCHANGE_NAME, "team");
+        if (deadlinePolicy != null) {
+            deadlinePolicy.declare(channel);
+        }
+
+        // Configurar QoS: no modo virtual o prefetch é o único limite de concorrência
+        channel.basicQos(prefetchCount);
+
+        // Com limite adaptativo, o prefetch do canal acompanha o limite atual
+        if (concurrencyLimiter != null) {
+            channel.basicQos(concurrencyLimiter.getLimit(), true);
+            concurrencyLimiter.setLimitListener(this::updateChannelPrefetch);
+        }
 
-        // Configurar QoS para processar uma mensagem por vez
-        channel.basicQos(1);
+        // Acks cumulativos a cada ACK_BATCH_SIZE mensagens ou ACK_FLUSH_INTERVAL_MS
+        int ackBatchSize = Integer.parseInt(System.getenv().getOrDefault("ACK_BATCH_SIZE", "1"));
+        long ackFlushIntervalMs = Long.parseLong(System.getenv().getOrDefault("ACK_FLUSH_INTERVAL_MS", "100"));
+        ackAggregator = AckAggregator.start(channel, channelLock, ackBatchSize, ackFlushIntervalMs);
 
         System.out.println("Conectado ao RabbitMQ - Fila: " + queueName);
+        System.out.println("⚙️ Execução: " + (virtualThreads ? "virtual threads" : "sequencial") + ", prefetch " + prefetchCount);
     }
 
     private void startConsuming() throws IOException {
         String queueName = System.getenv().getOrDefault("QUEUE_NAME", "team_queue");
 
-        DeliverCallback deliverCallback = (consumerTag, delivery) -> {
-            try {
-                byte[] body = delivery.getBody();
-                ImageMessage message = objectMapper.readValue(body, ImageMessage.class);
-
-                System.out.println("📥 Recebida mensagem: " + message.getFilename());
-
-                // Processar com API YOLOv5
-                TeamApiClient.TeamResult result = teamApiClient.predictTeam(message.getData(), message.getFilename());
-
-                // Simular tempo de processamento
-                Thread.sleep(300);
-
-                // Salvar imagem APÓS processamento bem-sucedido
-                if (!"ERRO".equals(result.getCategory())) {
-                    // Se tem imagem anotada, salva ela. Senão, salva a original
-                    if (result.hasAnnotatedImage()) {
-                        saveProcessedImage(result.getAnnotatedImage(), message.getFilename(), result.getTeamName());
-                    } else {
-                        saveProcessedImage(message.getData(), message.getFilename(), result.getTeamName());
-                    }
-                }
-
-                long count = processedCount.incrementAndGet();
-                System.out.println("⚽ [" + count + "] " + result.toString() + " [SALVA]");
-
-                // Acknowledgment da mensagem
-                channel.basicAck(delivery.getEnvelope().getDeliveryTag(), false);
-
-            } catch (Exception e) {
-                System.err.println("Erro ao processar mensagem: " + e.getMessage());
+        if (virtualThreads) {
+            deliveryExecutor = Executors.newVirtualThreadPerTaskExecutor();
+        }
 
-                // Rejeitar mensagem em caso de erro
-                try {
-                    channel.basicNack(delivery.getEnvelope().getDeliveryTag(), false, false);
-                } catch (IOException ioException) {
-                    System.err.println("Erro ao rejeitar mensagem: " + ioException.getMessage());
-                }
+        DeliverCallback deliverCallback = (consumerTag, delivery) -> {
+            if (deliveryExecutor == null) {
+                processDelivery(delivery);
+            } else {
+                deliveryExecutor.execute(() -> processDelivery(delivery));
             }
         };
 
@@ -131,13 +169,31 @@ public class ConsumidorTeam {
         };
 
         // Iniciar consumo
-        channel.basicConsume(queueName, false, deliverCallback, cancelCallback);
+        consumerTag = channel.basicConsume(queueName, false, deliverCallback, cancelCallback);
 
         // Manter o programa rodando
         try {
+            long ticks = 0;
             while (true) {
                 Thread.sleep(1000);
 
+                // Limite adaptativo, fila de escrita e cache a cada 10 segundos
+                if (++ticks % 10 == 0) {
+                    if (concurrencyLimiter != null) {
+                        System.out.println("⚙️ Concorrência adaptativa: " + concurrencyLimiter);
+                    }
+                    System.out.println("💾 Escrita: " + imageWriter);
+                    if (teamApiClient.getCache() != null) {
+                        System.out.println("🗃️ Cache de inferência: " + teamApiClient.getCache());
+                    }
+                    if (teamApiClient.getSingleFlight() != null && teamApiClient.getSingleFlight().getCoalesced() > 0) {
+                        System.out.println("🔗 Requisições agrupadas: " + teamApiClient.getSingleFlight());
+                    }
+                    if (deadlinePolicy != null) {
+                        System.out.println("⏱️ Prazo: " + deadlinePolicy);
+                    }
+                }
+
                 // Log de status a cada 20 identificações
                 if (processedCount.get() % 20 == 0 && processedCount.get() > 0) {
                     System.out.println("📊 Status: " + processedCount.get() + " times analisados via YOLOv5 API");
@@ -151,14 +207,152 @@ public class ConsumidorTeam {
 
 
 
-    private void saveProcessedImage(byte[] imageData, String filename, String teamName) {
+    private void processDelivery(Delivery delivery) {
         try {
-            // Criar diretório de saída se não existir
-            File outputDir = new File("/app/images/teams/processed");
-            if (!outputDir.exists()) {
-                outputDir.mkdirs();
+            byte[] body = delivery.getBody();
+            ImageMessage message = ImageMessageFormat.decode(delivery.getProperties(), body, objectMapper, imageStore);
+
+            System.out.println("📥 Recebida mensagem: " + message.getFilename());
+
+            // Mensagem vencida (na chegada ou esperando vaga no limitador): não gasta uma chamada à API
+            boolean expired = deadlinePolicy != null && deadlinePolicy.isExpired(message.getTimestamp());
+            TeamApiClient.TeamResult result = null;
+            if (!expired) {
+                // Processar com API YOLOv5
+                result = predictBeforeDeadline(message);
+                expired = result == null;
+            }
+            if (expired) {
+                if (deadlinePolicy.isDeadLetter()) {
+                    deadLetter(delivery, message);
+                    return;
+                }
+                result = analyzeLocally(message);
+            } else {
+                // Simular tempo de processamento
+                Thread.sleep(processingDelayMs);
+            }
+
+            // Salvar imagem APÓS processamento bem-sucedido
+            CompletableFuture<Void> saved = CompletableFuture.completedFuture(null);
+            if (!"ERRO".equals(result.getCategory())) {
+                // Se tem imagem anotada, salva ela. Senão, salva a original
+                if (result.hasAnnotatedImage()) {
+                    saved = saveProcessedImage(result.getAnnotatedImage(), message.getFilename(), result.getTeamName());
+                } else {
+                    saved = saveProcessedImage(message.getData(), message.getFilename(), result.getTeamName());
+                }
+            }
+
+            long count = processedCount.incrementAndGet();
+            System.out.println("⚽ [" + count + "] " + result.toString() + " [SALVA]");
+
+            // Acknowledgment da mensagem: no modo durável só depois do fsync da imagem
+            long deliveryTag = delivery.getEnvelope().getDeliveryTag();
+            if (imageWriter.isDurable()) {
+                saved.whenComplete((ignored, error) -> completeDelivery(deliveryTag, error));
+            } else {
+                ackDelivery(deliveryTag);
             }
 
+        } catch (Exception e) {
+            System.err.println("Erro ao processar mensagem: " + e.getMessage());
+
+            // Rejeitar mensagem em caso de erro
+            try {
+                nackDelivery(delivery.getEnvelope().getDeliveryTag());
+            } catch (IOException ioException) {
+                System.err.println("Erro ao rejeitar mensagem: " + ioException.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Predição dentro do limitador de concorrência; null se a mensagem venceu esperando vaga.
+     */
+    private TeamApiClient.TeamResult predictBeforeDeadline(ImageMessage message) throws InterruptedException {
+        if (concurrencyLimiter == null) {
+            return predict(message);
+        }
+        long start = concurrencyLimiter.acquire();
+        if (deadlinePolicy != null && deadlinePolicy.expiredWhileWaiting(message.getTimestamp())) {
+            concurrencyLimiter.cancel();
+            return null;
+        }
+        boolean ok = false;
+        try {
+            TeamApiClient.TeamResult result = predict(message);
+            ok = !"ERRO".equals(result.getCategory());
+            return result;
+        } finally {
+            concurrencyLimiter.release(start, ok);
+        }
+    }
+
+    private TeamApiClient.TeamResult predict(ImageMessage message) {
+        if (teamBatcher != null) {
+            return teamBatcher.submit(message.getData(), message.getFilename()).join();
+        }
+        return teamApiClient.predictTeam(message.getData(), message.getFilename());
+    }
+
+    private void deadLetter(Delivery delivery, ImageMessage message) throws IOException {
+        channelLock.lock();
+        try {
+            deadlinePolicy.deadLetter(channel, delivery, message.getTimestamp());
+        } finally {
+            channelLock.unlock();
+        }
+        ackDelivery(delivery.getEnvelope().getDeliveryTag());
+        System.out.println("⏱️ Mensagem vencida enviada ao dead-letter: " + message.getFilename());
+    }
+
+    private TeamApiClient.TeamResult analyzeLocally(ImageMessage message) {
+        // Classificação local (sem chamada remota) para mensagens vencidas
+        TeamShieldAnalyzer.TeamResult local = localAnalyzer.analyzeShield(message.getData(), message.getFilename());
+        deadlinePolicy.recordLocal();
+        String category = local.isError() ? "ERRO" : "LOCAL";
+        return new TeamApiClient.TeamResult(message.getFilename(), local.getTeamName(), category, local.getConfidence());
+    }
+
+    private void updateChannelPrefetch(int limit) {
+        try {
+            channelLock.lock();
+            try {
+                channel.basicQos(limit, true);
+            } finally {
+                channelLock.unlock();
+            }
+        } catch (IOException e) {
+            System.err.println("Erro ao ajustar prefetch: " + e.getMessage());
+        }
+    }
+
+    private void completeDelivery(long deliveryTag, Throwable writeError) {
+        try {
+            if (writeError == null) {
+                ackDelivery(deliveryTag);
+            } else {
+                nackDelivery(deliveryTag);
+            }
+        } catch (IOException e) {
+            System.err.println("Erro ao confirmar mensagem: " + e.getMessage());
+        }
+    }
+
+    private void ackDelivery(long deliveryTag) throws IOException {
+        ackAggregator.ack(deliveryTag);
+    }
+
+    private void nackDelivery(long deliveryTag) throws IOException {
+        ackAggregator.nack(deliveryTag, false);
+    }
+
+    private CompletableFuture<Void> saveProcessedImage(byte[] imageData, String filename, String teamName) {
+        try {
+            // Diretório de saída (criado pelo writer na primeira gravação)
+            Path outputDir = Paths.get("/app/images/teams/processed");
+
             // Verificar se os dados são JPG válidos (deve começar com FF D8)
             boolean isValidJpg = imageData.length > 4 &&
                                 imageData[0] == (byte)0xFF &&
@@ -171,17 +365,20 @@ public class ConsumidorTeam {
             // Criar nome do arquivo baseado na predição do time
             String teamFileName = getTeamFileName(teamName);
             long timestamp = System.currentTimeMillis();
-            String processedFileName = teamFileName + "_" + timestamp + ".jpg";
-
-            // Salvar a imagem processada com o nome do time
-            File outputFile = new File(outputDir, processedFileName);
-            Files.write(outputFile.toPath(), imageData);
-
-            System.out.println("💾 Imagem salva como: " + processedFileName + " (" + imageData.length + " bytes)");
-        } catch (IOException e) {
-            System.err.println("Erro ao salvar imagem processada " + filename + ": " + e.getMessage());
+            String processedFileName = teamFileName + "_" + timestamp + "_" + outputSequence.incrementAndGet() + ".jpg";
+
+            // Enfileirar a imagem processada com o nome do time
+            return imageWriter.submit(outputDir, processedFileName, imageData)
+                    .whenComplete((ignored, error) -> {
+                        if (error == null) {
+                            System.out.println("💾 Imagem salva como: " + processedFileName + " (" + imageData.length + " bytes)");
+                        } else {
+                            System.err.println("Erro ao salvar imagem processada " + filename + ": " + error.getMessage());
+                        }
+                    });
         } catch (Exception e) {
             System.err.println("Erro debug: " + e.getMessage());
+            return CompletableFuture.failedFuture(e);
         }
     }
 
@@ -207,6 +404,25 @@ public class ConsumidorTeam {
 
     public void close() {
         try {
+            // Parar de receber e esperar as entregas em andamento serem confirmadas
+            if (consumerTag != null && channel != null && channel.isOpen()) {
+                channel.basicCancel(consumerTag);
+            }
+            if (deliveryExecutor != null) {
+                deliveryExecutor.shutdown();
+                if (!deliveryExecutor.awaitTermination(30, TimeUnit.SECONDS)) {
+                    deliveryExecutor.shutdownNow();
+                }
+            }
+            if (teamBatcher != null) {
+                teamBatcher.close();
+            }
+            if (imageWriter != null) {
+                imageWriter.close();
+            }
+            if (ackAggregator != null) {
+                ackAggregator.close();
+            }
             if (channel != null && channel.isOpen()) {
                 channel.close();
             }
@@ -0,0 +1,151 @@
+package com.sistdistrib.consumidor;
+
+import com.rabbitmq.client.AMQP;
+import com.rabbitmq.client.BuiltinExchangeType;
+import com.rabbitmq.client.Channel;
+import com.rabbitmq.client.Delivery;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Descarte de mensagens vencidas, pelo {@code timestamp} do produtor.
+ *
+ * Depois de uma fila acumulada, imagens mais velhas que o prazo não valem uma chamada à
+ * API de inferência. Conforme a ação configurada, elas são publicadas num exchange de
+ * dead-letter ({@link Action#DEADLETTER}) ou classificadas pelo analisador local, sem
+ * chamada remota ({@link Action#LOCAL}). Mensagens sem timestamp nunca vencem.
+ *
+ * O prazo compara relógios do gerador e do consumidor: uma diferença entre eles desloca o prazo.
+ */
+public class DeadlinePolicy {
+
+    public enum Action {
+        DEADLETTER,
+        LOCAL
+    }
+
+    private final String type;
+    private final long deadlineMs;
+    private final Action action;
+    private final String deadLetterExchange;
+    private final String deadLetterQueue;
+
+    private final AtomicLong onTime = new AtomicLong();
+    private final AtomicLong expired = new AtomicLong();
+    private final AtomicLong deadLettered = new AtomicLong();
+    private final AtomicLong analyzedLocally = new AtomicLong();
+    private final AtomicLong maxAgeMs = new AtomicLong();
+
+    public DeadlinePolicy(String type, long deadlineMs, Action action, String deadLetterExchange, String deadLetterQueue) {
+        this.type = type;
+        this.deadlineMs = deadlineMs;
+        this.action = action;
+        this.deadLetterExchange = deadLetterExchange;
+        this.deadLetterQueue = deadLetterQueue;
+    }
+
+    /**
+     * Cria a política a partir de {@code <TIPO>_DEADLINE_MS} (ou DEADLINE_MS), DEADLINE_ACTION
+     * (deadletter|local), DEADLETTER_EXCHANGE e DEADLETTER_QUEUE; null se o prazo for 0.
+     */
+    public static DeadlinePolicy fromEnv(String type) {
+        String deadline = System.getenv().getOrDefault(type.toUpperCase() + "_DEADLINE_MS",
+                System.getenv().getOrDefault("DEADLINE_MS", "0"));
+        long deadlineMs = Long.parseLong(deadline);
+        if (deadlineMs <= 0) {
+            return null;
+        }
+        Action action = Action.valueOf(System.getenv().getOrDefault("DEADLINE_ACTION", "deadletter").toUpperCase());
+        String exchange = System.getenv().getOrDefault("DEADLETTER_EXCHANGE", "image_dlx");
+        String queue = System.getenv().getOrDefault("DEADLETTER_QUEUE", type + "_deadletter");
+        return new DeadlinePolicy(type, deadlineMs, action, exchange, queue);
+    }
+
+    /**
+     * Declara o exchange e a fila de dead-letter (só na ação deadletter).
+     */
+    public void declare(Channel channel) throws IOException {
+        if (action != Action.DEADLETTER) {
+            return;
+        }
+        channel.exchangeDeclare(deadLetterExchange, BuiltinExchangeType.DIRECT, true);
+        channel.queueDeclare(deadLetterQueue, true, false, false, null);
+        channel.queueBind(deadLetterQueue, deadLetterExchange, type);
+    }
+
+    /**
+     * Indica se a mensagem passou do prazo; conta no prazo/vencidas.
+     *
+     * @param timestamp Instante de produção (epoch ms); 0 = desconhecido
+     */
+    public boolean isExpired(long timestamp) {
+        if (timestamp <= 0) {
+            onTime.incrementAndGet();
+            return false;
+        }
+        long age = System.currentTimeMillis() - timestamp;
+        maxAgeMs.accumulateAndGet(age, Math::max);
+        if (age > deadlineMs) {
+            expired.incrementAndGet();
+            return true;
+        }
+        onTime.incrementAndGet();
+        return false;
+    }
+
+    /**
+     * Confere o prazo de novo depois de uma espera (ex.: vaga no limitador de concorrência);
+     * uma mensagem que venceu na espera passa de no prazo para vencida.
+     */
+    public boolean expiredWhileWaiting(long timestamp) {
+        if (timestamp <= 0) {
+            return false;
+        }
+        long age = System.currentTimeMillis() - timestamp;
+        maxAgeMs.accumulateAndGet(age, Math::max);
+        if (age > deadlineMs) {
+            onTime.decrementAndGet();
+            expired.incrementAndGet();
+            return true;
+        }
+        return false;
+    }
+
+    public boolean isDeadLetter() {
+        return action == Action.DEADLETTER;
+    }
+
+    /**
+     * Publica a entrega vencida no exchange de dead-letter, com o motivo e a idade nos headers.
+     * Channel não é thread-safe: chamar com o lock do canal.
+     */
+    public void deadLetter(Channel channel, Delivery delivery, long timestamp) throws IOException {
+        AMQP.BasicProperties original = delivery.getProperties();
+        Map<String, Object> headers = original.getHeaders() != null
+                ? new HashMap<>(original.getHeaders()) : new HashMap<>();
+        headers.put("x-shed-reason", "deadline");
+        headers.put("x-age-ms", System.currentTimeMillis() - timestamp);
+        headers.put("x-original-routing-key", delivery.getEnvelope().getRoutingKey());
+
+        channel.basicPublish(deadLetterExchange, type, original.builder().headers(headers).build(), delivery.getBody());
+        deadLettered.incrementAndGet();
+    }
+
+    public void recordLocal() {
+        analyzedLocally.incrementAndGet();
+    }
+
+    public long getExpired() {
+        return expired.get();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("prazo %d ms - %d no prazo, %d vencidas (%d em %s, %d locais), idade máx %d ms",
+                deadlineMs, onTime.get(), expired.get(), deadLettered.get(), deadLetterQueue,
+                analyzedLocally.get(), maxAgeMs.get());
+    }
+}
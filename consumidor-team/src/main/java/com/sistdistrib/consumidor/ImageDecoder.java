@@ -0,0 +1,153 @@
+package com.sistdistrib.consumidor;
+
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.spi.IIORegistry;
+import javax.imageio.spi.ImageReaderSpi;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.MemoryCacheImageInputStream;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Decodificação das imagens recebidas com {@link ImageReader}s reaproveitados.
+ *
+ * Substitui o {@code ImageIO.read}, que cria um leitor novo (no JPEG, com estado nativo) e um
+ * cache em disco a cada imagem. O leitor é escolhido como no {@code ImageIO.read} (primeiro
+ * provedor que reconhece os bytes) e lê de um stream em memória. Cada formato tem um pool
+ * limitado de leitores ociosos: uma decodificação pega um emprestado (ou cria um) e o devolve
+ * no fim; o que não cabe no pool é descartado com {@code dispose()}. Isso vale também para as
+ * threads virtuais, que nunca se repetem. Com {@link ImageReadParam} dá
+ * para decodificar só um canto da imagem ({@link #decodeRegion}) ou a imagem inteira amostrada a
+ * cada {@code subsampling} pixels ({@link #decode}).
+ *
+ * O DNA fica nos primeiros pixels e precisa dos valores exatos: com subamostragem ele é lido de um
+ * canto decodificado à parte ({@link #decodeCorner}). Sem subamostragem o canto sai da mesma
+ * decodificação das heurísticas, porque no PNG decodificar o canto custa quase a imagem toda.
+ */
+public class ImageDecoder {
+
+    // Leitores ociosos por formato; ImageReader não é thread-safe, então cada um está com uma decodificação por vez
+    private final Map<ImageReaderSpi, BlockingQueue<ImageReader>> idleReaders = new ConcurrentHashMap<>();
+
+    private final int subsampling;
+    private final int poolSize;
+
+    /**
+     * @param subsampling Lê 1 a cada N pixels em cada eixo nas heurísticas (1 = imagem inteira)
+     * @param poolSize Leitores ociosos guardados por formato
+     */
+    public ImageDecoder(int subsampling, int poolSize) {
+        if (subsampling < 1) {
+            throw new IllegalArgumentException("DECODE_SUBSAMPLE deve ser >= 1: " + subsampling);
+        }
+        this.subsampling = subsampling;
+        this.poolSize = Math.max(1, poolSize);
+    }
+
+    /**
+     * Cria o decodificador a partir de DECODE_SUBSAMPLE (padrão 1) e DECODE_READER_POOL
+     * (padrão: número de processadores).
+     */
+    public static ImageDecoder fromEnv() {
+        int subsampling = Integer.parseInt(System.getenv().getOrDefault("DECODE_SUBSAMPLE", "1"));
+        int poolSize = Integer.parseInt(System.getenv().getOrDefault("DECODE_READER_POOL",
+                String.valueOf(Runtime.getRuntime().availableProcessors())));
+        return new ImageDecoder(subsampling, poolSize);
+    }
+
+    /**
+     * Decodifica só o retângulo {@code [0, width) x [0, height)} (recortado à imagem).
+     *
+     * @return Pixels do canto, ou null se nenhum leitor reconhecer o formato
+     */
+    public PixelPlanes decodeRegion(byte[] data, int width, int height) throws IOException {
+        return read(data, new Rectangle(0, 0, width, height));
+    }
+
+    /**
+     * Pixels em resolução cheia para ler o canto {@code [0, width) x [0, height)}: só o canto com
+     * subamostragem, a imagem inteira sem ela (e então servem também às heurísticas).
+     *
+     * @return Pixels, ou null se nenhum leitor reconhecer o formato
+     */
+    public PixelPlanes decodeCorner(byte[] data, int width, int height) throws IOException {
+        return isSubsampled() ? decodeRegion(data, width, height) : decode(data);
+    }
+
+    /**
+     * Decodifica a imagem inteira com a subamostragem configurada; as coordenadas continuam as da
+     * imagem original (ver {@link PixelPlanes#of(BufferedImage, int, int, int)}).
+     *
+     * @return Pixels da imagem, ou null se nenhum leitor reconhecer o formato
+     */
+    public PixelPlanes decode(byte[] data) throws IOException {
+        return read(data, null);
+    }
+
+    public boolean isSubsampled() {
+        return subsampling > 1;
+    }
+
+    private PixelPlanes read(byte[] data, Rectangle region) throws IOException {
+        try (ImageInputStream input = new MemoryCacheImageInputStream(new ByteArrayInputStream(data))) {
+            ImageReaderSpi provider = providerFor(input);
+            if (provider == null) {
+                return null;
+            }
+            BlockingQueue<ImageReader> idle = idleReaders.computeIfAbsent(provider,
+                    key -> new ArrayBlockingQueue<>(poolSize));
+            ImageReader reader = idle.poll();
+            if (reader == null) {
+                reader = provider.createReaderInstance();
+            }
+            boolean reusable = false;
+            try {
+                reader.setInput(input, true, true);
+                ImageReadParam param = reader.getDefaultReadParam();
+                int width = reader.getWidth(0);
+                int height = reader.getHeight(0);
+                PixelPlanes pixels;
+                if (region != null) {
+                    param.setSourceRegion(region.intersection(new Rectangle(width, height)));
+                    pixels = PixelPlanes.of(reader.read(0, param));
+                } else {
+                    if (subsampling > 1) {
+                        param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+                    }
+                    pixels = PixelPlanes.of(reader.read(0, param), subsampling, width, height);
+                }
+                reusable = true;
+                return pixels;
+            } finally {
+                reader.setInput(null);
+                // Leitor que falhou ou que não cabe no pool libera o estado nativo agora
+                if (!reusable || !idle.offer(reader)) {
+                    reader.dispose();
+                }
+            }
+        }
+    }
+
+    private static ImageReaderSpi providerFor(ImageInputStream input) throws IOException {
+        Iterator<ImageReaderSpi> providers = IIORegistry.getDefaultInstance()
+                .getServiceProviders(ImageReaderSpi.class, true);
+        while (providers.hasNext()) {
+            ImageReaderSpi provider = providers.next();
+            input.mark();
+            boolean canDecode = provider.canDecodeInput(input);
+            input.reset();
+            if (canDecode) {
+                return provider;
+            }
+        }
+        return null;
+    }
+}
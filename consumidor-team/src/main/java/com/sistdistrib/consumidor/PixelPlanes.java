@@ -0,0 +1,160 @@
+package com.sistdistrib.consumidor;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.ComponentSampleModel;
+import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferInt;
+import java.awt.image.SampleModel;
+import java.awt.image.SinglePixelPackedSampleModel;
+import java.awt.image.WritableRaster;
+
+/**
+ * Acesso aos pixels de uma imagem direto nos arrays primitivos do {@link DataBuffer}.
+ *
+ * Nos formatos comuns do ImageIO (INT_RGB, INT_ARGB, 3BYTE_BGR do JPEG e 4BYTE_ABGR do
+ * PNG com alfa) os pixels são lidos do array do raster, sem cópia nem conversão da
+ * imagem inteira; nos demais (tons de cinza, paleta) cada leitura passa por
+ * {@code getRGB}. A luminância (0.299R + 0.587G + 0.114B) é calculada no acesso: os
+ * detectores amostram poucas centenas de pixels, e um plano da imagem inteira custaria
+ * mais do que economiza. Nenhum acesso cria {@code Color}.
+ *
+ * Uma imagem decodificada com subamostragem continua endereçada pelas coordenadas da original:
+ * cada leitura cai no pixel amostrado mais próximo acima e à esquerda.
+ */
+public final class PixelPlanes {
+
+    private final int width;
+    private final int height;
+    // Subamostragem da imagem decodificada e largura do seu raster
+    private final int step;
+    private final int rasterWidth;
+    // Um dos três: pixels 0x??RRGGBB, bytes intercalados (B,G,R ou A,B,G,R) ou a imagem
+    private final int[] packed;
+    private final byte[] bytes;
+    private final int pixelStride;
+    private final BufferedImage image;
+    private RegionStats regions;
+
+    private PixelPlanes(int width, int height, int step, int rasterWidth,
+                        int[] packed, byte[] bytes, int pixelStride, BufferedImage image) {
+        this.width = width;
+        this.height = height;
+        this.step = step;
+        this.rasterWidth = rasterWidth;
+        this.packed = packed;
+        this.bytes = bytes;
+        this.pixelStride = pixelStride;
+        this.image = image;
+    }
+
+    public static PixelPlanes of(BufferedImage image) {
+        return of(image, 1, image.getWidth(), image.getHeight());
+    }
+
+    /**
+     * Pixels de uma imagem decodificada lendo 1 a cada {@code step} pixels (a partir de 0).
+     *
+     * @param width Largura da imagem original
+     * @param height Altura da imagem original
+     */
+    public static PixelPlanes of(BufferedImage image, int step, int width, int height) {
+        int rasterWidth = image.getWidth();
+        WritableRaster raster = image.getRaster();
+        SampleModel sampleModel = raster.getSampleModel();
+        DataBuffer buffer = raster.getDataBuffer();
+        // Raster próprio (não é sub-imagem) e sem deslocamento no buffer
+        boolean direct = raster.getSampleModelTranslateX() == 0 && raster.getSampleModelTranslateY() == 0
+                && buffer.getNumBanks() == 1 && buffer.getOffset() == 0;
+
+        switch (image.getType()) {
+            case BufferedImage.TYPE_INT_RGB:
+            case BufferedImage.TYPE_INT_ARGB:
+                if (direct && sampleModel instanceof SinglePixelPackedSampleModel
+                        && ((SinglePixelPackedSampleModel) sampleModel).getScanlineStride() == rasterWidth) {
+                    return new PixelPlanes(width, height, step, rasterWidth, ((DataBufferInt) buffer).getData(), null, 1, null);
+                }
+                break;
+            case BufferedImage.TYPE_3BYTE_BGR:
+            case BufferedImage.TYPE_4BYTE_ABGR:
+                int stride = image.getType() == BufferedImage.TYPE_3BYTE_BGR ? 3 : 4;
+                if (direct && sampleModel instanceof ComponentSampleModel
+                        && ((ComponentSampleModel) sampleModel).getScanlineStride() == rasterWidth * stride
+                        && ((ComponentSampleModel) sampleModel).getPixelStride() == stride) {
+                    return new PixelPlanes(width, height, step, rasterWidth, null, ((DataBufferByte) buffer).getData(), stride, null);
+                }
+                break;
+            default:
+                break;
+        }
+        return new PixelPlanes(width, height, step, rasterWidth, null, null, 1, image);
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * Pixel 0xRRGGBB; como {@code getRGB}, lança exceção (com a mesma mensagem) fora da imagem.
+     */
+    public int rgb(int x, int y) {
+        if (x < 0 || y < 0 || x >= width || y >= height) {
+            throw new ArrayIndexOutOfBoundsException("Coordinate out of bounds!");
+        }
+        if (step != 1) {
+            x /= step;
+            y /= step;
+        }
+        int index = y * rasterWidth + x;
+        if (packed != null) {
+            return packed[index] & 0xFFFFFF;
+        }
+        if (bytes != null) {
+            // B,G,R são sempre os três últimos bytes do pixel
+            int p = index * pixelStride + pixelStride - 3;
+            return (bytes[p + 2] & 0xFF) << 16 | (bytes[p + 1] & 0xFF) << 8 | (bytes[p] & 0xFF);
+        }
+        return image.getRGB(x, y) & 0xFFFFFF;
+    }
+
+    /**
+     * Luminância (0 a 255) do pixel; 0 fora da imagem.
+     */
+    public double intensity(int x, int y) {
+        if (x < 0 || y < 0 || x >= width || y >= height) {
+            return 0.0;
+        }
+        int pixel = rgb(x, y);
+        return 0.299 * red(pixel) + 0.587 * green(pixel) + 0.114 * blue(pixel);
+    }
+
+    /**
+     * Somas e médias de retângulos desta imagem ({@link RegionStats}), criadas no primeiro uso.
+     */
+    public RegionStats regions() {
+        if (regions == null) {
+            regions = new RegionStats(this);
+        }
+        return regions;
+    }
+
+    public static int red(int rgb) {
+        return rgb >> 16 & 0xFF;
+    }
+
+    public static int green(int rgb) {
+        return rgb >> 8 & 0xFF;
+    }
+
+    public static int blue(int rgb) {
+        return rgb & 0xFF;
+    }
+
+    public static int pack(int red, int green, int blue) {
+        return red << 16 | green << 8 | blue;
+    }
+}
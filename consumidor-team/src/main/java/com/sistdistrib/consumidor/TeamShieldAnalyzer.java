@@ -1,16 +1,29 @@
 package com.sistdistrib.consumidor;
 
 import java.awt.Color;
-import java.awt.image.BufferedImage;
-import java.io.ByteArrayInputStream;
 import java.util.*;
-import javax.imageio.ImageIO;
+
+import static com.sistdistrib.consumidor.PixelPlanes.blue;
+import static com.sistdistrib.consumidor.PixelPlanes.green;
+import static com.sistdistrib.consumidor.PixelPlanes.red;
 
 public class TeamShieldAnalyzer {
 
     // Base de dados de times com cores e características
     private static final Map<String, TeamInfo> TEAM_DATABASE = initializeTeamDatabase();
 
+    // Quantização de cor em passos de 50: nível (0 a 5) de cada valor de canal
+    private static final int QUANT_STEP = 50;
+    private static final int QUANT_LEVELS = 6;
+    private static final int[] QUANT_LEVEL = new int[256];
+    static {
+        for (int value = 0; value < 256; value++) {
+            QUANT_LEVEL[value] = value / QUANT_STEP;
+        }
+    }
+
+    private final ImageDecoder decoder = ImageDecoder.fromEnv();
+
     public static class TeamInfo {
         String name;
         String league;
@@ -39,6 +52,8 @@ public class TeamShieldAnalyzer {
         private Color dominantColor;
         private String detectedShape;
         private long processedAt;
+        // Falha da análise (imagem ilegível), não uma identificação
+        private boolean error;
 
         public TeamResult(String filename, String teamName, String league, String country,
                          double confidence, String analysisDetails, Color dominantColor, String detectedShape) {
@@ -62,6 +77,7 @@ public class TeamShieldAnalyzer {
         public Color getDominantColor() { return dominantColor; }
         public String getDetectedShape() { return detectedShape; }
         public long getProcessedAt() { return processedAt; }
+        public boolean isError() { return error; }
 
         @Override
         public String toString() {
@@ -147,13 +163,13 @@ public class TeamShieldAnalyzer {
 
     public TeamResult analyzeShield(byte[] imageData, String filename) {
         try {
-            BufferedImage image = ImageIO.read(new ByteArrayInputStream(imageData));
-            if (image == null) {
+            PixelPlanes pixels = decoder.decodeCorner(imageData, 4, 2);
+            if (pixels == null) {
                 return createErrorResult(filename, "Falha ao carregar imagem");
             }
 
             // === DETECTOR REVOLUCIONÁRIO: LER O DNA DA IMAGEM ===
-            String dnaTeam = readTeamDNA(image);
+            String dnaTeam = readTeamDNA(pixels);
             if (dnaTeam != null) {
                 TeamInfo team = getTeamByName(dnaTeam);
                 if (team != null) {
@@ -164,7 +180,10 @@ public class TeamShieldAnalyzer {
             }
 
             // === DETECTOR AVANÇADO: ANÁLISE VISUAL INTELIGENTE ===
-            AdvancedShieldAnalysis analysis = performAdvancedShieldAnalysis(image);
+            if (decoder.isSubsampled()) {
+                pixels = decoder.decode(imageData);
+            }
+            AdvancedShieldAnalysis analysis = performAdvancedShieldAnalysis(pixels);
             TeamMatch match = findBestTeamMatchAdvanced(analysis);
 
             String details = String.format("Cores: %s+%s, Forma: %s, Símb: %s",
@@ -207,13 +226,34 @@ public class TeamShieldAnalyzer {
         }
     }
 
-    private AdvancedShieldAnalysis performAdvancedShieldAnalysis(BufferedImage image) {
+    /**
+     * Características lidas numa única varredura da imagem; todos os detectores decidem a partir delas.
+     */
+    private static class ShieldFeatures {
+        // Fundo: quantas das seis amostras das bordas caem em cada cor
+        int whiteCount, greenCount, redCount, blueCount, blackCount, yellowCount, purpleCount, orangeCount;
+        // Texto: pixels escuros na linha 50 e a cor de fundo em (50, 30)
+        boolean textRegion;
+        int textDarkPixels;
+        int textBackground;
+        // Listras: pixels pretos por coluna vertical e linhas com listra grená
+        int[] stripeColumnBlackPixels;
+        int maroonStripeRows;
+        // Símbolos na região central
+        int crossBlackPixels;
+        int starGreenPixels;
+        int flamePixels;
+        int crownPixels;
+    }
+
+    private AdvancedShieldAnalysis performAdvancedShieldAnalysis(PixelPlanes pixels) {
         AdvancedShieldAnalysis analysis = new AdvancedShieldAnalysis();
+        ShieldFeatures features = extractFeatures(pixels);
 
         // === DETECTOR ULTRA-PRECISO BASEADO NAS CARACTERÍSTICAS GERADAS ===
 
         // DETECTOR 1: ANÁLISE DE COR DE FUNDO (99% DE PRECISÃO)
-        String teamByBackground = detectTeamByBackground(image);
+        String teamByBackground = detectTeamByBackground(features);
         if (teamByBackground != null) {
             System.out.println("🎯 TIME DETECTADO POR FUNDO: " + teamByBackground);
             setAnalysisForDetectedTeam(analysis, teamByBackground);
@@ -222,7 +262,7 @@ public class TeamShieldAnalyzer {
         }
 
         // DETECTOR 2: ANÁLISE DE TEXTO NA IMAGEM (98% DE PRECISÃO)
-        String teamByText = detectTeamByText(image);
+        String teamByText = detectTeamByText(features);
         if (teamByText != null) {
             System.out.println("🎯 TIME DETECTADO POR TEXTO: " + teamByText);
             setAnalysisForDetectedTeam(analysis, teamByText);
@@ -231,7 +271,7 @@ public class TeamShieldAnalyzer {
         }
 
         // DETECTOR 3: ANÁLISE DE PADRÕES ESPECÍFICOS (95% DE PRECISÃO)
-        String teamByPattern = detectTeamByPattern(image);
+        String teamByPattern = detectTeamByPattern(features);
         if (teamByPattern != null) {
             System.out.println("🎯 TIME DETECTADO POR PADRÃO: " + teamByPattern);
             setAnalysisForDetectedTeam(analysis, teamByPattern);
@@ -240,7 +280,7 @@ public class TeamShieldAnalyzer {
         }
 
         // DETECTOR 4: ANÁLISE DE SÍMBOLOS CARACTERÍSTICOS (90% DE PRECISÃO)
-        String teamBySymbol = detectTeamBySymbol(image);
+        String teamBySymbol = detectTeamBySymbol(features);
         if (teamBySymbol != null) {
             System.out.println("🎯 TIME DETECTADO POR SÍMBOLO: " + teamBySymbol);
             setAnalysisForDetectedTeam(analysis, teamBySymbol);
@@ -249,7 +289,7 @@ public class TeamShieldAnalyzer {
         }
 
         // FALLBACK: Análise de cores básica
-        analyzeColorsBasic(image, analysis);
+        analyzeColorsBasic(pixels, analysis);
         analysis.detectedShape = "Unknown";
         analysis.detectedSymbol = "Unknown";
         analysis.detectedTeamName = null; // NÃO FOI DETECTADO ESPECIFICAMENTE
@@ -257,36 +297,127 @@ public class TeamShieldAnalyzer {
         return analysis;
     }
 
-    private String detectTeamByBackground(BufferedImage image) {
-        // DETECÇÃO POR CORES DOMINANTES - CONFORME ESPECIFICADO PELO USUÁRIO
-        int width = image.getWidth();
-        int height = image.getHeight();
-
-        Color[] samples = {
-            new Color(image.getRGB(5, 5)),
-            new Color(image.getRGB(width-5, 5)),
-            new Color(image.getRGB(5, height-5)),
-            new Color(image.getRGB(width-5, height-5)),
-            new Color(image.getRGB(width/2, 5)),
-            new Color(image.getRGB(5, height/2))
-        };
+    /**
+     * Varre a imagem uma vez, linha a linha, preenchendo as características de todos os detectores.
+     * Os pontos amostrados são os mesmos que cada detector lia antes por conta própria.
+     */
+    private ShieldFeatures extractFeatures(PixelPlanes pixels) {
+        int width = pixels.getWidth();
+        int height = pixels.getHeight();
+        int centerX = width / 2;
+        int centerY = height / 2;
+        int crownY = centerY - 40;
+        ShieldFeatures features = new ShieldFeatures();
+
+        // Fundo: seis pontos fixos nas bordas (fora da imagem lança exceção, como o getRGB)
+        countBackground(features, pixels.rgb(5, 5));
+        countBackground(features, pixels.rgb(width-5, 5));
+        countBackground(features, pixels.rgb(5, height-5));
+        countBackground(features, pixels.rgb(width-5, height-5));
+        countBackground(features, pixels.rgb(width/2, 5));
+        countBackground(features, pixels.rgb(5, height/2));
+
+        features.textRegion = 50 < height;
+        features.stripeColumnBlackPixels = new int[width > 80 ? (width - 81) / 20 + 1 : 0];
+
+        for (int y = 0; y < height; y++) {
+            // Texto: linha 50 a cada 5 px
+            if (y == 50) {
+                for (int x = 30; x < width - 30; x += 5) {
+                    if (isBelow(pixels.rgb(x, y), 100)) features.textDarkPixels++;
+                }
+            }
+            if (y == 30 && width > 50) {
+                features.textBackground = pixels.rgb(50, y);
+            }
 
-        // Conta amostras de cada cor dominante
-        int whiteCount = 0, greenCount = 0, redCount = 0, blueCount = 0, blackCount = 0,
-            yellowCount = 0, purpleCount = 0, orangeCount = 0;
+            // Listras verticais pretas: colunas a cada 20 px, linhas a cada 10 px
+            if (y >= 50 && y < height - 50 && (y - 50) % 10 == 0) {
+                for (int x = 40, column = 0; x < width - 40; x += 20, column++) {
+                    if (isBelow(pixels.rgb(x, y), 50)) features.stripeColumnBlackPixels[column]++;
+                }
+            }
+
+            // Listras horizontais grená: linhas a cada 15 px
+            if (y >= 30 && y < height - 30 && (y - 30) % 15 == 0) {
+                int maroonPixels = 0;
+                for (int x = 50; x < width - 50; x += 10) {
+                    int pixel = pixels.rgb(x, y);
+                    if (red(pixel) > 100 && green(pixel) < 50 && blue(pixel) < 50) {
+                        maroonPixels++;
+                    }
+                }
+                if (maroonPixels > 3) features.maroonStripeRows++;
+            }
 
-        for (Color sample : samples) {
-            if (isWhite(sample)) whiteCount++;
-            if (isGreen(sample)) greenCount++;
-            // PRIORIDADE: Verificar LARANJA antes de VERMELHO para evitar conflito
-            if (isOrange(sample)) orangeCount++;
-            else if (isRed(sample)) redCount++;
-            if (isDarkBlue(sample)) blueCount++;
-            if (isBlack(sample)) blackCount++;
-            if (isYellow(sample)) yellowCount++;
-            if (isPurple(sample)) purpleCount++;
+            // Cruz: coluna e linha centrais, a cada 5 px até 30 px do centro
+            if (y >= centerY - 30 && y <= centerY + 30 && (y - centerY) % 5 == 0) {
+                if (isBelow(pixels.rgb(centerX, y), 50)) features.crossBlackPixels++;
+            }
+            if (y == centerY) {
+                for (int x = centerX - 30; x <= centerX + 30; x += 5) {
+                    if (x >= 0 && x < width && isBelow(pixels.rgb(x, y), 50)) features.crossBlackPixels++;
+                }
+            }
+
+            // Estrelas verdes: grade de 10 px até 40 px do centro
+            if (y >= centerY - 40 && y <= centerY + 40 && (y - centerY) % 10 == 0) {
+                for (int x = centerX - 40; x <= centerX + 40; x += 10) {
+                    if (x >= 0 && x < width) {
+                        int pixel = pixels.rgb(x, y);
+                        if (green(pixel) > 100 && red(pixel) < 100 && blue(pixel) < 100) {
+                            features.starGreenPixels++;
+                        }
+                    }
+                }
+            }
+
+            // Chama amarela: grade de 5 px até 20 px do centro
+            if (y >= centerY - 20 && y <= centerY + 20 && (y - centerY) % 5 == 0) {
+                for (int x = centerX - 20; x <= centerX + 20; x += 5) {
+                    if (x >= 0 && x < width) {
+                        int pixel = pixels.rgb(x, y);
+                        if (red(pixel) > 200 && green(pixel) > 200 && blue(pixel) < 100) {
+                            features.flamePixels++;
+                        }
+                    }
+                }
+            }
+
+            // Coroa dourada: grade de 5 px acima do centro
+            if (y >= crownY - 20 && y <= crownY + 20 && (y - crownY) % 5 == 0) {
+                for (int x = centerX - 30; x <= centerX + 30; x += 5) {
+                    if (x >= 0 && x < width) {
+                        int pixel = pixels.rgb(x, y);
+                        if (red(pixel) > 200 && green(pixel) > 180 && blue(pixel) < 100) {
+                            features.crownPixels++;
+                        }
+                    }
+                }
+            }
         }
 
+        return features;
+    }
+
+    private void countBackground(ShieldFeatures features, int sample) {
+        if (isWhite(sample)) features.whiteCount++;
+        if (isGreen(sample)) features.greenCount++;
+        // PRIORIDADE: Verificar LARANJA antes de VERMELHO para evitar conflito
+        if (isOrange(sample)) features.orangeCount++;
+        else if (isRed(sample)) features.redCount++;
+        if (isDarkBlue(sample)) features.blueCount++;
+        if (isBlack(sample)) features.blackCount++;
+        if (isYellow(sample)) features.yellowCount++;
+        if (isPurple(sample)) features.purpleCount++;
+    }
+
+    private String detectTeamByBackground(ShieldFeatures features) {
+        // DETECÇÃO POR CORES DOMINANTES - CONFORME ESPECIFICADO PELO USUÁRIO
+        int whiteCount = features.whiteCount, greenCount = features.greenCount, redCount = features.redCount,
+            blueCount = features.blueCount, blackCount = features.blackCount, yellowCount = features.yellowCount,
+            purpleCount = features.purpleCount, orangeCount = features.orangeCount;
+
         System.out.println("🔍 Contagem cores: Verde=" + greenCount + ", Amarelo=" + yellowCount +
                           ", Branco=" + whiteCount + ", Vermelho=" + redCount + ", Preto=" + blackCount +
                           ", Azul=" + blueCount + ", Roxo=" + purpleCount + ", Laranja=" + orangeCount);
@@ -345,25 +476,14 @@ public class TeamShieldAnalyzer {
         return null;
     }
 
-    private String detectTeamByText(BufferedImage image) {
+    private String detectTeamByText(ShieldFeatures features) {
         // Procura por pixels escuros na região superior (onde colocamos o texto)
-        int textRegionY = 50;
-        int width = image.getWidth();
-        int height = image.getHeight();
-
-        if (textRegionY >= height) return null;
-
-        int darkPixelCount = 0;
-        for (int x = 30; x < width - 30; x += 5) {
-            Color pixel = new Color(image.getRGB(x, textRegionY));
-            if (pixel.getRed() < 100 && pixel.getGreen() < 100 && pixel.getBlue() < 100) {
-                darkPixelCount++;
-            }
-        }
+        if (!features.textRegion) return null;
 
+        int darkPixelCount = features.textDarkPixels;
         if (darkPixelCount > 5) {
             // Tem texto, agora verifica a cor de fundo para identificar o time
-            Color bgColor = new Color(image.getRGB(50, 30));
+            int bgColor = features.textBackground;
 
             if (isWhite(bgColor)) return "Corinthians";
             if (isGreen(bgColor)) return "Palmeiras";
@@ -379,40 +499,37 @@ public class TeamShieldAnalyzer {
         return null;
     }
 
-    private String detectTeamByPattern(BufferedImage image) {
+    private String detectTeamByPattern(ShieldFeatures features) {
         // DETECTAR LISTRAS ESPECÍFICAS
-        if (hasVerticalBlackStripes(image)) {
+        if (hasVerticalBlackStripes(features)) {
             return "Flamengo"; // Listras verticais pretas em fundo vermelho
         }
 
-        if (hasHorizontalMaroonStripes(image)) {
+        if (hasHorizontalMaroonStripes(features)) {
             return "Barcelona"; // Listras horizontais grená em fundo azul
         }
 
         return null;
     }
 
-    private String detectTeamBySymbol(BufferedImage image) {
-        int centerX = image.getWidth() / 2;
-        int centerY = image.getHeight() / 2;
-
+    private String detectTeamBySymbol(ShieldFeatures features) {
         // DETECTAR CRUZ PRETA (Corinthians)
-        if (hasBlackCross(image)) {
+        if (hasBlackCross(features)) {
             return "Corinthians";
         }
 
         // DETECTAR MÚLTIPLAS ESTRELAS VERDES (Palmeiras)
-        if (hasGreenStars(image)) {
+        if (hasGreenStars(features)) {
             return "Palmeiras";
         }
 
         // DETECTAR CHAMA AMARELA (Flamengo)
-        if (hasYellowFlame(image)) {
+        if (hasYellowFlame(features)) {
             return "Flamengo";
         }
 
         // DETECTAR COROA DOURADA (Real Madrid)
-        if (hasGoldCrown(image)) {
+        if (hasGoldCrown(features)) {
             return "Real Madrid";
         }
 
@@ -479,198 +596,114 @@ public class TeamShieldAnalyzer {
     }
 
     // MÉTODOS AUXILIARES PARA DETECÇÃO PRECISA - MAIS TOLERANTES
-    private boolean isWhite(Color color) {
+    private boolean isWhite(int color) {
         // Mais tolerante para branco
-        return color.getRed() > 180 && color.getGreen() > 180 && color.getBlue() > 180;
+        return red(color) > 180 && green(color) > 180 && blue(color) > 180;
     }
 
-    private boolean isGreen(Color color) {
+    private boolean isGreen(int color) {
         // Verde: canal verde dominante
-        return color.getGreen() > 80 &&
-               color.getGreen() > color.getRed() + 30 &&
-               color.getGreen() > color.getBlue() + 30;
+        return green(color) > 80 &&
+               green(color) > red(color) + 30 &&
+               green(color) > blue(color) + 30;
     }
 
-    private boolean isRed(Color color) {
+    private boolean isRed(int color) {
         // Vermelho puro: canal vermelho dominante, verde e azul baixos
         // RGB típico do vermelho: (220, 20, 60) - pouco verde comparado ao laranja
-        return color.getRed() > 150 &&
-               color.getGreen() < 120 &&  // Verde deve ser baixo (diferente do laranja)
-               color.getBlue() < 120 &&
-               color.getRed() > color.getGreen() + 60 &&  // Vermelho muito maior que verde
-               color.getRed() > color.getBlue() + 60;     // Vermelho muito maior que azul
+        return red(color) > 150 &&
+               green(color) < 120 &&  // Verde deve ser baixo (diferente do laranja)
+               blue(color) < 120 &&
+               red(color) > green(color) + 60 &&  // Vermelho muito maior que verde
+               red(color) > blue(color) + 60;     // Vermelho muito maior que azul
     }
 
-    private boolean isDarkBlue(Color color) {
+    private boolean isDarkBlue(int color) {
         // Azul escuro: canal azul dominante mas não muito claro
-        return color.getBlue() > 80 &&
-               color.getBlue() > color.getRed() + 20 &&
-               color.getBlue() > color.getGreen() + 20 &&
-               (color.getRed() + color.getGreen() + color.getBlue()) < 400;
+        return blue(color) > 80 &&
+               blue(color) > red(color) + 20 &&
+               blue(color) > green(color) + 20 &&
+               (red(color) + green(color) + blue(color)) < 400;
     }
 
-    private boolean isBlack(Color color) {
+    private boolean isBlack(int color) {
         // Preto: todos os canais baixos
-        return color.getRed() < 80 && color.getGreen() < 80 && color.getBlue() < 80;
+        return red(color) < 80 && green(color) < 80 && blue(color) < 80;
     }
 
-    private boolean isYellow(Color color) {
+    private boolean isYellow(int color) {
         // Amarelo: vermelho e verde altos, azul baixo
-        return color.getRed() > 180 && color.getGreen() > 180 && color.getBlue() < 100;
+        return red(color) > 180 && green(color) > 180 && blue(color) < 100;
     }
 
-    private boolean isPurple(Color color) {
+    private boolean isPurple(int color) {
         // Roxo: vermelho e azul altos, verde baixo
-        return color.getRed() > 100 && color.getBlue() > 100 &&
-               color.getRed() + color.getBlue() > color.getGreen() + 100;
+        return red(color) > 100 && blue(color) > 100 &&
+               red(color) + blue(color) > green(color) + 100;
     }
 
-    private boolean isOrange(Color color) {
+    private boolean isOrange(int color) {
         // Laranja: vermelho alto, verde médio-alto (mais que vermelho puro), azul baixo
         // RGB típico do laranja: (255, 140, 0) - mais verde que o vermelho puro
-        return color.getRed() > 200 &&
-               color.getGreen() > 120 && color.getGreen() < 180 &&
-               color.getBlue() < 80 &&
-               color.getRed() > color.getGreen() + 50 &&  // Vermelho deve ser bem maior que verde
-               color.getGreen() > color.getBlue() + 40;   // Verde deve ser bem maior que azul
+        return red(color) > 200 &&
+               green(color) > 120 && green(color) < 180 &&
+               blue(color) < 80 &&
+               red(color) > green(color) + 50 &&  // Vermelho deve ser bem maior que verde
+               green(color) > blue(color) + 40;   // Verde deve ser bem maior que azul
     }
 
-    private boolean hasBlackCross(BufferedImage image) {
-        int centerX = image.getWidth() / 2;
-        int centerY = image.getHeight() / 2;
+    private boolean isBelow(int color, int limit) {
+        // Todos os canais abaixo do limite (escuro)
+        return red(color) < limit && green(color) < limit && blue(color) < limit;
+    }
 
-        // Verifica pixels pretos no centro (cruz)
-        int blackPixels = 0;
-        for (int i = -30; i <= 30; i += 5) {
-            // Linha vertical
-            if (centerX >= 0 && centerX < image.getWidth() &&
-                centerY + i >= 0 && centerY + i < image.getHeight()) {
-                Color pixel = new Color(image.getRGB(centerX, centerY + i));
-                if (pixel.getRed() < 50 && pixel.getGreen() < 50 && pixel.getBlue() < 50) {
-                    blackPixels++;
-                }
-            }
-            // Linha horizontal
-            if (centerX + i >= 0 && centerX + i < image.getWidth() &&
-                centerY >= 0 && centerY < image.getHeight()) {
-                Color pixel = new Color(image.getRGB(centerX + i, centerY));
-                if (pixel.getRed() < 50 && pixel.getGreen() < 50 && pixel.getBlue() < 50) {
-                    blackPixels++;
-                }
-            }
-        }
-        return blackPixels > 8;
+    private boolean hasBlackCross(ShieldFeatures features) {
+        // Pixels pretos no centro (cruz)
+        return features.crossBlackPixels > 8;
     }
 
-    private boolean hasBlackStripes(BufferedImage image) {
+    private boolean hasBlackStripes(ShieldFeatures features) {
         // Verifica listras verticais pretas
-        return hasVerticalBlackStripes(image);
+        return hasVerticalBlackStripes(features);
     }
 
-    private boolean hasVerticalBlackStripes(BufferedImage image) {
-        int height = image.getHeight();
-        int stripeWidth = 20;
-
-        // Verifica se há alternância de cores verticais
-        for (int x = 40; x < image.getWidth() - 40; x += stripeWidth) {
-            int blackPixels = 0;
-            for (int y = 50; y < height - 50; y += 10) {
-                Color pixel = new Color(image.getRGB(x, y));
-                if (pixel.getRed() < 50 && pixel.getGreen() < 50 && pixel.getBlue() < 50) {
-                    blackPixels++;
-                }
-            }
+    private boolean hasVerticalBlackStripes(ShieldFeatures features) {
+        // Alguma coluna com pixels pretos suficientes
+        for (int blackPixels : features.stripeColumnBlackPixels) {
             if (blackPixels > 3) return true;
         }
         return false;
     }
 
-    private boolean hasMaroonStripes(BufferedImage image) {
-        return hasHorizontalMaroonStripes(image);
+    private boolean hasMaroonStripes(ShieldFeatures features) {
+        return hasHorizontalMaroonStripes(features);
     }
 
-    private boolean hasHorizontalMaroonStripes(BufferedImage image) {
-        int width = image.getWidth();
-        int stripeHeight = 15;
-
-        // Verifica se há listras horizontais grená
-        for (int y = 30; y < image.getHeight() - 30; y += stripeHeight) {
-            int maroonPixels = 0;
-            for (int x = 50; x < width - 50; x += 10) {
-                Color pixel = new Color(image.getRGB(x, y));
-                if (pixel.getRed() > 100 && pixel.getGreen() < 50 && pixel.getBlue() < 50) {
-                    maroonPixels++;
-                }
-            }
-            if (maroonPixels > 3) return true;
-        }
-        return false;
+    private boolean hasHorizontalMaroonStripes(ShieldFeatures features) {
+        return features.maroonStripeRows > 0;
     }
 
-    private boolean hasGreenStars(BufferedImage image) {
-        // Procura por pixels verdes em formato de estrela
-        int centerX = image.getWidth() / 2;
-        int centerY = image.getHeight() / 2;
-
-        int greenPixels = 0;
-        for (int y = centerY - 40; y <= centerY + 40; y += 10) {
-            for (int x = centerX - 40; x <= centerX + 40; x += 10) {
-                if (x >= 0 && x < image.getWidth() && y >= 0 && y < image.getHeight()) {
-                    Color pixel = new Color(image.getRGB(x, y));
-                    if (pixel.getGreen() > 100 && pixel.getRed() < 100 && pixel.getBlue() < 100) {
-                        greenPixels++;
-                    }
-                }
-            }
-        }
-        return greenPixels > 5;
+    private boolean hasGreenStars(ShieldFeatures features) {
+        return features.starGreenPixels > 5;
     }
 
-    private boolean hasYellowFlame(BufferedImage image) {
-        // Procura por pixels amarelos no centro (chama)
-        int centerX = image.getWidth() / 2;
-        int centerY = image.getHeight() / 2;
-
-        for (int y = centerY - 20; y <= centerY + 20; y += 5) {
-            for (int x = centerX - 20; x <= centerX + 20; x += 5) {
-                if (x >= 0 && x < image.getWidth() && y >= 0 && y < image.getHeight()) {
-                    Color pixel = new Color(image.getRGB(x, y));
-                    if (pixel.getRed() > 200 && pixel.getGreen() > 200 && pixel.getBlue() < 100) {
-                        return true; // Encontrou amarelo
-                    }
-                }
-            }
-        }
-        return false;
+    private boolean hasYellowFlame(ShieldFeatures features) {
+        return features.flamePixels > 0;
     }
 
-    private boolean hasGoldCrown(BufferedImage image) {
-        // Procura por pixels dourados na parte superior
-        int centerX = image.getWidth() / 2;
-        int topY = image.getHeight() / 2 - 40;
-
-        for (int y = topY - 20; y <= topY + 20; y += 5) {
-            for (int x = centerX - 30; x <= centerX + 30; x += 5) {
-                if (x >= 0 && x < image.getWidth() && y >= 0 && y < image.getHeight()) {
-                    Color pixel = new Color(image.getRGB(x, y));
-                    if (pixel.getRed() > 200 && pixel.getGreen() > 180 && pixel.getBlue() < 100) {
-                        return true; // Encontrou dourado
-                    }
-                }
-            }
-        }
-        return false;
+    private boolean hasGoldCrown(ShieldFeatures features) {
+        return features.crownPixels > 0;
     }
 
     // === MÉTODOS DE DETECÇÃO ESPECÍFICA PARA TIMES SIMILARES ===
 
-    private boolean hasSantosPattern(BufferedImage image) {
+    private boolean hasSantosPattern(PixelPlanes pixels) {
         // Santos: Procurar por texto "SANTOS" ou padrões específicos
-        int width = image.getWidth();
-        int height = image.getHeight();
+        int width = pixels.getWidth();
+        int height = pixels.getHeight();
 
         // Verificar região do texto superior
-        if (hasTextPattern(image, "SANTOS")) {
+        if (hasTextPattern(pixels, "SANTOS")) {
             return true;
         }
 
@@ -684,7 +717,7 @@ public class TeamShieldAnalyzer {
         for (int y = centerY - 20; y <= centerY + 20; y += 3) {
             for (int x = centerX - 30; x <= centerX + 30; x += 3) {
                 if (x >= 0 && x < width && y >= 0 && y < height) {
-                    Color pixel = new Color(image.getRGB(x, y));
+                    int pixel = pixels.rgb(x, y);
                     if (isBlack(pixel)) {
                         blackPixels++;
                     }
@@ -698,10 +731,10 @@ public class TeamShieldAnalyzer {
         return blackDensity > 0.15; // 15% de pixels pretos na região central
     }
 
-    private boolean hasBarcelonaStripes(BufferedImage image) {
+    private boolean hasBarcelonaStripes(PixelPlanes pixels) {
         // Barcelona: Listras horizontais grená (marrom-avermelhado) e azul
-        int width = image.getWidth();
-        int height = image.getHeight();
+        int width = pixels.getWidth();
+        int height = pixels.getHeight();
 
         int stripePatterns = 0;
         int stripeHeight = 15;
@@ -712,15 +745,15 @@ public class TeamShieldAnalyzer {
             int bluePixels = 0;
 
             for (int x = 50; x < width - 50; x += 8) {
-                Color pixel = new Color(image.getRGB(x, y));
+                int pixel = pixels.rgb(x, y);
 
                 // Grená: vermelho escuro com pouco verde/azul
-                if (pixel.getRed() > 120 && pixel.getGreen() < 60 && pixel.getBlue() < 60) {
+                if (red(pixel) > 120 && green(pixel) < 60 && blue(pixel) < 60) {
                     maroonPixels++;
                 }
 
                 // Azul Barcelona: azul predominante
-                if (pixel.getBlue() > 100 && pixel.getBlue() > pixel.getRed() + 30) {
+                if (blue(pixel) > 100 && blue(pixel) > red(pixel) + 30) {
                     bluePixels++;
                 }
             }
@@ -734,17 +767,17 @@ public class TeamShieldAnalyzer {
         return stripePatterns >= 3; // Pelo menos 3 listras detectadas
     }
 
-    private boolean hasFlamengoPattern(BufferedImage image) {
+    private boolean hasFlamengoPattern(PixelPlanes pixels, ShieldFeatures features) {
         // Flamengo: Listras verticais vermelhas/pretas OU chama amarela
 
         // Primeiro: Verificar chama amarela (método já existente)
-        if (hasYellowFlame(image)) {
+        if (hasYellowFlame(features)) {
             return true;
         }
 
         // Segundo: Verificar listras verticais vermelhas/pretas
-        int width = image.getWidth();
-        int height = image.getHeight();
+        int width = pixels.getWidth();
+        int height = pixels.getHeight();
         int stripeWidth = 20;
         int verticalStripes = 0;
 
@@ -753,7 +786,7 @@ public class TeamShieldAnalyzer {
             int blackPixels = 0;
 
             for (int y = 50; y < height - 50; y += 8) {
-                Color pixel = new Color(image.getRGB(x, y));
+                int pixel = pixels.rgb(x, y);
 
                 // PRIORIDADE: Verificar laranja antes de vermelho para evitar conflito
                 if (isOrange(pixel)) {
@@ -775,13 +808,13 @@ public class TeamShieldAnalyzer {
         return verticalStripes >= 2; // Pelo menos 2 listras verticais
     }
 
-    private boolean hasVascoPattern(BufferedImage image) {
+    private boolean hasVascoPattern(PixelPlanes pixels) {
         // Vasco: Faixa diagonal preta OU cruz de malta
-        int width = image.getWidth();
-        int height = image.getHeight();
+        int width = pixels.getWidth();
+        int height = pixels.getHeight();
 
         // Verificar texto "VASCO"
-        if (hasTextPattern(image, "VASCO")) {
+        if (hasTextPattern(pixels, "VASCO")) {
             return true;
         }
 
@@ -794,7 +827,7 @@ public class TeamShieldAnalyzer {
             int y = 20 + i;
 
             if (x < width && y < height) {
-                Color pixel = new Color(image.getRGB(x, y));
+                int pixel = pixels.rgb(x, y);
                 if (isBlack(pixel) || isDarkColor(pixel)) {
                     diagonalPixels++;
                 }
@@ -807,7 +840,7 @@ public class TeamShieldAnalyzer {
             int y = 20 + i;
 
             if (x >= 0 && x < width && y < height) {
-                Color pixel = new Color(image.getRGB(x, y));
+                int pixel = pixels.rgb(x, y);
                 if (isBlack(pixel) || isDarkColor(pixel)) {
                     diagonalPixels++;
                 }
@@ -817,10 +850,10 @@ public class TeamShieldAnalyzer {
         return diagonalPixels > 8; // Padrão diagonal detectado
     }
 
-    private boolean hasTextPattern(BufferedImage image, String expectedText) {
+    private boolean hasTextPattern(PixelPlanes pixels, String expectedText) {
         // Simular detecção de texto específico baseado em padrões de pixels
-        int width = image.getWidth();
-        int height = image.getHeight();
+        int width = pixels.getWidth();
+        int height = pixels.getHeight();
 
         // Procurar região de texto (geralmente na parte superior)
         int textRegionY = Math.min(50, height / 4);
@@ -828,7 +861,7 @@ public class TeamShieldAnalyzer {
 
         for (int y = 10; y < textRegionY; y += 3) {
             for (int x = 30; x < width - 30; x += 5) {
-                Color pixel = new Color(image.getRGB(x, y));
+                int pixel = pixels.rgb(x, y);
 
                 // Texto costuma ser escuro
                 if (isDarkColor(pixel)) {
@@ -842,58 +875,70 @@ public class TeamShieldAnalyzer {
         return darkTextPixels > 15;
     }
 
-    private boolean isDarkColor(Color color) {
+    private boolean isDarkColor(int color) {
         // Considera uma cor "escura" se a soma dos canais é baixa
-        return (color.getRed() + color.getGreen() + color.getBlue()) < 200;
+        return (red(color) + green(color) + blue(color)) < 200;
     }
 
-    private void analyzeColorsBasic(BufferedImage image, AdvancedShieldAnalysis analysis) {
+    private void analyzeColorsBasic(PixelPlanes pixels, AdvancedShieldAnalysis analysis) {
         // Análise básica de cores como fallback
         analysis.primaryColor = Color.BLUE;
         analysis.secondaryColor = Color.WHITE;
     }
 
-    private void analyzeColorsAdvanced(BufferedImage image, AdvancedShieldAnalysis analysis) {
+    // Não é chamado: o fallback de performAdvancedShieldAnalysis usa analyzeColorsBasic
+    private void analyzeColorsAdvanced(PixelPlanes pixels, AdvancedShieldAnalysis analysis) {
         // Análise de cores mais precisa focando no centro do escudo
-        int width = image.getWidth();
-        int height = image.getHeight();
+        int width = pixels.getWidth();
+        int height = pixels.getHeight();
 
         // Definir região central do escudo (onde estão as cores principais)
         int centerX = width / 2;
         int centerY = height / 2;
         int regionSize = Math.min(width, height) / 3;
 
-        Map<Color, Integer> colorFrequency = new HashMap<>();
+        // Histograma das cores quantizadas: índice = nível R * 36 + nível G * 6 + nível B
+        int[] colorFrequency = new int[QUANT_LEVELS * QUANT_LEVELS * QUANT_LEVELS];
         int totalPixels = 0;
 
         for (int y = centerY - regionSize; y < centerY + regionSize; y += 2) {
             for (int x = centerX - regionSize; x < centerX + regionSize; x += 2) {
                 if (x >= 0 && x < width && y >= 0 && y < height) {
-                    Color pixel = new Color(image.getRGB(x, y));
-                    Color quantized = quantizeColorAdvanced(pixel);
-                    colorFrequency.put(quantized, colorFrequency.getOrDefault(quantized, 0) + 1);
+                    colorFrequency[quantizeColorAdvanced(pixels.rgb(x, y))]++;
                     totalPixels++;
                 }
             }
         }
 
-        // Encontrar as duas cores mais dominantes
-        analysis.primaryColor = findMostFrequentColor(colorFrequency);
-        analysis.secondaryColor = findSecondMostFrequentColor(colorFrequency, analysis.primaryColor);
+        // Encontrar as duas cores mais dominantes numa passada (empate: menor índice)
+        int primary = -1;
+        int secondary = -1;
+        for (int bin = 0; bin < colorFrequency.length; bin++) {
+            int count = colorFrequency[bin];
+            if (count == 0) continue;
+            if (primary < 0 || count > colorFrequency[primary]) {
+                secondary = primary;
+                primary = bin;
+            } else if (secondary < 0 || count > colorFrequency[secondary]) {
+                secondary = bin;
+            }
+        }
+        analysis.primaryColor = primary >= 0 ? quantizedColor(primary) : Color.RED;
+        analysis.secondaryColor = secondary >= 0 ? quantizedColor(secondary) : Color.WHITE;
 
         // Calcular confiança da detecção de cores
-        int primaryCount = colorFrequency.getOrDefault(analysis.primaryColor, 0);
+        int primaryCount = primary >= 0 ? colorFrequency[primary] : 0;
         analysis.colorConfidence = (double) primaryCount / totalPixels;
     }
 
-    private void analyzeShapeAdvanced(BufferedImage image, AdvancedShieldAnalysis analysis) {
+    private void analyzeShapeAdvanced(PixelPlanes pixels, AdvancedShieldAnalysis analysis) {
         analysis.shapeScores = new HashMap<>();
 
         // Detectar cada forma com score específico
-        analysis.shapeScores.put("Circular", detectCircularShapeScore(image));
-        analysis.shapeScores.put("Retangular", detectRectangularShapeScore(image));
-        analysis.shapeScores.put("Triangular", detectTriangularShapeScore(image));
-        analysis.shapeScores.put("Oval", detectOvalShapeScore(image));
+        analysis.shapeScores.put("Circular", detectCircularShapeScore(pixels));
+        analysis.shapeScores.put("Retangular", detectRectangularShapeScore(pixels));
+        analysis.shapeScores.put("Triangular", detectTriangularShapeScore(pixels));
+        analysis.shapeScores.put("Oval", detectOvalShapeScore(pixels));
 
         // Determinar forma dominante
         String bestShape = "Retangular";
@@ -909,14 +954,14 @@ public class TeamShieldAnalyzer {
         analysis.shapeConfidence = bestScore;
     }
 
-    private void analyzeSymbolsAdvanced(BufferedImage image, AdvancedShieldAnalysis analysis) {
+    private void analyzeSymbolsAdvanced(PixelPlanes pixels, AdvancedShieldAnalysis analysis) {
         analysis.symbolScores = new HashMap<>();
 
         // Detectar símbolos específicos
-        analysis.symbolScores.put("Estrela", detectStarSymbolScore(image));
-        analysis.symbolScores.put("Aguia", detectEagleSymbolScore(image));
-        analysis.symbolScores.put("Leao", detectLionSymbolScore(image));
-        analysis.symbolScores.put("Coroa", detectCrownSymbolScore(image));
+        analysis.symbolScores.put("Estrela", detectStarSymbolScore(pixels));
+        analysis.symbolScores.put("Aguia", detectEagleSymbolScore(pixels));
+        analysis.symbolScores.put("Leao", detectLionSymbolScore(pixels));
+        analysis.symbolScores.put("Coroa", detectCrownSymbolScore(pixels));
 
         // Determinar símbolo mais provável
         String bestSymbol = "Nenhum";
@@ -931,16 +976,16 @@ public class TeamShieldAnalyzer {
         analysis.detectedSymbol = bestSymbol;
     }
 
-    private void analyzePatternsAdvanced(BufferedImage image, AdvancedShieldAnalysis analysis) {
+    private void analyzePatternsAdvanced(PixelPlanes pixels, AdvancedShieldAnalysis analysis) {
         // Detectar listras horizontais
-        analysis.hasStripes = detectHorizontalStripes(image);
+        analysis.hasStripes = detectHorizontalStripes(pixels);
 
         // Detectar texto/iniciais
-        analysis.hasText = detectTextAdvanced(image);
-        analysis.detectedInitials = extractInitials(image);
+        analysis.hasText = detectTextAdvanced(pixels);
+        analysis.detectedInitials = extractInitials(pixels);
 
         // Calcular contraste global
-        analysis.globalContrast = calculateGlobalContrast(image);
+        analysis.globalContrast = calculateGlobalContrast(pixels);
     }
 
     private void calculateAnalysisConfidence(AdvancedShieldAnalysis analysis) {
@@ -962,32 +1007,21 @@ public class TeamShieldAnalyzer {
         analysis.colorConfidence = Math.max(0.5, Math.min(0.95, confidence));
     }
 
-    private Color quantizeColorAdvanced(Color original) {
-        // Quantização mais agressiva para reduzir ruído
-        int r = (original.getRed() / 50) * 50;
-        int g = (original.getGreen() / 50) * 50;
-        int b = (original.getBlue() / 50) * 50;
-        return new Color(Math.min(255, r), Math.min(255, g), Math.min(255, b));
-    }
-
-    private Color findMostFrequentColor(Map<Color, Integer> colorFreq) {
-        return colorFreq.entrySet().stream()
-            .max(Map.Entry.comparingByValue())
-            .map(Map.Entry::getKey)
-            .orElse(Color.RED);
+    private int quantizeColorAdvanced(int rgb) {
+        // Quantização mais agressiva para reduzir ruído: índice da cor no histograma
+        return (QUANT_LEVEL[red(rgb)] * QUANT_LEVELS + QUANT_LEVEL[green(rgb)]) * QUANT_LEVELS + QUANT_LEVEL[blue(rgb)];
     }
 
-    private Color findSecondMostFrequentColor(Map<Color, Integer> colorFreq, Color primary) {
-        return colorFreq.entrySet().stream()
-            .filter(entry -> !entry.getKey().equals(primary))
-            .max(Map.Entry.comparingByValue())
-            .map(Map.Entry::getKey)
-            .orElse(Color.WHITE);
+    private Color quantizedColor(int bin) {
+        int r = bin / (QUANT_LEVELS * QUANT_LEVELS) * QUANT_STEP;
+        int g = bin / QUANT_LEVELS % QUANT_LEVELS * QUANT_STEP;
+        int b = bin % QUANT_LEVELS * QUANT_STEP;
+        return new Color(r, g, b);
     }
 
-    private double detectCircularShapeScore(BufferedImage image) {
-        int width = image.getWidth();
-        int height = image.getHeight();
+    private double detectCircularShapeScore(PixelPlanes pixels) {
+        int width = pixels.getWidth();
+        int height = pixels.getHeight();
         int centerX = width / 2;
         int centerY = height / 2;
         int radius = Math.min(width, height) / 3;
@@ -1001,7 +1035,7 @@ public class TeamShieldAnalyzer {
             int y = centerY + (int) (radius * Math.sin(radians));
 
             if (x > 0 && x < width - 1 && y > 0 && y < height - 1) {
-                double edgeStrength = calculateEdgeStrength(image, x, y);
+                double edgeStrength = calculateEdgeStrength(pixels, x, y);
                 if (edgeStrength > 40) {
                     circularEdges++;
                 }
@@ -1012,38 +1046,38 @@ public class TeamShieldAnalyzer {
         return totalChecked > 0 ? (double) circularEdges / totalChecked : 0.0;
     }
 
-    private double detectRectangularShapeScore(BufferedImage image) {
-        int width = image.getWidth();
-        int height = image.getHeight();
+    private double detectRectangularShapeScore(PixelPlanes pixels) {
+        int width = pixels.getWidth();
+        int height = pixels.getHeight();
         int edgeCount = 0;
         int totalChecked = 0;
 
         // Verificar bordas horizontais e verticais
         for (int x = 20; x < width - 20; x += 10) {
-            if (calculateEdgeStrength(image, x, 20) > 30) edgeCount++;
-            if (calculateEdgeStrength(image, x, height - 20) > 30) edgeCount++;
+            if (calculateEdgeStrength(pixels, x, 20) > 30) edgeCount++;
+            if (calculateEdgeStrength(pixels, x, height - 20) > 30) edgeCount++;
             totalChecked += 2;
         }
 
         for (int y = 20; y < height - 20; y += 10) {
-            if (calculateEdgeStrength(image, 20, y) > 30) edgeCount++;
-            if (calculateEdgeStrength(image, width - 20, y) > 30) edgeCount++;
+            if (calculateEdgeStrength(pixels, 20, y) > 30) edgeCount++;
+            if (calculateEdgeStrength(pixels, width - 20, y) > 30) edgeCount++;
             totalChecked += 2;
         }
 
         return totalChecked > 0 ? (double) edgeCount / totalChecked : 0.0;
     }
 
-    private double detectTriangularShapeScore(BufferedImage image) {
-        int width = image.getWidth();
-        int height = image.getHeight();
+    private double detectTriangularShapeScore(PixelPlanes pixels) {
+        int width = pixels.getWidth();
+        int height = pixels.getHeight();
         int diagonalEdges = 0;
         int totalChecked = 0;
 
         // Verificar padrões diagonais
         for (int y = height / 4; y < 3 * height / 4; y += 10) {
             for (int x = width / 4; x < 3 * width / 4; x += 10) {
-                if (detectDiagonalEdge(image, x, y)) {
+                if (detectDiagonalEdge(pixels, x, y)) {
                     diagonalEdges++;
                 }
                 totalChecked++;
@@ -1053,37 +1087,29 @@ public class TeamShieldAnalyzer {
         return totalChecked > 0 ? (double) diagonalEdges / totalChecked : 0.0;
     }
 
-    private boolean detectDiagonalEdge(BufferedImage image, int x, int y) {
-        if (x < 2 || x >= image.getWidth() - 2 || y < 2 || y >= image.getHeight() - 2) {
+    private boolean detectDiagonalEdge(PixelPlanes pixels, int x, int y) {
+        if (x < 2 || x >= pixels.getWidth() - 2 || y < 2 || y >= pixels.getHeight() - 2) {
             return false;
         }
 
-        double current = getPixelIntensity(image, x, y);
-        double diagonal1 = getPixelIntensity(image, x + 2, y + 2);
-        double diagonal2 = getPixelIntensity(image, x - 2, y - 2);
+        double current = pixels.intensity(x, y);
+        double diagonal1 = pixels.intensity(x + 2, y + 2);
+        double diagonal2 = pixels.intensity(x - 2, y - 2);
 
         return Math.abs(current - diagonal1) > 30 || Math.abs(current - diagonal2) > 30;
     }
 
-    private double getPixelIntensity(BufferedImage image, int x, int y) {
-        if (x < 0 || x >= image.getWidth() || y < 0 || y >= image.getHeight()) {
-            return 0.0;
-        }
-
-        Color color = new Color(image.getRGB(x, y));
-        return 0.299 * color.getRed() + 0.587 * color.getGreen() + 0.114 * color.getBlue();
-    }
 
-    private double calculateEdgeStrength(BufferedImage image, int x, int y) {
-        if (x < 1 || x >= image.getWidth() - 1 || y < 1 || y >= image.getHeight() - 1) {
+    private double calculateEdgeStrength(PixelPlanes pixels, int x, int y) {
+        if (x < 1 || x >= pixels.getWidth() - 1 || y < 1 || y >= pixels.getHeight() - 1) {
             return 0.0;
         }
 
-        double current = getPixelIntensity(image, x, y);
-        double left = getPixelIntensity(image, x - 1, y);
-        double right = getPixelIntensity(image, x + 1, y);
-        double up = getPixelIntensity(image, x, y - 1);
-        double down = getPixelIntensity(image, x, y + 1);
+        double current = pixels.intensity(x, y);
+        double left = pixels.intensity(x - 1, y);
+        double right = pixels.intensity(x + 1, y);
+        double up = pixels.intensity(x, y - 1);
+        double down = pixels.intensity(x, y + 1);
 
         double horizontalGradient = Math.abs(right - left);
         double verticalGradient = Math.abs(down - up);
@@ -1091,10 +1117,10 @@ public class TeamShieldAnalyzer {
         return Math.sqrt(horizontalGradient * horizontalGradient + verticalGradient * verticalGradient);
     }
 
-    private double detectOvalShapeScore(BufferedImage image) {
+    private double detectOvalShapeScore(PixelPlanes pixels) {
         // Combinação de características circulares e retangulares
-        double circularScore = detectCircularShapeScore(image);
-        double rectangularScore = detectRectangularShapeScore(image);
+        double circularScore = detectCircularShapeScore(pixels);
+        double rectangularScore = detectRectangularShapeScore(pixels);
 
         // Oval tem características de ambos, mas não é dominante em nenhum
         if (circularScore > 0.3 && rectangularScore > 0.3 &&
@@ -1105,9 +1131,9 @@ public class TeamShieldAnalyzer {
         return 0.0;
     }
 
-    private double detectStarSymbolScore(BufferedImage image) {
-        int width = image.getWidth();
-        int height = image.getHeight();
+    private double detectStarSymbolScore(PixelPlanes pixels) {
+        int width = pixels.getWidth();
+        int height = pixels.getHeight();
         int centerX = width / 2;
         int centerY = height / 2;
 
@@ -1120,9 +1146,9 @@ public class TeamShieldAnalyzer {
             int x2 = centerX + (int) (30 * Math.cos(radians));
             int y2 = centerY + (int) (30 * Math.sin(radians));
 
-            if (isValidCoordinate(image, x1, y1) && isValidCoordinate(image, x2, y2)) {
-                double intensity1 = getPixelIntensity(image, x1, y1);
-                double intensity2 = getPixelIntensity(image, x2, y2);
+            if (isValidCoordinate(pixels, x1, y1) && isValidCoordinate(pixels, x2, y2)) {
+                double intensity1 = pixels.intensity(x1, y1);
+                double intensity2 = pixels.intensity(x2, y2);
 
                 // Padrão de estrela: alternância de claro e escuro
                 if (Math.abs(intensity1 - intensity2) > 40) {
@@ -1134,36 +1160,26 @@ public class TeamShieldAnalyzer {
         return radialPatterns / 12.0; // 12 verificações totais
     }
 
-    private double detectEagleSymbolScore(BufferedImage image) {
+    private double detectEagleSymbolScore(PixelPlanes pixels) {
         // Procurar por forma alongada verticalmente na região central
-        int width = image.getWidth();
-        int height = image.getHeight();
+        int width = pixels.getWidth();
+        int height = pixels.getHeight();
         int centerX = width / 2;
         int centerY = height / 2;
 
-        // Verificar se há uma forma vertical característica
-        double verticalIntensity = 0;
-        for (int y = centerY - 20; y < centerY + 20; y++) {
-            if (isValidCoordinate(image, centerX, y)) {
-                verticalIntensity += getPixelIntensity(image, centerX, y);
-            }
-        }
-
-        double horizontalIntensity = 0;
-        for (int x = centerX - 20; x < centerX + 20; x++) {
-            if (isValidCoordinate(image, x, centerY)) {
-                horizontalIntensity += getPixelIntensity(image, x, centerY);
-            }
-        }
+        // Verificar se há uma forma vertical característica (coluna e linha centrais, recortadas à imagem)
+        RegionStats regions = pixels.regions();
+        double verticalIntensity = regions.sumIntensity(centerX, centerY - 20, centerX + 1, centerY + 20);
+        double horizontalIntensity = regions.sumIntensity(centerX - 20, centerY, centerX + 20, centerY + 1);
 
         // Águia tem mais massa vertical que horizontal
         return verticalIntensity > horizontalIntensity * 1.2 ? 0.6 : 0.0;
     }
 
-    private double detectLionSymbolScore(BufferedImage image) {
+    private double detectLionSymbolScore(PixelPlanes pixels) {
         // Procurar por forma mais espalhada horizontalmente
-        int width = image.getWidth();
-        int height = image.getHeight();
+        int width = pixels.getWidth();
+        int height = pixels.getHeight();
         int centerX = width / 2;
         int centerY = height / 2;
 
@@ -1173,8 +1189,8 @@ public class TeamShieldAnalyzer {
 
         for (int y = centerY - 15; y < centerY + 15; y++) {
             for (int x = centerX - 15; x < centerX + 15; x++) {
-                if (isValidCoordinate(image, x, y)) {
-                    if (getPixelIntensity(image, x, y) < 100) {
+                if (isValidCoordinate(pixels, x, y)) {
+                    if (pixels.intensity(x, y) < 100) {
                         darkPixels++;
                     }
                     totalPixels++;
@@ -1186,10 +1202,10 @@ public class TeamShieldAnalyzer {
         return density > 0.4 ? density : 0.0;
     }
 
-    private double detectCrownSymbolScore(BufferedImage image) {
+    private double detectCrownSymbolScore(PixelPlanes pixels) {
         // Procurar por padrão de picos na parte superior
-        int width = image.getWidth();
-        int height = image.getHeight();
+        int width = pixels.getWidth();
+        int height = pixels.getHeight();
         int centerX = width / 2;
         int topY = height / 3;
 
@@ -1197,8 +1213,8 @@ public class TeamShieldAnalyzer {
         boolean wasHigh = false;
 
         for (int x = centerX - 30; x < centerX + 30; x += 3) {
-            if (isValidCoordinate(image, x, topY)) {
-                double intensity = getPixelIntensity(image, x, topY);
+            if (isValidCoordinate(pixels, x, topY)) {
+                double intensity = pixels.intensity(x, topY);
                 boolean isHigh = intensity < 80; // Pixel escuro (parte da coroa)
 
                 if (isHigh && !wasHigh) {
@@ -1212,16 +1228,16 @@ public class TeamShieldAnalyzer {
         return peaks > 2 ? Math.min(peaks / 5.0, 1.0) : 0.0;
     }
 
-    private boolean detectHorizontalStripes(BufferedImage image) {
-        int width = image.getWidth();
-        int height = image.getHeight();
+    private boolean detectHorizontalStripes(PixelPlanes pixels) {
+        int width = pixels.getWidth();
+        int height = pixels.getHeight();
         int centerX = width / 2;
 
         // Verificar se há alternância de cores em linhas horizontais
         int stripeCount = 0;
         for (int y = height / 3; y < 2 * height / 3; y += 5) {
-            double leftIntensity = getPixelIntensity(image, centerX - 20, y);
-            double rightIntensity = getPixelIntensity(image, centerX + 20, y);
+            double leftIntensity = pixels.intensity(centerX - 20, y);
+            double rightIntensity = pixels.intensity(centerX + 20, y);
 
             if (Math.abs(leftIntensity - rightIntensity) < 20) {
                 stripeCount++;
@@ -1231,16 +1247,16 @@ public class TeamShieldAnalyzer {
         return stripeCount > 3;
     }
 
-    private boolean detectTextAdvanced(BufferedImage image) {
+    private boolean detectTextAdvanced(PixelPlanes pixels) {
         // Melhor detecção de texto baseada em padrões regulares
-        int width = image.getWidth();
-        int height = image.getHeight();
+        int width = pixels.getWidth();
+        int height = pixels.getHeight();
 
         int textPatterns = 0;
         for (int y = 2 * height / 3; y < height - 20; y += 3) {
             int consecutiveEdges = 0;
             for (int x = width / 4; x < 3 * width / 4; x++) {
-                if (calculateEdgeStrength(image, x, y) > 25) {
+                if (calculateEdgeStrength(pixels, x, y) > 25) {
                     consecutiveEdges++;
                 } else {
                     if (consecutiveEdges > 5 && consecutiveEdges < 25) {
@@ -1254,22 +1270,22 @@ public class TeamShieldAnalyzer {
         return textPatterns > 3;
     }
 
-    private String extractInitials(BufferedImage image) {
+    private String extractInitials(PixelPlanes pixels) {
         // Simular extração de iniciais baseada na posição
-        if (detectTextAdvanced(image)) {
+        if (detectTextAdvanced(pixels)) {
             String[] commonInitials = {"FC", "SC", "AC", "EC", "CF", "CR"};
             return commonInitials[(int)(Math.random() * commonInitials.length)];
         }
         return "";
     }
 
-    private double calculateGlobalContrast(BufferedImage image) {
+    private double calculateGlobalContrast(PixelPlanes pixels) {
         double minIntensity = 255.0;
         double maxIntensity = 0.0;
 
-        for (int y = 0; y < image.getHeight(); y += 5) {
-            for (int x = 0; x < image.getWidth(); x += 5) {
-                double intensity = getPixelIntensity(image, x, y);
+        for (int y = 0; y < pixels.getHeight(); y += 5) {
+            for (int x = 0; x < pixels.getWidth(); x += 5) {
+                double intensity = pixels.intensity(x, y);
                 minIntensity = Math.min(minIntensity, intensity);
                 maxIntensity = Math.max(maxIntensity, intensity);
             }
@@ -1278,8 +1294,8 @@ public class TeamShieldAnalyzer {
         return maxIntensity - minIntensity;
     }
 
-    private boolean isValidCoordinate(BufferedImage image, int x, int y) {
-        return x >= 0 && x < image.getWidth() && y >= 0 && y < image.getHeight();
+    private boolean isValidCoordinate(PixelPlanes pixels, int x, int y) {
+        return x >= 0 && x < pixels.getWidth() && y >= 0 && y < pixels.getHeight();
     }
 
     private static class TeamMatchResult {
@@ -1516,13 +1532,15 @@ public class TeamShieldAnalyzer {
     }
 
     private TeamResult createErrorResult(String filename, String error) {
-        return new TeamResult(filename, "Time Desconhecido", "Liga Regional", "Brasil",
+        TeamResult result = new TeamResult(filename, "Time Desconhecido", "Liga Regional", "Brasil",
                             0.3, error, Color.GRAY, "Indefinida");
+        result.error = true;
+        return result;
     }
 
-    private String readTeamDNA(BufferedImage image) {
+    private String readTeamDNA(PixelPlanes pixels) {
         try {
-            if (image == null || image.getWidth() < 4 || image.getHeight() < 2) {
+            if (pixels == null || pixels.getWidth() < 4 || pixels.getHeight() < 2) {
                 return null;
             }
 
@@ -1531,12 +1549,11 @@ public class TeamShieldAnalyzer {
                 int x = i % 4;
                 int y = i / 4;
 
-                if (x >= image.getWidth() || y >= image.getHeight()) {
+                if (x >= pixels.getWidth() || y >= pixels.getHeight()) {
                     return null;
                 }
 
-                Color color = new Color(image.getRGB(x, y));
-                int greenLSB = color.getGreen() & 0x03;
+                int greenLSB = green(pixels.rgb(x, y)) & 0x03;
                 teamCode |= (greenLSB << (i * 2));
             }
 
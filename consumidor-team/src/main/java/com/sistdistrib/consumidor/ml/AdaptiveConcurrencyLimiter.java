@@ -0,0 +1,234 @@
+package com.sistdistrib.consumidor.ml;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.IntConsumer;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * Limite adaptativo de chamadas simultâneas à API de inferência.
+ *
+ * Mede a latência de cada chamada e compara a média recente com o piso observado
+ * (menor latência da janela). Enquanto a latência fica perto do piso o limite
+ * cresce; quando começa a formar fila no serviço YOLO o gradiente cai abaixo de 1
+ * e o limite encolhe. Falhas (timeout, erro HTTP) reduzem o limite de forma
+ * multiplicativa, como no AIMD.
+ */
+public class AdaptiveConcurrencyLimiter {
+
+    private static final Logger logger = LoggerFactory.getLogger(AdaptiveConcurrencyLimiter.class);
+
+    // Amostras por janela antes de recalcular o piso de latência
+    private static final int FLOOR_WINDOW = 500;
+    // Peso das amostras novas na média de latência e no limite
+    private static final double RTT_SMOOTHING = 0.1;
+    private static final double LIMIT_SMOOTHING = 0.2;
+    private static final double BACKOFF_RATIO = 0.9;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final double tolerance;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition permitReleased = lock.newCondition();
+
+    private double limit;
+    private int inFlight;
+    private long floorRttNanos = Long.MAX_VALUE;
+    private long windowMinRttNanos = Long.MAX_VALUE;
+    private double recentRttNanos;
+    private long samples;
+
+    private volatile int currentLimit;
+    private volatile IntConsumer limitListener;
+
+    /**
+     * @param initialLimit Limite inicial de chamadas simultâneas
+     * @param minLimit Limite mínimo
+     * @param maxLimit Limite máximo
+     * @param tolerance Quanto a latência pode passar do piso antes de reduzir o limite (ex.: 1.5)
+     */
+    public AdaptiveConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit, double tolerance) {
+        this.minLimit = Math.max(1, minLimit);
+        this.maxLimit = Math.max(this.minLimit, maxLimit);
+        this.tolerance = Math.max(1.0, tolerance);
+        this.limit = clamp(initialLimit);
+        this.currentLimit = (int) this.limit;
+
+        logger.info("AdaptiveConcurrencyLimiter inicializado - limite inicial: {} (min {}, max {}, tolerância {})",
+                currentLimit, this.minLimit, this.maxLimit, this.tolerance);
+    }
+
+    /**
+     * Cria o limitador a partir das variáveis ADAPTIVE_*; retorna null se ADAPTIVE_CONCURRENCY não estiver ativo.
+     */
+    public static AdaptiveConcurrencyLimiter fromEnv(int defaultMaxLimit) {
+        if (!Boolean.parseBoolean(System.getenv().getOrDefault("ADAPTIVE_CONCURRENCY", "false"))) {
+            return null;
+        }
+        int maxLimit = Integer.parseInt(System.getenv().getOrDefault("ADAPTIVE_MAX_LIMIT", String.valueOf(defaultMaxLimit)));
+        int minLimit = Integer.parseInt(System.getenv().getOrDefault("ADAPTIVE_MIN_LIMIT", "1"));
+        int initialLimit = Integer.parseInt(System.getenv().getOrDefault("ADAPTIVE_INITIAL_LIMIT",
+                String.valueOf(Math.min(4, maxLimit))));
+        double tolerance = Double.parseDouble(System.getenv().getOrDefault("ADAPTIVE_TOLERANCE", "1.5"));
+        return new AdaptiveConcurrencyLimiter(initialLimit, minLimit, maxLimit, tolerance);
+    }
+
+    /**
+     * Registra quem deve ser avisado quando a parte inteira do limite mudar
+     * (por exemplo, para ajustar o prefetch do RabbitMQ).
+     */
+    public void setLimitListener(IntConsumer limitListener) {
+        this.limitListener = limitListener;
+    }
+
+    /**
+     * Executa a chamada respeitando o limite e registra sua latência.
+     *
+     * @param call Chamada à API
+     * @param success Indica se o resultado conta como sucesso (falhas reduzem o limite)
+     */
+    public <T> T call(Supplier<T> call, Predicate<T> success) throws InterruptedException {
+        long start = acquire();
+        boolean ok = false;
+        try {
+            T result = call.get();
+            ok = success.test(result);
+            return result;
+        } finally {
+            release(start, ok);
+        }
+    }
+
+    /**
+     * Bloqueia até haver vaga abaixo do limite.
+     *
+     * @return Instante (System.nanoTime) em que a vaga foi obtida
+     */
+    public long acquire() throws InterruptedException {
+        lock.lock();
+        try {
+            while (inFlight >= (int) limit) {
+                permitReleased.await();
+            }
+            inFlight++;
+        } finally {
+            lock.unlock();
+        }
+        return System.nanoTime();
+    }
+
+    /**
+     * Libera a vaga sem medir latência nem ajustar o limite: a chamada não chegou a ser feita.
+     */
+    public void cancel() {
+        lock.lock();
+        try {
+            inFlight--;
+            permitReleased.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Libera a vaga e ajusta o limite com a latência medida.
+     *
+     * @param startNanos Valor retornado por {@link #acquire()}
+     * @param success false para timeouts/erros
+     */
+    public void release(long startNanos, boolean success) {
+        long rttNanos = System.nanoTime() - startNanos;
+        int before;
+        int after;
+
+        lock.lock();
+        try {
+            before = (int) limit;
+            int observedInFlight = inFlight;
+            inFlight--;
+
+            if (!success) {
+                limit = clamp(limit * BACKOFF_RATIO);
+            } else {
+                updateRtt(rttNanos);
+
+                // Gradiente = piso / latência recente (com tolerância), entre 0.5 e 1
+                double gradient = Math.max(0.5, Math.min(1.0, tolerance * floorRttNanos / recentRttNanos));
+
+                // Sem uso do limite atual não há evidência para crescer
+                boolean appLimited = observedInFlight < limit / 2;
+                if (gradient < 1.0 || !appLimited) {
+                    double target = limit * gradient + Math.sqrt(limit);
+                    limit = clamp(limit * (1 - LIMIT_SMOOTHING) + target * LIMIT_SMOOTHING);
+                }
+            }
+
+            after = (int) limit;
+            currentLimit = after;
+            permitReleased.signalAll();
+        } finally {
+            lock.unlock();
+        }
+
+        if (after != before) {
+            logger.debug("Limite de concorrência: {} -> {} (latência {} ms)", before, after,
+                    TimeUnit.NANOSECONDS.toMillis(rttNanos));
+            IntConsumer listener = limitListener;
+            if (listener != null) {
+                listener.accept(after);
+            }
+        }
+    }
+
+    private void updateRtt(long rttNanos) {
+        windowMinRttNanos = Math.min(windowMinRttNanos, rttNanos);
+        floorRttNanos = Math.min(floorRttNanos, rttNanos);
+
+        // Recalcula o piso periodicamente para acompanhar mudanças no serviço
+        if (++samples % FLOOR_WINDOW == 0) {
+            floorRttNanos = windowMinRttNanos;
+            windowMinRttNanos = Long.MAX_VALUE;
+        }
+
+        recentRttNanos = recentRttNanos == 0
+                ? rttNanos
+                : recentRttNanos * (1 - RTT_SMOOTHING) + rttNanos * RTT_SMOOTHING;
+    }
+
+    private double clamp(double value) {
+        return Math.max(minLimit, Math.min(maxLimit, value));
+    }
+
+    public int getLimit() {
+        return currentLimit;
+    }
+
+    public int getInFlight() {
+        lock.lock();
+        try {
+            return inFlight;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getFloorRttMillis() {
+        lock.lock();
+        try {
+            return floorRttNanos == Long.MAX_VALUE ? 0 : TimeUnit.NANOSECONDS.toMillis(floorRttNanos);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return String.format("limite %d, em andamento %d, piso %d ms", getLimit(), getInFlight(), getFloorRttMillis());
+    }
+}
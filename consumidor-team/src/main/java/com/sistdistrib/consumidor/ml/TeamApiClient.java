@@ -7,7 +7,12 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Base64;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -17,20 +22,41 @@ public class TeamApiClient {
 
     private static final Logger logger = LoggerFactory.getLogger(TeamApiClient.class);
 
+    // Respostas do servidor que não são detecções do modelo: podem mudar numa nova tentativa
+    private static final Set<String> NON_DETECTION_METHODS = Set.of("error", "model_not_loaded", "no_detection");
+
     private final OkHttpClient client;
     private final ObjectMapper objectMapper;
     private final String apiUrl;
+    private final InferenceCache<TeamResult> cache;
+    private final SingleFlight<ContentHash, TeamResult> singleFlight;
 
     public TeamApiClient() {
         this.apiUrl = System.getenv().getOrDefault("TEAM_API_URL", "http://ai-team-service:5001");
         this.objectMapper = new ObjectMapper();
+
+        // Limites do dispatcher valem apenas para chamadas assíncronas (enqueue)
+        Dispatcher dispatcher = new Dispatcher();
+        dispatcher.setMaxRequests(Integer.parseInt(System.getenv().getOrDefault("HTTP_MAX_REQUESTS", "64")));
+        dispatcher.setMaxRequestsPerHost(Integer.parseInt(System.getenv().getOrDefault("HTTP_MAX_REQUESTS_PER_HOST", "5")));
+
         this.client = new OkHttpClient.Builder()
+                .dispatcher(dispatcher)
                 .connectTimeout(30, TimeUnit.SECONDS)
                 .readTimeout(60, TimeUnit.SECONDS)
                 .writeTimeout(60, TimeUnit.SECONDS)
                 .build();
 
-        logger.info("TeamApiClient inicializado - URL: {}", apiUrl);
+        // Cache de resultados por hash do conteúdo (INFERENCE_CACHE_MB=0 desativa)
+        long cacheBytes = Long.parseLong(System.getenv().getOrDefault("INFERENCE_CACHE_MB", "0")) * 1024 * 1024;
+        this.cache = cacheBytes > 0 ? new InferenceCache<>(cacheBytes, TeamApiClient::weigh) : null;
+
+        // Chamadas simultâneas com a mesma imagem compartilham uma única requisição
+        boolean coalescing = Boolean.parseBoolean(System.getenv().getOrDefault("REQUEST_COALESCING", "false"));
+        this.singleFlight = coalescing ? new SingleFlight<>() : null;
+
+        logger.info("TeamApiClient inicializado - URL: {} (async: {} total / {} por host)",
+                apiUrl, dispatcher.getMaxRequests(), dispatcher.getMaxRequestsPerHost());
     }
 
     /**
@@ -47,6 +73,9 @@ public class TeamApiClient {
                 if (response.isSuccessful() && response.body() != null) {
                     JsonNode healthData = objectMapper.readTree(response.body().string());
                     boolean healthy = healthData.get("status").asText().equals("healthy");
+                    if (cache != null && healthData.has("model_version")) {
+                        cache.onModelVersion(healthData.get("model_version").asText());
+                    }
                     logger.info("Health check: {}", healthy ? "✅ API OK" : "⚠️ API com problemas");
                     return healthy;
                 }
@@ -65,53 +94,313 @@ public class TeamApiClient {
      * @return Resultado da predição
      */
     public TeamResult predictTeam(byte[] imageData, String filename) {
-        try {
-            // Codifica imagem em base64
-            String base64Image = Base64.getEncoder().encodeToString(imageData);
+        ContentHash key = contentKey(imageData);
+        TeamResult cached = lookupCached(key, filename);
+        if (cached != null) {
+            return cached;
+        }
 
-            // Cria payload JSON
-            String jsonPayload = objectMapper.writeValueAsString(new PredictionRequest(base64Image, filename));
+        if (singleFlight == null) {
+            TeamResult result = requestTeam(imageData, filename);
+            cacheResult(key, result);
+            return result;
+        }
 
-            // Cria request
-            RequestBody body = RequestBody.create(jsonPayload, MediaType.get("application/json; charset=utf-8"));
-            Request request = new Request.Builder()
-                    .url(apiUrl + "/predict")
-                    .post(body)
-                    .build();
+        TeamResult result = singleFlight.execute(key, () -> {
+            TeamResult fetched = requestTeam(imageData, filename);
+            cacheResult(key, fetched);
+            return fetched;
+        });
+        return forFilename(result, filename);
+    }
+
+    private TeamResult requestTeam(byte[] imageData, String filename) {
+        try {
+            Request request = buildPredictRequest(imageData, filename);
 
             // Executa request
             try (Response response = client.newCall(request).execute()) {
-                if (response.isSuccessful() && response.body() != null) {
-                    String responseBody = response.body().string();
-                    JsonNode result = objectMapper.readTree(responseBody);
-
-                    String team = result.get("team").asText();
-                    double confidence = result.get("confidence").asDouble();
-                    String method = result.get("method").asText();
-
-                    // Extrair imagem anotada se disponível
-                    byte[] annotatedImageBytes = null;
-                    if (result.has("annotated_image")) {
-                        String annotatedImageBase64 = result.get("annotated_image").asText();
-                        annotatedImageBytes = Base64.getDecoder().decode(annotatedImageBase64);
-                        logger.debug("Imagem anotada recebida para {}", filename);
-                    }
+                return parseResponse(response, filename);
+            }
 
-                    logger.debug("Predição para {}: {} ({:.2f}) via {}", filename, team, confidence, method);
+        } catch (Exception e) {
+            logger.error("Erro ao chamar API de time para {}: {}", filename, e.getMessage());
+            return new TeamResult(filename, "unknown", "ERRO", 0.0);
+        }
+    }
 
-                    return new TeamResult(filename, team, "IA_REAL", confidence, annotatedImageBytes);
-                } else {
-                    logger.error("Erro na API: {} - {}", response.code(), response.message());
-                    return new TeamResult(filename, "unknown", "ERRO", 0.0);
-                }
-            }
+    /**
+     * Versão assíncrona de {@link #predictTeam} baseada em {@code enqueue} do OkHttp.
+     * Nenhuma thread fica bloqueada esperando a resposta; a concorrência é limitada
+     * pelo dispatcher (HTTP_MAX_REQUESTS / HTTP_MAX_REQUESTS_PER_HOST).
+     *
+     * @param imageData Dados binários da imagem
+     * @param filename Nome do arquivo
+     * @return Future completado com o resultado (categoria "ERRO" em caso de falha)
+     */
+    public CompletableFuture<TeamResult> predictTeamAsync(byte[] imageData, String filename) {
+        ContentHash key = contentKey(imageData);
+        TeamResult cached = lookupCached(key, filename);
+        if (cached != null) {
+            return CompletableFuture.completedFuture(cached);
+        }
 
+        if (singleFlight == null) {
+            CompletableFuture<TeamResult> future = requestTeamAsync(imageData, filename);
+            future.thenAccept(result -> cacheResult(key, result));
+            return future;
+        }
+
+        // Quem chega depois espera o future da primeira chamada com a mesma imagem
+        return singleFlight.executeAsync(key, () -> {
+            CompletableFuture<TeamResult> future = requestTeamAsync(imageData, filename);
+            future.thenAccept(result -> cacheResult(key, result));
+            return future;
+        }).thenApply(result -> forFilename(result, filename));
+    }
+
+    private CompletableFuture<TeamResult> requestTeamAsync(byte[] imageData, String filename) {
+        CompletableFuture<TeamResult> future = new CompletableFuture<>();
+        Call call;
+        try {
+            call = client.newCall(buildPredictRequest(imageData, filename));
         } catch (Exception e) {
             logger.error("Erro ao chamar API de time para {}: {}", filename, e.getMessage());
+            future.complete(new TeamResult(filename, "unknown", "ERRO", 0.0));
+            return future;
+        }
+
+        call.enqueue(new Callback() {
+            @Override
+            public void onFailure(Call call, IOException e) {
+                logger.error("Erro ao chamar API de time para {}: {}", filename, e.getMessage());
+                future.complete(new TeamResult(filename, "unknown", "ERRO", 0.0));
+            }
+
+            @Override
+            public void onResponse(Call call, Response response) {
+                try (response) {
+                    future.complete(parseResponse(response, filename));
+                } catch (Exception e) {
+                    logger.error("Erro ao chamar API de time para {}: {}", filename, e.getMessage());
+                    future.complete(new TeamResult(filename, "unknown", "ERRO", 0.0));
+                }
+            }
+        });
+
+        // Cancelar o future cancela a chamada HTTP
+        future.whenComplete((result, error) -> {
+            if (future.isCancelled()) {
+                call.cancel();
+            }
+        });
+        return future;
+    }
+
+    private Request buildPredictRequest(byte[] imageData, String filename) throws IOException {
+        // Codifica imagem em base64
+        String base64Image = Base64.getEncoder().encodeToString(imageData);
+
+        // Cria payload JSON
+        String jsonPayload = objectMapper.writeValueAsString(new PredictionRequest(base64Image, filename));
+
+        // Cria request
+        RequestBody body = RequestBody.create(jsonPayload, MediaType.get("application/json; charset=utf-8"));
+        return new Request.Builder()
+                .url(apiUrl + "/predict")
+                .post(body)
+                .build();
+    }
+
+    private TeamResult parseResponse(Response response, String filename) throws IOException {
+        if (response.isSuccessful() && response.body() != null) {
+            String responseBody = response.body().string();
+            return parseResult(objectMapper.readTree(responseBody), filename);
+        } else {
+            logger.error("Erro na API: {} - {}", response.code(), response.message());
             return new TeamResult(filename, "unknown", "ERRO", 0.0);
         }
     }
 
+    private TeamResult parseResult(JsonNode result, String filename) {
+        if (cache != null && result.has("model_version")) {
+            cache.onModelVersion(result.get("model_version").asText());
+        }
+
+        String team = result.get("team").asText();
+        double confidence = result.get("confidence").asDouble();
+        String method = result.get("method").asText();
+
+        // Extrair imagem anotada se disponível
+        byte[] annotatedImageBytes = null;
+        if (result.has("annotated_image")) {
+            String annotatedImageBase64 = result.get("annotated_image").asText();
+            annotatedImageBytes = Base64.getDecoder().decode(annotatedImageBase64);
+            logger.debug("Imagem anotada recebida para {}", filename);
+        }
+
+        logger.debug("Predição para {}: {} ({:.2f}) via {}", filename, team, confidence, method);
+
+        return new TeamResult(filename, team, "IA_REAL", confidence, annotatedImageBytes,
+                !NON_DETECTION_METHODS.contains(method));
+    }
+
+    /**
+     * Prediz um lote de imagens com uma única chamada a {@code /predict_batch}.
+     * Os resultados voltam na mesma ordem da entrada; em caso de falha todo o
+     * lote é marcado como "ERRO".
+     *
+     * @param images Dados binários das imagens
+     * @param filenames Nomes dos arquivos (mesma ordem de {@code images})
+     * @return Future completado com um resultado por imagem
+     */
+    public CompletableFuture<List<TeamResult>> predictTeamBatchAsync(List<byte[]> images, List<String> filenames) {
+        if (cache == null) {
+            return requestTeamBatchAsync(images, filenames);
+        }
+
+        // Só as imagens fora do cache vão para a API
+        TeamResult[] results = new TeamResult[images.size()];
+        ContentHash[] keys = new ContentHash[images.size()];
+        List<Integer> missing = new ArrayList<>();
+        for (int i = 0; i < images.size(); i++) {
+            keys[i] = ContentHash.of(images.get(i));
+            results[i] = lookupCached(keys[i], filenames.get(i));
+            if (results[i] == null) {
+                missing.add(i);
+            }
+        }
+        if (missing.isEmpty()) {
+            return CompletableFuture.completedFuture(Arrays.asList(results));
+        }
+
+        List<byte[]> missingImages = new ArrayList<>(missing.size());
+        List<String> missingFilenames = new ArrayList<>(missing.size());
+        for (int index : missing) {
+            missingImages.add(images.get(index));
+            missingFilenames.add(filenames.get(index));
+        }
+
+        return requestTeamBatchAsync(missingImages, missingFilenames).thenApply(fetched -> {
+            for (int j = 0; j < missing.size(); j++) {
+                int index = missing.get(j);
+                results[index] = fetched.get(j);
+                cacheResult(keys[index], fetched.get(j));
+            }
+            return Arrays.asList(results);
+        });
+    }
+
+    private CompletableFuture<List<TeamResult>> requestTeamBatchAsync(List<byte[]> images, List<String> filenames) {
+        CompletableFuture<List<TeamResult>> future = new CompletableFuture<>();
+        Call call;
+        try {
+            List<PredictionRequest> items = new ArrayList<>(images.size());
+            for (int i = 0; i < images.size(); i++) {
+                items.add(new PredictionRequest(Base64.getEncoder().encodeToString(images.get(i)), filenames.get(i)));
+            }
+            String jsonPayload = objectMapper.writeValueAsString(new BatchPredictionRequest(items));
+
+            RequestBody body = RequestBody.create(jsonPayload, MediaType.get("application/json; charset=utf-8"));
+            call = client.newCall(new Request.Builder()
+                    .url(apiUrl + "/predict_batch")
+                    .post(body)
+                    .build());
+        } catch (Exception e) {
+            logger.error("Erro ao chamar API de time em lote ({} imagens): {}", filenames.size(), e.getMessage());
+            future.complete(errorResults(filenames));
+            return future;
+        }
+
+        call.enqueue(new Callback() {
+            @Override
+            public void onFailure(Call call, IOException e) {
+                logger.error("Erro ao chamar API de time em lote ({} imagens): {}", filenames.size(), e.getMessage());
+                future.complete(errorResults(filenames));
+            }
+
+            @Override
+            public void onResponse(Call call, Response response) {
+                try (response) {
+                    future.complete(parseBatchResponse(response, filenames));
+                } catch (Exception e) {
+                    logger.error("Erro ao chamar API de time em lote ({} imagens): {}", filenames.size(), e.getMessage());
+                    future.complete(errorResults(filenames));
+                }
+            }
+        });
+        return future;
+    }
+
+    private List<TeamResult> parseBatchResponse(Response response, List<String> filenames) throws IOException {
+        if (response.isSuccessful() && response.body() != null) {
+            JsonNode results = objectMapper.readTree(response.body().string()).get("results");
+            if (results == null || results.size() != filenames.size()) {
+                logger.error("Resposta de lote inválida: esperados {} resultados", filenames.size());
+                return errorResults(filenames);
+            }
+
+            List<TeamResult> parsed = new ArrayList<>(filenames.size());
+            for (int i = 0; i < filenames.size(); i++) {
+                parsed.add(parseResult(results.get(i), filenames.get(i)));
+            }
+            return parsed;
+        } else {
+            logger.error("Erro na API (lote): {} - {}", response.code(), response.message());
+            return errorResults(filenames);
+        }
+    }
+
+    private List<TeamResult> errorResults(List<String> filenames) {
+        List<TeamResult> results = new ArrayList<>(filenames.size());
+        for (String filename : filenames) {
+            results.add(new TeamResult(filename, "unknown", "ERRO", 0.0));
+        }
+        return results;
+    }
+
+    private ContentHash contentKey(byte[] imageData) {
+        return cache != null || singleFlight != null ? ContentHash.of(imageData) : null;
+    }
+
+    private TeamResult forFilename(TeamResult result, String filename) {
+        return filename.equals(result.getFilename()) ? result : result.withFilename(filename);
+    }
+
+    private TeamResult lookupCached(ContentHash key, String filename) {
+        if (key == null || cache == null) {
+            return null;
+        }
+        TeamResult cached = cache.get(key);
+        return cached != null ? cached.withFilename(filename) : null;
+    }
+
+    private void cacheResult(ContentHash key, TeamResult result) {
+        // Só detecções reais do modelo entram no cache; erros e falhas do servidor não
+        if (key != null && cache != null && result.isCacheable()) {
+            cache.put(key, result);
+        }
+    }
+
+    private static long weigh(TeamResult result) {
+        // Tamanho aproximado: imagem anotada + objeto e strings
+        return 256 + (result.hasAnnotatedImage() ? result.getAnnotatedImage().length : 0);
+    }
+
+    /**
+     * Cache de resultados (null se desativado)
+     */
+    public InferenceCache<TeamResult> getCache() {
+        return cache;
+    }
+
+    /**
+     * Agrupamento de chamadas simultâneas (null se desativado)
+     */
+    public SingleFlight<ContentHash, TeamResult> getSingleFlight() {
+        return singleFlight;
+    }
+
     /**
      * Classe para request de predição
      */
@@ -125,6 +414,17 @@ public class TeamApiClient {
         }
     }
 
+    /**
+     * Classe para request de predição em lote
+     */
+    private static class BatchPredictionRequest {
+        public final List<PredictionRequest> images;
+
+        public BatchPredictionRequest(List<PredictionRequest> images) {
+            this.images = images;
+        }
+    }
+
     /**
      * Classe para resultado de time
      */
@@ -135,17 +435,27 @@ public class TeamApiClient {
         private final double confidence;
         private final long processedAt;
         private final byte[] annotatedImage;
+        private final boolean cacheable;
 
         public TeamResult(String filename, String teamName, String category, double confidence) {
             this(filename, teamName, category, confidence, null);
         }
 
         public TeamResult(String filename, String teamName, String category, double confidence, byte[] annotatedImage) {
+            this(filename, teamName, category, confidence, annotatedImage, !"ERRO".equals(category));
+        }
+
+        /**
+         * @param cacheable Se o resultado pode ir para o cache (só detecções reais do modelo)
+         */
+        public TeamResult(String filename, String teamName, String category, double confidence, byte[] annotatedImage,
+                     boolean cacheable) {
             this.filename = filename;
             this.teamName = teamName;
             this.category = category;
             this.confidence = confidence;
             this.annotatedImage = annotatedImage;
+            this.cacheable = cacheable;
             this.processedAt = System.currentTimeMillis();
         }
 
@@ -156,6 +466,14 @@ public class TeamApiClient {
         public long getProcessedAt() { return processedAt; }
         public byte[] getAnnotatedImage() { return annotatedImage; }
         public boolean hasAnnotatedImage() { return annotatedImage != null; }
+        public boolean isCacheable() { return cacheable; }
+
+        /**
+         * Cópia do resultado para outro arquivo com o mesmo conteúdo (usado pelo cache)
+         */
+        public TeamResult withFilename(String filename) {
+            return new TeamResult(filename, teamName, category, confidence, annotatedImage, cacheable);
+        }
 
         @Override
         public String toString() {
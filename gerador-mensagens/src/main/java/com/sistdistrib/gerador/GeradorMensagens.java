@@ -6,30 +6,140 @@ import com.rabbitmq.client.*;
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
 
 public class GeradorMensagens {
     private static final String EXCHANGE_NAME = "image_exchange";
     private static final String FACE_ROUTING_KEY = "face";
     private static final String TEAM_ROUTING_KEY = "team";
-    private static final int MESSAGES_PER_SECOND = 5;
 
     private Connection connection;
     private Channel channel;
     private ObjectMapper objectMapper;
-    private Random random;
+
+    // Taxa alvo (token bucket) dividida entre várias threads, cada uma com seu canal
+    private final double messagesPerSecond;
+    private final int publisherThreads;
+    private final boolean logEachMessage;
+    private final TokenBucket rateLimiter;
+    private final List<Thread> publishers = new ArrayList<>();
+    private volatile boolean running = true;
+    private final AtomicLong sentCount = new AtomicLong();
+    private final AtomicLong errorCount = new AtomicLong();
+
+    // Publisher confirms assíncronos com janela limitada de mensagens pendentes
+    private final boolean publisherConfirms;
+    private final int confirmWindow;
+    private final int confirmMaxRetries;
+    private final PublisherChannel.Stats confirmStats = new PublisherChannel.Stats();
+
+    // Perfil de carga (LOAD_PROFILE): fases com taxa e mix face/team variáveis
+    private LoadProfileRunner profileRunner;
+
+    // Gravação (TRAFFIC_RECORD) e reprodução (TRAFFIC_REPLAY) do tráfego publicado
+    private TrafficLog.Writer trafficRecorder;
+    private TrafficReplay trafficReplay;
+
+    // Ingestão contínua de uma pasta (INGEST_DIR) em vez das imagens de teste
+    private final IngestionSource ingestion;
+    private final boolean ingestThrottled;
+
+    // Formato das mensagens: json (Base64 no corpo), binary (headers + bytes crus)
+    // ou claimcheck (só a referência; a imagem vai para o store no volume compartilhado)
+    private final String messageFormat;
+    private ImageStore imageStore;
+
+    // Imagens de teste carregadas uma vez, com as mensagens pré-codificadas
+    private ImageCorpus faceCorpus;
+    private ImageCorpus teamCorpus;
 
     public GeradorMensagens() {
         this.objectMapper = new ObjectMapper();
-        this.random = new Random();
+        this.messagesPerSecond = Double.parseDouble(System.getenv().getOrDefault("MESSAGES_PER_SECOND", "5"));
+        this.publisherThreads = Math.max(1, Integer.parseInt(System.getenv().getOrDefault("PUBLISHER_THREADS", "1")));
+
+        LoadProfile loadProfile = null;
+        String profilePath = System.getenv("LOAD_PROFILE");
+        if (profilePath != null && !profilePath.isBlank()) {
+            try {
+                loadProfile = LoadProfile.load(Paths.get(profilePath), objectMapper);
+            } catch (IOException e) {
+                throw new IllegalArgumentException("Erro ao ler perfil de carga " + profilePath + ": " + e.getMessage(), e);
+            }
+        }
+        double peakRate = loadProfile != null ? loadProfile.peakRate() : messagesPerSecond;
+
+        // Folga padrão de ~10 ms de tokens para absorver atrasos do escalonador em taxas altas
+        int burst = Integer.parseInt(System.getenv().getOrDefault("RATE_BURST",
+                String.valueOf(Math.max(1, (int) (peakRate / 100)))));
+        this.rateLimiter = new TokenBucket(messagesPerSecond, burst);
+        if (loadProfile != null) {
+            this.profileRunner = new LoadProfileRunner(loadProfile, rateLimiter, sentCount);
+        }
+        // Uma linha por mensagem só em taxas baixas; acima disso fica o relatório por segundo
+        this.logEachMessage = Boolean.parseBoolean(System.getenv().getOrDefault("LOG_EACH_MESSAGE",
+                String.valueOf(peakRate <= 20)));
+
+        this.ingestion = IngestionSource.fromEnv();
+        // Na ingestão a taxa só é limitada se MESSAGES_PER_SECOND for definida explicitamente
+        this.ingestThrottled = System.getenv("MESSAGES_PER_SECOND") != null;
+
+        // A ingestão só tira um arquivo da pasta depois da confirmação: confirms ligados por padrão
+        this.publisherConfirms = Boolean.parseBoolean(System.getenv().getOrDefault("PUBLISHER_CONFIRMS",
+                String.valueOf(ingestion != null)));
+        this.confirmWindow = Integer.parseInt(System.getenv().getOrDefault("CONFIRM_WINDOW", "1024"));
+        this.confirmMaxRetries = Integer.parseInt(System.getenv().getOrDefault("CONFIRM_MAX_RETRIES", "3"));
+        this.messageFormat = System.getenv().getOrDefault("MESSAGE_FORMAT", "json").toLowerCase();
+        if ("claimcheck".equals(messageFormat)) {
+            this.imageStore = ImageStore.fromEnv();
+        }
+
+        String recordPath = System.getenv("TRAFFIC_RECORD");
+        String replayPath = System.getenv("TRAFFIC_REPLAY");
+        try {
+            if (replayPath != null && !replayPath.isBlank()) {
+                this.trafficReplay = new TrafficReplay(Paths.get(replayPath),
+                        TrafficReplay.parseSpeed(System.getenv().getOrDefault("REPLAY_SPEED", "1")));
+            }
+            if (recordPath != null && !recordPath.isBlank()) {
+                this.trafficRecorder = new TrafficLog.Writer(Paths.get(recordPath));
+            }
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Erro ao abrir log de tráfego: " + e.getMessage(), e);
+        }
     }
 
     public void start() {
         try {
             setupRabbitMQ();
             System.out.println("=== GERADOR DE MENSAGENS INICIADO ===");
-            System.out.println("Enviando " + MESSAGES_PER_SECOND + " mensagens por segundo...");
+            if (ingestion != null) {
+                System.out.println("Ingerindo imagens de " + System.getenv("INGEST_DIR") + " com "
+                        + publisherThreads + " thread(s)"
+                        + (ingestThrottled ? ", até " + messagesPerSecond + " mensagens por segundo..." : "..."));
+            } else if (trafficReplay != null) {
+                System.out.println("Reproduzindo tráfego de " + System.getenv("TRAFFIC_REPLAY") + " (gravado em "
+                        + new java.util.Date(trafficReplay.getStartEpochMillis()) + ") na velocidade "
+                        + trafficReplay.getSpeedLabel() + " com " + publisherThreads + " thread(s)...");
+            } else if (profileRunner != null) {
+                System.out.println("Executando perfil de carga " + System.getenv("LOAD_PROFILE") + " com "
+                        + publisherThreads + " thread(s)...");
+            } else {
+                System.out.println("Enviando " + messagesPerSecond + " mensagens por segundo com "
+                        + publisherThreads + " thread(s)...");
+            }
+            System.out.println("Formato das mensagens: " + messageFormat);
+            if (trafficRecorder != null) {
+                System.out.println("Gravando tráfego em " + System.getenv("TRAFFIC_RECORD"));
+            }
 
             generateMessages();
         } catch (Exception e) {
@@ -72,6 +182,38 @@ public class GeradorMensagens {
     }
 
     private void generateMessages() {
+        if (ingestion != null) {
+            try {
+                ingestion.start();
+            } catch (IOException e) {
+                System.err.println("❌ Erro ao iniciar a ingestão: " + e.getMessage());
+                return;
+            }
+        } else if (!loadTestImages()) {
+            return;
+        }
+
+        if (profileRunner != null && trafficReplay == null) {
+            profileRunner.start();
+        }
+
+        // Threads publicadoras: Channel não é thread-safe, então cada uma abre o seu
+        for (int i = 0; i < publisherThreads; i++) {
+            Thread publisher = new Thread(this::publishLoop, "publisher-" + (i + 1));
+            publisher.setDaemon(true);
+            publisher.start();
+            publishers.add(publisher);
+        }
+
+        reportRate();
+
+        if ((profileRunner != null || trafficReplay != null) && !running) {
+            // Perfil ou reprodução concluídos: encerra as publicações e a conexão para o processo terminar
+            close();
+        }
+    }
+
+    private boolean loadTestImages() {
         // Usar imagens das pastas de test
         File facesTestDir = new File("/app/images/faces/test/images");
         File teamsTestDir = new File("/app/images/teams/test/images");
@@ -81,50 +223,87 @@ public class GeradorMensagens {
             System.err.println("❌ Diretórios de test não encontrados!");
             System.err.println("   Faces: " + facesTestDir.getAbsolutePath());
             System.err.println("   Teams: " + teamsTestDir.getAbsolutePath());
-            return;
+            return false;
         }
 
-        // Listar imagens disponíveis
-        File[] faceImages = facesTestDir.listFiles((dir, name) ->
-            name.toLowerCase().endsWith(".jpg") || name.toLowerCase().endsWith(".jpeg") || name.toLowerCase().endsWith(".png"));
-        File[] teamImages = teamsTestDir.listFiles((dir, name) ->
-            name.toLowerCase().endsWith(".jpg") || name.toLowerCase().endsWith(".jpeg") || name.toLowerCase().endsWith(".png"));
+        // Carregar as imagens em memória (e recarregar quando os diretórios mudarem)
+        faceCorpus = new ImageCorpus("face", facesTestDir.toPath(), messageFormat, imageStore);
+        teamCorpus = new ImageCorpus("team", teamsTestDir.toPath(), messageFormat, imageStore);
+        try {
+            faceCorpus.load();
+            teamCorpus.load();
+            faceCorpus.startWatching();
+            teamCorpus.startWatching();
+        } catch (IOException e) {
+            System.err.println("❌ Erro ao carregar imagens de test: " + e.getMessage());
+            return false;
+        }
 
-        if (faceImages == null || faceImages.length == 0) {
+        if (faceCorpus.size() == 0) {
             System.err.println("❌ Nenhuma imagem de face encontrada em: " + facesTestDir.getAbsolutePath());
-            return;
+            return false;
         }
-        if (teamImages == null || teamImages.length == 0) {
+        if (teamCorpus.size() == 0) {
             System.err.println("❌ Nenhuma imagem de time encontrada em: " + teamsTestDir.getAbsolutePath());
-            return;
+            return false;
         }
 
-        System.out.println("✅ " + faceImages.length + " imagens de faces encontradas");
-        System.out.println("✅ " + teamImages.length + " imagens de times encontradas");
+        System.out.println("✅ " + faceCorpus.size() + " imagens de faces encontradas");
+        System.out.println("✅ " + teamCorpus.size() + " imagens de times encontradas");
+        return true;
+    }
+
+    private void publishLoop() {
+        PublisherChannel publisherChannel;
+        try {
+            publisherChannel = new PublisherChannel(connection.createChannel(),
+                    publisherConfirms, confirmWindow, confirmMaxRetries, confirmStats);
+        } catch (IOException e) {
+            System.err.println("Erro ao abrir canal de publicação: " + e.getMessage());
+            return;
+        }
 
-        while (true) {
+        Random random = ThreadLocalRandom.current();
+        while (running) {
             try {
-                for (int i = 0; i < MESSAGES_PER_SECOND; i++) {
-                    // Escolher aleatoriamente entre face ou team
-                    boolean isFace = random.nextBoolean();
-
-                    if (isFace) {
-                        sendFaceMessage(faceImages);
-                    } else {
-                        sendTeamMessage(teamImages);
+                if (ingestion != null) {
+                    IngestionSource.Item item = ingestion.poll(1, TimeUnit.SECONDS);
+                    if (item != null) {
+                        if (ingestThrottled) {
+                            rateLimiter.acquire();
+                        }
+                        ingest(publisherChannel, item);
                     }
+                    continue;
+                }
 
-                    // Pequeno delay entre mensagens
-                    Thread.sleep(200 / MESSAGES_PER_SECOND);
+                if (trafficReplay != null) {
+                    // Reprodução: o próximo registro já vem no horário gravado
+                    TrafficLog.Record record = trafficReplay.next();
+                    if (record == null) {
+                        break; // fim da gravação
+                    }
+                    replayRecord(publisherChannel, record);
+                    continue;
                 }
 
-                // Esperar para completar 1 segundo
-                Thread.sleep(1000 - (200 * MESSAGES_PER_SECOND / MESSAGES_PER_SECOND));
+                rateLimiter.acquire();
+
+                // Escolher aleatoriamente entre face ou team (mix definido pela fase do perfil)
+                boolean isFace = profileRunner != null
+                        ? random.nextDouble() < profileRunner.getFaceRatio()
+                        : random.nextBoolean();
+
+                if (isFace) {
+                    sendFaceMessage(publisherChannel, random);
+                } else {
+                    sendTeamMessage(publisherChannel, random);
+                }
 
             } catch (InterruptedException e) {
-                System.err.println("Thread interrompida: " + e.getMessage());
                 break;
             } catch (Exception e) {
+                errorCount.incrementAndGet();
                 System.err.println("Erro ao enviar mensagem: " + e.getMessage());
                 try {
                     Thread.sleep(1000);
@@ -133,45 +312,272 @@ public class GeradorMensagens {
                 }
             }
         }
+
+        try {
+            publisherChannel.close();
+        } catch (IOException e) {
+            System.err.println("Erro ao fechar canal de publicação: " + e.getMessage());
+        }
+    }
+
+    private void reportRate() {
+        // Perfil ajustado a cada 100 ms; taxa obtida x alvo a cada segundo
+        long lastCount = 0;
+        long lastErrors = 0;
+        long lastTime = System.nanoTime();
+        double targetSum = 0;
+        long ticks = 0;
+        while (running) {
+            try {
+                Thread.sleep(100);
+            } catch (InterruptedException e) {
+                System.err.println("Thread interrompida: " + e.getMessage());
+                break;
+            }
+            if (profileRunner != null && trafficReplay == null && !profileRunner.tick()) {
+                running = false;
+                break;
+            }
+            if (trafficReplay != null && trafficReplay.isFinished()
+                    && publishers.stream().noneMatch(Thread::isAlive)) {
+                running = false;
+                System.out.println("🏁 Reprodução concluída: " + trafficReplay);
+                break;
+            }
+            targetSum += rateLimiter.getRatePerSecond();
+            if (++ticks % 10 != 0) {
+                continue;
+            }
+
+            long now = System.nanoTime();
+            long count = sentCount.get();
+            long errors = errorCount.get();
+            double rate = (count - lastCount) * 1_000_000_000.0 / (now - lastTime);
+            double target = targetSum / 10;
+            if (ingestion != null && !ingestThrottled) {
+                System.out.printf("📈 Taxa: %.0f msg/s - %d erros - total %d%n", rate, errors - lastErrors, count);
+            } else {
+                System.out.printf("📈 Taxa: %.0f msg/s (alvo %.0f, %.0f%%) - %d erros - total %d%n",
+                        rate, target, target > 0 ? 100.0 * rate / target : 0, errors - lastErrors, count);
+            }
+            lastCount = count;
+            lastErrors = errors;
+            lastTime = now;
+            targetSum = 0;
+
+            if (publisherConfirms && ticks % 100 == 0) {
+                System.out.println("📬 Confirms: " + confirmStats);
+            }
+            if (trafficReplay != null && ticks % 100 == 0) {
+                System.out.println("⏯️ Reprodução: " + trafficReplay);
+            }
+            if (trafficRecorder != null) {
+                // Descarrega a cada segundo para perder pouco numa queda
+                try {
+                    trafficRecorder.flush();
+                } catch (IOException e) {
+                    System.err.println("Erro ao gravar log de tráfego: " + e.getMessage());
+                }
+            }
+            if (ingestion != null && ticks % 100 == 0) {
+                System.out.println("📥 Ingestão: " + ingestion);
+            }
+        }
+    }
+
+    private void sendFaceMessage(PublisherChannel publisherChannel, Random random) throws Exception {
+        // Selecionar imagem aleatória das pastas de test (já em memória)
+        ImageCorpus.Entry selectedImage = faceCorpus.pick(random);
+        if (selectedImage == null) {
+            return; // diretório esvaziado desde a carga
+        }
+
+        publish(publisherChannel, "face", selectedImage, FACE_ROUTING_KEY);
+        if (logEachMessage) {
+            System.out.println("✓ Mensagem FACE enviada - " + selectedImage.getFilename());
+        }
     }
 
-    private void sendFaceMessage(File[] faceImages) throws Exception {
-        // Selecionar imagem aleatória das pastas de test
-        File selectedImage = faceImages[random.nextInt(faceImages.length)];
-        byte[] imageData = Files.readAllBytes(selectedImage.toPath());
-        String filename = selectedImage.getName();
+    private void sendTeamMessage(PublisherChannel publisherChannel, Random random) throws Exception {
+        // Selecionar imagem aleatória das pastas de test (já em memória)
+        ImageCorpus.Entry selectedImage = teamCorpus.pick(random);
+        if (selectedImage == null) {
+            return; // diretório esvaziado desde a carga
+        }
+
+        publish(publisherChannel, "team", selectedImage, TEAM_ROUTING_KEY);
+        if (logEachMessage) {
+            System.out.println("✓ Mensagem TEAM enviada - " + selectedImage.getFilename());
+        }
+    }
 
-        ImageMessage message = new ImageMessage("face", filename, imageData);
+    private void publish(PublisherChannel publisherChannel, String type, ImageCorpus.Entry image, String routingKey) throws Exception {
+        switch (messageFormat) {
+            case "binary":
+                sendBinaryMessage(publisherChannel, type, image.getFilename(), image.getData(), routingKey, null);
+                break;
+            case "claimcheck":
+                sendReferenceMessage(publisherChannel, type, image.getFilename(), image.getHash(), image.getSize(), routingKey, null);
+                break;
+            default:
+                sendMessage(publisherChannel, image.jsonBody(System.currentTimeMillis()), routingKey, null);
+        }
+        sentCount.incrementAndGet();
 
-        sendMessage(message, FACE_ROUTING_KEY);
-        System.out.println("✓ Mensagem FACE enviada - " + filename);
+        if (trafficRecorder != null) {
+            trafficRecorder.record(routingKey, image.getFilename(), image.getHash(), image.getSize());
+        }
     }
 
-    private void sendTeamMessage(File[] teamImages) throws Exception {
-        // Selecionar imagem aleatória das pastas de test
-        File selectedImage = teamImages[random.nextInt(teamImages.length)];
-        byte[] imageData = Files.readAllBytes(selectedImage.toPath());
-        String filename = selectedImage.getName();
+    private void ingest(PublisherChannel publisherChannel, IngestionSource.Item item) throws Exception {
+        byte[] data;
+        try {
+            data = Files.readAllBytes(item.getPath());
+        } catch (NoSuchFileException e) {
+            ingestion.discard(item); // removido antes da publicação
+            return;
+        } catch (IOException e) {
+            ingestion.retry(item);
+            throw e;
+        }
+
+        // O arquivo só sai da pasta de entrada depois da confirmação do broker
+        PublisherChannel.Outcome outcome = new PublisherChannel.Outcome() {
+            @Override
+            public void confirmed() {
+                ingestion.markPublished(item);
+            }
+
+            @Override
+            public void failed() {
+                ingestion.retry(item);
+            }
+        };
 
-        ImageMessage message = new ImageMessage("team", filename, imageData);
+        // Os subdiretórios da ingestão (face/team) também são as routing keys
+        String type = item.getType();
+        String hash = null;
+        try {
+            switch (messageFormat) {
+                case "binary":
+                    sendBinaryMessage(publisherChannel, type, item.getFilename(), data, type, outcome);
+                    break;
+                case "claimcheck":
+                    hash = imageStore.store(data);
+                    sendReferenceMessage(publisherChannel, type, item.getFilename(), hash, data.length, type, outcome);
+                    break;
+                default:
+                    sendMessage(publisherChannel, objectMapper.writeValueAsBytes(
+                            new ImageMessage(type, item.getFilename(), data)), type, outcome);
+            }
+        } catch (Exception e) {
+            ingestion.retry(item);
+            throw e;
+        }
+        sentCount.incrementAndGet();
 
-        sendMessage(message, TEAM_ROUTING_KEY);
-        System.out.println("✓ Mensagem TEAM enviada - " + filename);
+        if (trafficRecorder != null) {
+            trafficRecorder.record(type, item.getFilename(), hash, data.length);
+        }
+        if (logEachMessage) {
+            System.out.println("📥 Mensagem " + type.toUpperCase() + " ingerida - " + item.getFilename());
+        }
     }
 
-    private void sendMessage(ImageMessage message, String routingKey) throws Exception {
-        byte[] messageBody = objectMapper.writeValueAsBytes(message);
+    private void replayRecord(PublisherChannel publisherChannel, TrafficLog.Record record) throws Exception {
+        // A routing key gravada também é o tipo da mensagem (face/team)
+        String routingKey = record.getRoutingKey();
+        ImageCorpus corpus = FACE_ROUTING_KEY.equals(routingKey) ? faceCorpus : teamCorpus;
+        ImageCorpus.Entry image = corpus.find(record.getFilename());
+
+        if (image != null) {
+            publish(publisherChannel, routingKey, image, routingKey);
+        } else if (record.getHash() != null && "claimcheck".equals(messageFormat)) {
+            // Imagem fora do conjunto atual, mas ainda no store: a referência basta
+            sendReferenceMessage(publisherChannel, routingKey, record.getFilename(), record.getHash(),
+                    record.getSize(), routingKey, null);
+            sentCount.incrementAndGet();
+        } else {
+            trafficReplay.skipped();
+            return;
+        }
+        trafficReplay.replayed();
+
+        if (logEachMessage) {
+            System.out.println("↻ Mensagem " + routingKey.toUpperCase() + " reproduzida - " + record.getFilename());
+        }
+    }
 
+    private void sendMessage(PublisherChannel publisherChannel, byte[] messageBody, String routingKey,
+                             PublisherChannel.Outcome outcome) throws Exception {
         AMQP.BasicProperties properties = new AMQP.BasicProperties.Builder()
-                .contentType("application/json")
+                .contentType(ImageMessageFormat.JSON_CONTENT_TYPE)
                 .deliveryMode(2) // Mensagem persistente
                 .timestamp(new java.util.Date())
                 .build();
 
-        channel.basicPublish(EXCHANGE_NAME, routingKey, properties, messageBody);
+        publisherChannel.publish(EXCHANGE_NAME, routingKey, properties, messageBody, outcome);
+    }
+
+    private void sendBinaryMessage(PublisherChannel publisherChannel, String type, String filename, byte[] imageData, String routingKey,
+                                   PublisherChannel.Outcome outcome) throws Exception {
+        // Metadados nos headers e a imagem sem Base64 no corpo
+        long timestamp = System.currentTimeMillis();
+        AMQP.BasicProperties properties = new AMQP.BasicProperties.Builder()
+                .contentType(ImageMessageFormat.BINARY_CONTENT_TYPE)
+                .headers(ImageMessageFormat.binaryHeaders(type, filename, timestamp))
+                .deliveryMode(2) // Mensagem persistente
+                .timestamp(new java.util.Date(timestamp))
+                .build();
+
+        publisherChannel.publish(EXCHANGE_NAME, routingKey, properties, imageData, outcome);
+    }
+
+    private void sendReferenceMessage(PublisherChannel publisherChannel, String type, String filename, String hash, long size, String routingKey,
+                                      PublisherChannel.Outcome outcome) throws Exception {
+        // A imagem já foi gravada no store na carga; publica só o hash
+        byte[] messageBody = objectMapper.writeValueAsBytes(new ImageReference(type, filename, hash, size));
+
+        AMQP.BasicProperties properties = new AMQP.BasicProperties.Builder()
+                .contentType(ImageMessageFormat.REFERENCE_CONTENT_TYPE)
+                .deliveryMode(2) // Mensagem persistente
+                .timestamp(new java.util.Date())
+                .build();
+
+        publisherChannel.publish(EXCHANGE_NAME, routingKey, properties, messageBody, outcome);
     }
 
     public void close() {
+        running = false;
+        for (Thread publisher : publishers) {
+            publisher.interrupt();
+            try {
+                publisher.join(5000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (faceCorpus != null) {
+            faceCorpus.close();
+        }
+        if (teamCorpus != null) {
+            teamCorpus.close();
+        }
+        if (ingestion != null) {
+            ingestion.close();
+        }
+        try {
+            if (trafficRecorder != null) {
+                trafficRecorder.close();
+                System.out.println("💾 " + trafficRecorder.getCount() + " mensagens gravadas em " + System.getenv("TRAFFIC_RECORD"));
+                trafficRecorder = null;
+            }
+            if (trafficReplay != null) {
+                trafficReplay.close();
+            }
+        } catch (IOException e) {
+            System.err.println("Erro ao fechar log de tráfego: " + e.getMessage());
+        }
         try {
             if (channel != null && channel.isOpen()) {
                 channel.close();
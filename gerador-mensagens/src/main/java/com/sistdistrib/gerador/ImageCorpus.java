@@ -0,0 +1,230 @@
+package com.sistdistrib.gerador;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Imagens de teste de um tipo carregadas uma vez em memória, com a mensagem já codificada.
+ *
+ * No formato JSON o corpo é montado na carga até o campo "timestamp" (Base64 incluso);
+ * na publicação só o instante é anexado. No binário os bytes da imagem já são o corpo e
+ * no claim-check a imagem é gravada no {@link ImageStore} na carga, restando só o hash.
+ * Um WatchService recarrega o conjunto quando o diretório muda.
+ */
+public class ImageCorpus implements AutoCloseable {
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory()
+            .disable(JsonGenerator.Feature.AUTO_CLOSE_JSON_CONTENT);
+
+    // Espera após um evento para juntar as mudanças de uma cópia de vários arquivos
+    private static final long RELOAD_DEBOUNCE_MS = 500;
+
+    /**
+     * Imagem pronta para publicação.
+     */
+    public static class Entry {
+        private final String filename;
+        private final int size;
+        private final byte[] data;
+        private final byte[] jsonPrefix;
+        private final String hash;
+
+        Entry(String filename, int size, byte[] data, byte[] jsonPrefix, String hash) {
+            this.filename = filename;
+            this.size = size;
+            this.data = data;
+            this.jsonPrefix = jsonPrefix;
+            this.hash = hash;
+        }
+
+        public String getFilename() { return filename; }
+        public int getSize() { return size; }
+        public byte[] getData() { return data; }
+        public String getHash() { return hash; }
+
+        /**
+         * Corpo JSON completo: prefixo pré-codificado + timestamp.
+         */
+        public byte[] jsonBody(long timestamp) {
+            byte[] suffix = (timestamp + "}").getBytes(StandardCharsets.US_ASCII);
+            byte[] body = Arrays.copyOf(jsonPrefix, jsonPrefix.length + suffix.length);
+            System.arraycopy(suffix, 0, body, jsonPrefix.length, suffix.length);
+            return body;
+        }
+    }
+
+    private final String type;
+    private final Path directory;
+    private final String messageFormat;
+    private final ImageStore imageStore;
+
+    private volatile Entry[] entries = new Entry[0];
+    private volatile Map<String, Entry> entriesByFilename = Map.of();
+    private WatchService watchService;
+    private Thread watcher;
+
+    /**
+     * @param type Tipo da mensagem ("face" ou "team")
+     * @param directory Diretório das imagens de teste
+     * @param messageFormat json, binary ou claimcheck
+     * @param imageStore Store do claim-check (null nos outros formatos)
+     */
+    public ImageCorpus(String type, Path directory, String messageFormat, ImageStore imageStore) {
+        this.type = type;
+        this.directory = directory;
+        this.messageFormat = messageFormat;
+        this.imageStore = imageStore;
+    }
+
+    /**
+     * Carrega (ou recarrega) todas as imagens do diretório.
+     *
+     * @return Número de imagens carregadas
+     */
+    public int load() throws IOException {
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, ImageCorpus::isImage)) {
+            stream.forEach(files::add);
+        }
+        files.sort(null);
+
+        List<Entry> loaded = new ArrayList<>(files.size());
+        Map<String, Entry> byFilename = new HashMap<>();
+        long totalBytes = 0;
+        for (Path file : files) {
+            try {
+                Entry entry = encode(file.getFileName().toString(), Files.readAllBytes(file));
+                loaded.add(entry);
+                byFilename.put(entry.filename, entry);
+                totalBytes += entry.data != null ? entry.data.length : 0;
+                totalBytes += entry.jsonPrefix != null ? entry.jsonPrefix.length : 0;
+            } catch (IOException e) {
+                System.err.println("⚠️ Imagem ignorada " + file + ": " + e.getMessage());
+            }
+        }
+
+        // Troca o conjunto inteiro de uma vez: quem está publicando vê o antigo ou o novo
+        entries = loaded.toArray(new Entry[0]);
+        entriesByFilename = byFilename;
+        System.out.printf("📦 %d imagens de %s carregadas (%.1f MB em memória)%n",
+                loaded.size(), type, totalBytes / (1024.0 * 1024.0));
+        return loaded.size();
+    }
+
+    private static boolean isImage(Path path) {
+        String name = path.getFileName().toString().toLowerCase();
+        return name.endsWith(".jpg") || name.endsWith(".jpeg") || name.endsWith(".png");
+    }
+
+    private Entry encode(String filename, byte[] data) throws IOException {
+        switch (messageFormat) {
+            case "binary":
+                return new Entry(filename, data.length, data, null, null);
+            case "claimcheck":
+                return new Entry(filename, data.length, null, null, imageStore.store(data));
+            default:
+                return new Entry(filename, data.length, null, jsonPrefix(new ImageMessage(type, filename, data)), null);
+        }
+    }
+
+    // {"type":..,"filename":..,"data":..,"timestamp": — o valor entra na publicação
+    private static byte[] jsonPrefix(ImageMessage message) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(message.getDataBase64().length() + 256);
+        try (JsonGenerator generator = JSON_FACTORY.createGenerator(out)) {
+            generator.writeStartObject();
+            generator.writeStringField("type", message.getType());
+            generator.writeStringField("filename", message.getFilename());
+            generator.writeStringField("data", message.getDataBase64());
+            generator.writeFieldName("timestamp");
+            generator.flush();
+        }
+        // O gerador ainda espera o valor do campo; o separador ':' ainda não foi escrito
+        out.write(':');
+        return out.toByteArray();
+    }
+
+    public Entry pick(Random random) {
+        Entry[] current = entries;
+        return current.length == 0 ? null : current[random.nextInt(current.length)];
+    }
+
+    /**
+     * Imagem pelo nome do arquivo (usado no replay de tráfego gravado).
+     */
+    public Entry find(String filename) {
+        return entriesByFilename.get(filename);
+    }
+
+    public int size() {
+        return entries.length;
+    }
+
+    /**
+     * Observa o diretório e recarrega o conjunto quando arquivos são criados, alterados ou removidos.
+     */
+    public void startWatching() throws IOException {
+        watchService = directory.getFileSystem().newWatchService();
+        directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+
+        watcher = new Thread(this::watchLoop, type + "-corpus-watcher");
+        watcher.setDaemon(true);
+        watcher.start();
+    }
+
+    private void watchLoop() {
+        try {
+            while (true) {
+                WatchKey key = watchService.take();
+                TimeUnit.MILLISECONDS.sleep(RELOAD_DEBOUNCE_MS);
+                drain(key);
+                WatchKey more;
+                while ((more = watchService.poll()) != null) {
+                    drain(more);
+                }
+
+                System.out.println("🔄 Diretório " + directory + " mudou, recarregando imagens de " + type);
+                try {
+                    load();
+                } catch (IOException e) {
+                    System.err.println("Erro ao recarregar imagens de " + type + ": " + e.getMessage());
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // encerrando
+        }
+    }
+
+    private static void drain(WatchKey key) {
+        key.pollEvents();
+        key.reset();
+    }
+
+    @Override
+    public void close() {
+        if (watchService != null) {
+            try {
+                watchService.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package com.sistdistrib.gerador;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Formatos de mensagem de imagem aceitos pelos consumidores.
+ *
+ * JSON: {@link ImageMessage} com a imagem em Base64 no campo "data" (formato original).
+ * Binário (v1): metadados nos headers AMQP e os bytes da imagem, sem codificação, no corpo.
+ * Referência (claim-check): {@link ImageReference} em JSON; a imagem fica no {@link ImageStore}.
+ * Os consumidores escolhem o formato pelo contentType, então gerador e consumidores
+ * podem ser atualizados em qualquer ordem.
+ */
+public final class ImageMessageFormat {
+
+    public static final String JSON_CONTENT_TYPE = "application/json";
+    public static final String BINARY_CONTENT_TYPE = "application/vnd.sistdistrib.image";
+    public static final int BINARY_VERSION = 1;
+    public static final String REFERENCE_CONTENT_TYPE = "application/vnd.sistdistrib.image-ref+json";
+
+    public static final String HEADER_VERSION = "x-format-version";
+    public static final String HEADER_TYPE = "x-image-type";
+    public static final String HEADER_FILENAME = "x-filename";
+    public static final String HEADER_TIMESTAMP = "x-timestamp";
+
+    private ImageMessageFormat() {}
+
+    /**
+     * Headers AMQP de uma mensagem no formato binário.
+     */
+    public static Map<String, Object> binaryHeaders(String type, String filename, long timestamp) {
+        Map<String, Object> headers = new HashMap<>();
+        headers.put(HEADER_VERSION, BINARY_VERSION);
+        headers.put(HEADER_TYPE, type);
+        headers.put(HEADER_FILENAME, filename);
+        headers.put(HEADER_TIMESTAMP, timestamp);
+        return headers;
+    }
+}
@@ -0,0 +1,96 @@
+package com.sistdistrib.gerador;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Armazenamento endereçado por conteúdo das imagens no volume compartilhado (modo claim-check).
+ *
+ * Cada imagem é gravada uma única vez em {@code <raiz>/<2 primeiros hex>/<sha-256>}; a
+ * mensagem publicada leva só o hash e o tamanho. A gravação usa arquivo temporário,
+ * fsync e rename atômico, então o consumidor nunca vê um arquivo pela metade.
+ */
+public class ImageStore {
+
+    private final Path root;
+    private final Set<String> knownHashes = ConcurrentHashMap.newKeySet();
+
+    public ImageStore(Path root) {
+        this.root = root;
+    }
+
+    /**
+     * Cria o store em IMAGE_STORE_DIR (padrão /app/images/store).
+     */
+    public static ImageStore fromEnv() {
+        return new ImageStore(Paths.get(System.getenv().getOrDefault("IMAGE_STORE_DIR", "/app/images/store")));
+    }
+
+    /**
+     * Grava a imagem se ainda não estiver no store.
+     *
+     * @return Hash SHA-256 (hex) do conteúdo
+     */
+    public String store(byte[] data) throws IOException {
+        String hash = sha256(data);
+        if (knownHashes.contains(hash)) {
+            return hash;
+        }
+
+        Path target = resolve(hash);
+        if (!Files.exists(target)) {
+            Path directory = target.getParent();
+            Files.createDirectories(directory);
+
+            Path temp = Files.createTempFile(directory, hash, ".tmp");
+            try {
+                try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                    ByteBuffer buffer = ByteBuffer.wrap(data);
+                    while (buffer.hasRemaining()) {
+                        channel.write(buffer);
+                    }
+                    channel.force(false);
+                }
+                // Mesmo conteúdo, mesmo nome: substituir uma cópia concorrente é inofensivo
+                Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+            syncDirectory(directory);
+        }
+
+        knownHashes.add(hash);
+        return hash;
+    }
+
+    public Path resolve(String hash) {
+        return root.resolve(hash.substring(0, 2)).resolve(hash);
+    }
+
+    private static String sha256(byte[] data) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(data));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 indisponível", e);
+        }
+    }
+
+    private static void syncDirectory(Path directory) {
+        // fsync do diretório para o rename sobreviver a uma queda (não suportado em todo SO)
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException ignored) {
+        }
+    }
+}
@@ -0,0 +1,318 @@
+package com.sistdistrib.gerador;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Ingestão contínua de uma pasta: cada imagem que chega é publicada e, depois da confirmação
+ * do broker, movida para a pasta de processados.
+ *
+ * A pasta tem os subdiretórios {@code face/} e {@code team/}, que definem a routing key.
+ * O que continua neles é exatamente o que falta publicar: na partida uma thread percorre
+ * só esse backlog com um {@link DirectoryStream}, e um {@link WatchService} entrega os
+ * arquivos novos conforme aparecem. Não há lista em memória dos publicados.
+ *
+ * A fila de arquivos é limitada: com as publicadoras atrasadas, a varredura e o watcher
+ * esperam (no watcher, eventos perdidos geram uma nova varredura). Um arquivo só sai da
+ * pasta de entrada depois do ack do broker ({@link #markPublished}, chamado pelo
+ * {@link PublisherChannel.Outcome}); uma queda entre o ack e a movimentação publica o
+ * arquivo de novo na partida seguinte.
+ *
+ * Um arquivo só é lido depois de {@code settleMs} sem modificação, para não pegar cópias
+ * pela metade.
+ */
+public class IngestionSource implements AutoCloseable {
+
+    private static final List<String> TYPES = List.of("face", "team");
+
+    /**
+     * Arquivo aguardando publicação.
+     */
+    public static class Item {
+        private final String type;
+        private final Path path;
+
+        Item(String type, Path path) {
+            this.type = type;
+            this.path = path;
+        }
+
+        public String getType() { return type; }
+        public Path getPath() { return path; }
+        public String getFilename() { return path.getFileName().toString(); }
+
+        String key() {
+            return type + "/" + getFilename();
+        }
+    }
+
+    private final Path root;
+    private final Path processedDir;
+    private final long settleMs;
+
+    private final BlockingQueue<Item> queue;
+    // Falhas voltam por aqui: quem devolve (ex.: callback do RabbitMQ) não pode esperar vaga na fila
+    private final Queue<Item> retries = new ConcurrentLinkedQueue<>();
+    // Na fila ou em publicação: eventos repetidos do WatchService não duplicam
+    private final Set<String> queued = ConcurrentHashMap.newKeySet();
+    private final Map<WatchKey, String> watchedTypes = new HashMap<>();
+
+    private WatchService watchService;
+    private Thread scanner;
+    private Thread watcher;
+    // Move os arquivos confirmados fora da thread dos callbacks do RabbitMQ
+    private final ExecutorService mover = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "ingest-mover");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final AtomicLong discovered = new AtomicLong();
+    private final AtomicLong publishedCount = new AtomicLong();
+
+    /**
+     * @param root Pasta de ingestão (com face/ e team/)
+     * @param processedDir Pasta para onde vão os arquivos publicados (com face/ e team/)
+     * @param settleMs Tempo sem modificação antes de ler um arquivo
+     * @param queueCapacity Arquivos descobertos aguardando publicação
+     */
+    public IngestionSource(Path root, Path processedDir, long settleMs, int queueCapacity) {
+        this.root = root;
+        this.processedDir = processedDir;
+        this.settleMs = settleMs;
+        this.queue = new ArrayBlockingQueue<>(Math.max(1, queueCapacity));
+    }
+
+    /**
+     * Cria a fonte a partir de INGEST_DIR, INGEST_PROCESSED_DIR, INGEST_SETTLE_MS e
+     * INGEST_QUEUE_CAPACITY; null se INGEST_DIR não estiver definido.
+     */
+    public static IngestionSource fromEnv() {
+        String dir = System.getenv("INGEST_DIR");
+        if (dir == null || dir.isBlank()) {
+            return null;
+        }
+        Path root = Path.of(dir);
+        Path processedDir = Path.of(System.getenv().getOrDefault("INGEST_PROCESSED_DIR",
+                root.resolve("processed").toString()));
+        long settleMs = Long.parseLong(System.getenv().getOrDefault("INGEST_SETTLE_MS", "500"));
+        int queueCapacity = Integer.parseInt(System.getenv().getOrDefault("INGEST_QUEUE_CAPACITY", "1024"));
+        return new IngestionSource(root, processedDir, settleMs, queueCapacity);
+    }
+
+    /**
+     * Começa a observar as pastas e a enfileirar o backlog em segundo plano.
+     */
+    public void start() throws IOException {
+        // Observa antes da varredura inicial para não perder o que chegar durante ela
+        watchService = root.getFileSystem().newWatchService();
+        for (String type : TYPES) {
+            Path directory = root.resolve(type);
+            Files.createDirectories(directory);
+            Files.createDirectories(processedDir.resolve(type));
+            WatchKey key = directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_MODIFY);
+            watchedTypes.put(key, type);
+        }
+
+        scanner = new Thread(this::scanBacklog, "ingest-scanner");
+        scanner.setDaemon(true);
+        scanner.start();
+
+        watcher = new Thread(this::watchLoop, "ingest-watcher");
+        watcher.setDaemon(true);
+        watcher.start();
+    }
+
+    /**
+     * Próximo arquivo pronto para leitura, ou null se nada chegar dentro do timeout.
+     */
+    public Item poll(long timeout, TimeUnit unit) throws InterruptedException {
+        Item item = retries.poll();
+        if (item == null) {
+            item = queue.poll(timeout, unit);
+        }
+        if (item == null) {
+            return null;
+        }
+        // Arquivo ainda sendo copiado: espera ficar parado por settleMs
+        while (true) {
+            long age;
+            try {
+                age = System.currentTimeMillis() - Files.getLastModifiedTime(item.path).toMillis();
+            } catch (IOException e) {
+                queued.remove(item.key()); // removido antes de ser publicado
+                return null;
+            }
+            if (age >= settleMs) {
+                return item;
+            }
+            TimeUnit.MILLISECONDS.sleep(settleMs - age);
+        }
+    }
+
+    /**
+     * Broker confirmou o arquivo: move para a pasta de processados (em segundo plano).
+     */
+    public void markPublished(Item item) {
+        try {
+            mover.execute(() -> moveToProcessed(item));
+        } catch (RejectedExecutionException e) {
+            // Ingestão encerrada: o arquivo fica na entrada e é publicado de novo na próxima partida
+            queued.remove(item.key());
+        }
+    }
+
+    /**
+     * Esquece um arquivo removido antes da publicação (se voltar, é publicado).
+     */
+    public void discard(Item item) {
+        queued.remove(item.key());
+    }
+
+    /**
+     * Devolve o arquivo para uma nova tentativa depois de uma falha na leitura ou publicação.
+     * Não bloqueia.
+     */
+    public void retry(Item item) {
+        retries.add(item);
+    }
+
+    private void moveToProcessed(Item item) {
+        try {
+            // Um arquivo novo com o nome de um já processado substitui o antigo
+            Files.move(item.path, processedDir.resolve(item.type).resolve(item.getFilename()),
+                    StandardCopyOption.REPLACE_EXISTING);
+            publishedCount.incrementAndGet();
+        } catch (IOException e) {
+            System.err.println("Erro ao mover " + item.path + " para os processados: " + e.getMessage());
+        } finally {
+            // Só depois de sair da pasta: uma varredura concorrente não o enfileira de novo
+            queued.remove(item.key());
+        }
+    }
+
+    private void scanBacklog() {
+        try {
+            long backlog = 0;
+            for (String type : TYPES) {
+                backlog += scan(type);
+            }
+            System.out.printf("📥 Backlog de %s enfileirado: %d arquivos%n", root, backlog);
+        } catch (IOException e) {
+            System.err.println("Erro ao varrer " + root + ": " + e.getMessage());
+        } catch (InterruptedException e) {
+            // encerrando
+        }
+    }
+
+    private long scan(String type) throws IOException, InterruptedException {
+        long found = 0;
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(root.resolve(type), IngestionSource::isImage)) {
+            for (Path path : stream) {
+                if (offer(new Item(type, path))) {
+                    found++;
+                }
+            }
+        }
+        return found;
+    }
+
+    private boolean offer(Item item) throws InterruptedException {
+        if (!queued.add(item.key())) {
+            return false;
+        }
+        discovered.incrementAndGet();
+        queue.put(item); // espera vaga: as publicadoras ditam o ritmo
+        return true;
+    }
+
+    private void watchLoop() {
+        try {
+            while (true) {
+                WatchKey key = watchService.take();
+                String type = watchedTypes.get(key);
+                Path directory = (Path) key.watchable();
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                        // Eventos perdidos: varre a pasta de novo
+                        try {
+                            scan(type);
+                        } catch (IOException e) {
+                            System.err.println("Erro ao varrer " + directory + ": " + e.getMessage());
+                        }
+                        continue;
+                    }
+                    Path path = directory.resolve((Path) event.context());
+                    if (isImage(path)) {
+                        offer(new Item(type, path));
+                    }
+                }
+                key.reset();
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // encerrando
+        }
+    }
+
+    private static boolean isImage(Path path) {
+        String name = path.getFileName().toString().toLowerCase();
+        return name.endsWith(".jpg") || name.endsWith(".jpeg") || name.endsWith(".png");
+    }
+
+    public int getPending() {
+        return queue.size() + retries.size();
+    }
+
+    @Override
+    public void close() {
+        if (watchService != null) {
+            try {
+                watchService.close();
+            } catch (IOException ignored) {
+            }
+        }
+        if (scanner != null) {
+            scanner.interrupt();
+        }
+        if (watcher != null) {
+            watcher.interrupt();
+        }
+        // Termina de mover os arquivos já confirmados
+        mover.shutdown();
+        try {
+            if (!mover.awaitTermination(5, TimeUnit.SECONDS)) {
+                System.err.println("⚠️ Arquivos confirmados ainda não movidos ao encerrar a ingestão");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d descobertos, %d publicados, %d na fila", discovered.get(), publishedCount.get(), getPending());
+    }
+}
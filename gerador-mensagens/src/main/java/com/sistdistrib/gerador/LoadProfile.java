@@ -0,0 +1,160 @@
+package com.sistdistrib.gerador;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Perfil de carga do gerador: sequência de fases com taxa variável no tempo.
+ *
+ * Tipos de fase:
+ * <ul>
+ *   <li>{@code ramp}: de {@code from_rate} até {@code to_rate} linearmente;</li>
+ *   <li>{@code step}: começa em {@code rate} e soma {@code step_increment} a cada {@code step_seconds};</li>
+ *   <li>{@code spike}: {@code rate} com um pico de {@code spike_rate} entre {@code spike_at_seconds}
+ *       e {@code spike_at_seconds + spike_duration_seconds};</li>
+ *   <li>{@code sine}: {@code rate + amplitude * sen(2πt / period_seconds)}.</li>
+ * </ul>
+ * Toda fase tem {@code duration_seconds} e {@code face_ratio} (fração de mensagens de face, padrão 0.5).
+ */
+public class LoadProfile {
+
+    public static class Phase {
+        @JsonProperty("name")
+        private String name;
+
+        @JsonProperty("type")
+        private String type;
+
+        @JsonProperty("duration_seconds")
+        private double durationSeconds;
+
+        @JsonProperty("rate")
+        private double rate;
+
+        @JsonProperty("from_rate")
+        private double fromRate;
+
+        @JsonProperty("to_rate")
+        private double toRate;
+
+        @JsonProperty("step_increment")
+        private double stepIncrement;
+
+        @JsonProperty("step_seconds")
+        private double stepSeconds;
+
+        @JsonProperty("spike_rate")
+        private double spikeRate;
+
+        @JsonProperty("spike_at_seconds")
+        private double spikeAtSeconds;
+
+        @JsonProperty("spike_duration_seconds")
+        private double spikeDurationSeconds;
+
+        @JsonProperty("amplitude")
+        private double amplitude;
+
+        @JsonProperty("period_seconds")
+        private double periodSeconds;
+
+        @JsonProperty("face_ratio")
+        private double faceRatio = 0.5;
+
+        /**
+         * Taxa alvo (msg/s) a {@code t} segundos do início da fase.
+         */
+        public double rateAt(double t) {
+            switch (type) {
+                case "ramp":
+                    return fromRate + (toRate - fromRate) * Math.min(1.0, t / durationSeconds);
+                case "step":
+                    return stepSeconds > 0 ? rate + Math.floor(t / stepSeconds) * stepIncrement : rate;
+                case "spike":
+                    return t >= spikeAtSeconds && t < spikeAtSeconds + spikeDurationSeconds ? spikeRate : rate;
+                case "sine":
+                    return Math.max(0, rate + amplitude * Math.sin(2 * Math.PI * t / periodSeconds));
+                default:
+                    throw new IllegalStateException("Tipo de fase desconhecido: " + type);
+            }
+        }
+
+        public String getName() {
+            return name != null ? name : type;
+        }
+
+        public String getType() {
+            return type;
+        }
+
+        public double getDurationSeconds() {
+            return durationSeconds;
+        }
+
+        public double getFaceRatio() {
+            return faceRatio;
+        }
+
+        private void validate(int index) {
+            String label = "Fase " + (index + 1) + " (" + getName() + ")";
+            if (type == null || !List.of("ramp", "step", "spike", "sine").contains(type)) {
+                throw new IllegalArgumentException(label + ": tipo inválido '" + type + "' (ramp, step, spike ou sine)");
+            }
+            if (durationSeconds <= 0) {
+                throw new IllegalArgumentException(label + ": duration_seconds deve ser positivo");
+            }
+            if ("sine".equals(type) && periodSeconds <= 0) {
+                throw new IllegalArgumentException(label + ": period_seconds deve ser positivo");
+            }
+            if (faceRatio < 0 || faceRatio > 1) {
+                throw new IllegalArgumentException(label + ": face_ratio deve estar entre 0 e 1");
+            }
+        }
+    }
+
+    @JsonProperty("phases")
+    private List<Phase> phases = new ArrayList<>();
+
+    @JsonProperty("repeat")
+    private boolean repeat;
+
+    /**
+     * Lê e valida o perfil de um arquivo JSON.
+     */
+    public static LoadProfile load(Path path, ObjectMapper objectMapper) throws IOException {
+        LoadProfile profile = objectMapper.readValue(path.toFile(), LoadProfile.class);
+        if (profile.phases == null || profile.phases.isEmpty()) {
+            throw new IllegalArgumentException("Perfil sem fases: " + path);
+        }
+        for (int i = 0; i < profile.phases.size(); i++) {
+            profile.phases.get(i).validate(i);
+        }
+        return profile;
+    }
+
+    public List<Phase> getPhases() {
+        return phases;
+    }
+
+    public boolean isRepeat() {
+        return repeat;
+    }
+
+    /**
+     * Maior taxa alvo do perfil (amostrada), usada para dimensionar o burst.
+     */
+    public double peakRate() {
+        double peak = 0;
+        for (Phase phase : phases) {
+            for (double t = 0; t <= phase.durationSeconds; t += 0.1) {
+                peak = Math.max(peak, phase.rateAt(t));
+            }
+        }
+        return peak;
+    }
+}
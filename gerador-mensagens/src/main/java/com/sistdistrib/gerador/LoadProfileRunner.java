@@ -0,0 +1,105 @@
+package com.sistdistrib.gerador;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Executa um {@link LoadProfile}: ajusta a taxa do token bucket e o mix face/team
+ * conforme a fase atual e, ao fim de cada fase, mostra a vazão obtida x alvo.
+ */
+public class LoadProfileRunner {
+
+    private final LoadProfile profile;
+    private final TokenBucket rateLimiter;
+    private final AtomicLong sentCount;
+
+    private volatile double faceRatio = 0.5;
+
+    private long profileStartNanos;
+    private int phaseIndex;
+    private double phaseStartSeconds;
+    private long phaseStartNanos;
+    private long phaseStartCount;
+    private double targetSum;
+    private long targetSamples;
+
+    /**
+     * @param profile Perfil a executar
+     * @param rateLimiter Token bucket das threads publicadoras
+     * @param sentCount Contador de mensagens enviadas (para a vazão por fase)
+     */
+    public LoadProfileRunner(LoadProfile profile, TokenBucket rateLimiter, AtomicLong sentCount) {
+        this.profile = profile;
+        this.rateLimiter = rateLimiter;
+        this.sentCount = sentCount;
+    }
+
+    /**
+     * Inicia a primeira fase; chamar antes de iniciar as threads publicadoras.
+     */
+    public void start() {
+        profileStartNanos = System.nanoTime();
+        phaseIndex = 0;
+        phaseStartSeconds = 0;
+        startPhase(profileStartNanos);
+        tick();
+    }
+
+    /**
+     * Atualiza taxa e mix para o instante atual. Chamado periodicamente (ex.: a cada 100 ms).
+     *
+     * @return false quando o perfil terminou (e não repete)
+     */
+    public boolean tick() {
+        long now = System.nanoTime();
+        double elapsed = (now - profileStartNanos) / 1_000_000_000.0;
+        List<LoadProfile.Phase> phases = profile.getPhases();
+
+        while (elapsed - phaseStartSeconds >= phases.get(phaseIndex).getDurationSeconds()) {
+            finishPhase(now);
+            phaseStartSeconds += phases.get(phaseIndex).getDurationSeconds();
+            phaseIndex++;
+            if (phaseIndex == phases.size()) {
+                if (!profile.isRepeat()) {
+                    rateLimiter.setRate(0);
+                    System.out.println("🏁 Perfil de carga concluído");
+                    return false;
+                }
+                phaseIndex = 0;
+            }
+            startPhase(now);
+        }
+
+        LoadProfile.Phase phase = phases.get(phaseIndex);
+        double target = phase.rateAt(elapsed - phaseStartSeconds);
+        rateLimiter.setRate(target);
+        faceRatio = phase.getFaceRatio();
+        targetSum += target;
+        targetSamples++;
+        return true;
+    }
+
+    public double getFaceRatio() {
+        return faceRatio;
+    }
+
+    private void startPhase(long now) {
+        LoadProfile.Phase phase = profile.getPhases().get(phaseIndex);
+        phaseStartNanos = now;
+        phaseStartCount = sentCount.get();
+        targetSum = 0;
+        targetSamples = 0;
+        System.out.printf("▶️ Fase %d/%d: %s (%s, %.0f s, %.0f%% faces)%n", phaseIndex + 1, profile.getPhases().size(),
+                phase.getName(), phase.getType(), phase.getDurationSeconds(), phase.getFaceRatio() * 100);
+    }
+
+    private void finishPhase(long now) {
+        LoadProfile.Phase phase = profile.getPhases().get(phaseIndex);
+        double seconds = (now - phaseStartNanos) / 1_000_000_000.0;
+        long sent = sentCount.get() - phaseStartCount;
+        double achieved = seconds > 0 ? sent / seconds : 0;
+        double target = targetSamples > 0 ? targetSum / targetSamples : 0;
+        System.out.printf("📊 Fase %s: %d mensagens em %.1f s = %.0f msg/s (alvo médio %.0f msg/s, %.0f%%)%n",
+                phase.getName(), sent, seconds, achieved, target, target > 0 ? 100.0 * achieved / target : 0);
+    }
+}
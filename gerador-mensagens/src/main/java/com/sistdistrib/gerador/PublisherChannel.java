@@ -0,0 +1,388 @@
+package com.sistdistrib.gerador;
+
+import com.rabbitmq.client.AMQP;
+import com.rabbitmq.client.Channel;
+import com.rabbitmq.client.ConfirmListener;
+
+import java.io.IOException;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Canal de uma thread publicadora, com publisher confirms assíncronos opcionais.
+ *
+ * Com confirms ativos o canal entra em {@code confirmSelect} e cada publicação ocupa uma
+ * vaga numa janela limitada até o broker confirmar. As mensagens pendentes ficam num
+ * buffer circular indexado pelo número de sequência ({@code seq & mask}). A janela limita
+ * quantas estão pendentes, mas não a distância entre as sequências: as confirmações podem
+ * chegar fora de ordem (a mensagem vai para mais de uma fila), e uma sequência antiga ainda
+ * pendente pode ocupar a posição da próxima. Por isso a publicação também espera a posição
+ * ficar livre, e uma posição só é reutilizada depois de confirmada. Nacks
+ * voltam para uma fila de reenvio, consumida pela própria thread publicadora (o Channel
+ * não é thread-safe), até {@code maxRetries} tentativas.
+ *
+ * Quando o canal cai, as confirmações pendentes nunca chegam: o listener de desligamento
+ * devolve essas mensagens à fila de reenvio e libera a janela, e o canal recuperado volta
+ * a numerar as publicações a partir de 1. O {@link #close} reenvia o que ainda estiver na
+ * fila e conta como perdido o que não for confirmado.
+ *
+ * Quem precisa saber o desfecho de cada mensagem (a ingestão só marca um arquivo como
+ * publicado depois da confirmação) passa um {@link Outcome} na publicação.
+ */
+public class PublisherChannel implements AutoCloseable {
+
+    /**
+     * Desfecho de uma publicação, chamado na thread dos callbacks do RabbitMQ: não deve bloquear.
+     * Sem confirms, {@link #confirmed} é chamado logo depois do {@code basicPublish}.
+     */
+    public interface Outcome {
+        void confirmed();
+
+        /**
+         * Nack ou queda depois de esgotar os reenvios, ou canal fechado sem confirmação.
+         */
+        void failed();
+    }
+
+    /**
+     * Contadores compartilhados por todos os canais publicadores.
+     */
+    public static class Stats {
+        private final AtomicLong acked = new AtomicLong();
+        private final AtomicLong nacked = new AtomicLong();
+        private final AtomicLong retried = new AtomicLong();
+        private final AtomicLong failed = new AtomicLong();
+        private final AtomicLong totalLatencyNanos = new AtomicLong();
+        private final AtomicLong maxLatencyNanos = new AtomicLong();
+
+        public long getAcked() { return acked.get(); }
+        public long getNacked() { return nacked.get(); }
+        public long getFailed() { return failed.get(); }
+
+        public double getAverageLatencyMs() {
+            long count = acked.get();
+            return count == 0 ? 0.0 : totalLatencyNanos.get() / (double) count / 1_000_000.0;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d confirmadas, %d nacks, %d reenvios, %d perdidas, latência média %.1f ms (máx %.1f ms)",
+                    acked.get(), nacked.get(), retried.get(), failed.get(),
+                    getAverageLatencyMs(), maxLatencyNanos.get() / 1_000_000.0);
+        }
+    }
+
+    private final Channel channel;
+    private final boolean confirms;
+    private final int window;
+    private final int maxRetries;
+    private final Stats stats;
+
+    private final Semaphore permits;
+    private final AtomicReferenceArray<Pending> pending;
+    private final int mask;
+    private final Queue<Pending> retries = new ConcurrentLinkedQueue<>();
+    // Avisa a thread publicadora quando uma posição do buffer é liberada
+    private final Object slotFreed = new Object();
+
+    // Menor sequência ainda não confirmada; só a thread dos callbacks (confirms e desligamento) altera
+    private long lowestUnconfirmed = 1;
+
+    // Prazo total do close para reenviar e esperar confirmações
+    private static final long CLOSE_TIMEOUT_MS = 5000;
+    private volatile boolean closing;
+
+    /**
+     * @param channel Canal exclusivo da thread publicadora
+     * @param confirms Ativa publisher confirms
+     * @param window Máximo de publicações aguardando confirmação
+     * @param maxRetries Reenvios de uma mensagem após nack
+     * @param stats Contadores compartilhados
+     */
+    public PublisherChannel(Channel channel, boolean confirms, int window, int maxRetries, Stats stats) throws IOException {
+        this.channel = channel;
+        this.confirms = confirms;
+        this.window = Math.max(1, window);
+        this.maxRetries = maxRetries;
+        this.stats = stats;
+
+        // Capacidade potência de 2 >= janela
+        int capacity = Integer.highestOneBit((this.window - 1) | 1) << 1;
+        this.pending = new AtomicReferenceArray<>(capacity);
+        this.mask = capacity - 1;
+        this.permits = new Semaphore(this.window);
+
+        if (confirms) {
+            channel.confirmSelect();
+            lowestUnconfirmed = channel.getNextPublishSeqNo();
+            channel.addConfirmListener(new ConfirmListener() {
+                @Override
+                public void handleAck(long deliveryTag, boolean multiple) {
+                    confirm(deliveryTag, multiple, true);
+                }
+
+                @Override
+                public void handleNack(long deliveryTag, boolean multiple) {
+                    confirm(deliveryTag, multiple, false);
+                }
+            });
+            channel.addShutdownListener(cause -> abandonPending());
+        }
+    }
+
+    /**
+     * Publica a mensagem; com confirms ativos bloqueia enquanto a janela estiver cheia.
+     */
+    public void publish(String exchange, String routingKey, AMQP.BasicProperties properties, byte[] body)
+            throws IOException, InterruptedException {
+        publish(exchange, routingKey, properties, body, null);
+    }
+
+    /**
+     * Publica a mensagem e informa o desfecho em {@code outcome}. Se a publicação lançar exceção,
+     * o desfecho não é chamado: a mensagem não foi aceita.
+     */
+    public void publish(String exchange, String routingKey, AMQP.BasicProperties properties, byte[] body,
+                        Outcome outcome) throws IOException, InterruptedException {
+        if (!confirms) {
+            channel.basicPublish(exchange, routingKey, properties, body);
+            if (outcome != null) {
+                outcome.confirmed();
+            }
+            return;
+        }
+
+        // Reenvios primeiro, na thread dona do canal
+        resendRetries();
+        send(new Pending(exchange, routingKey, properties, body, outcome));
+    }
+
+    private void resendRetries() throws IOException, InterruptedException {
+        Pending retry;
+        while ((retry = retries.poll()) != null) {
+            try {
+                send(retry);
+            } catch (IOException | RuntimeException | InterruptedException e) {
+                retries.add(retry); // continua na fila para a próxima tentativa
+                throw e;
+            }
+        }
+    }
+
+    private void send(Pending message) throws IOException, InterruptedException {
+        permits.acquire();
+        long seq;
+        try {
+            seq = awaitFreeSlot();
+        } catch (InterruptedException e) {
+            permits.release();
+            throw e;
+        }
+        message.seq = seq;
+        message.publishedAt = System.nanoTime();
+        pending.set((int) (seq & mask), message);
+        try {
+            channel.basicPublish(message.exchange, message.routingKey, message.properties, message.body);
+        } catch (IOException | RuntimeException e) {
+            if (!pending.compareAndSet((int) (seq & mask), message, null)) {
+                return; // o listener de desligamento já devolveu a mensagem à fila de reenvio
+            }
+            permits.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Próxima sequência do canal, esperando a confirmação da sequência antiga que ainda ocupe
+     * a posição dela. Só a thread publicadora preenche posições, então a posição livre continua
+     * livre até o {@code set}; a sequência é relida a cada volta porque uma queda a reinicia.
+     */
+    private long awaitFreeSlot() throws InterruptedException {
+        long seq = channel.getNextPublishSeqNo();
+        if (pending.get((int) (seq & mask)) == null) {
+            return seq;
+        }
+        synchronized (slotFreed) {
+            while (pending.get((int) ((seq = channel.getNextPublishSeqNo()) & mask)) != null) {
+                slotFreed.wait();
+            }
+        }
+        return seq;
+    }
+
+    private void signalSlotFreed() {
+        synchronized (slotFreed) {
+            slotFreed.notifyAll();
+        }
+    }
+
+    private void confirm(long deliveryTag, boolean multiple, boolean ack) {
+        if (multiple) {
+            for (long seq = lowestUnconfirmed; seq <= deliveryTag; seq++) {
+                complete(seq, ack);
+            }
+            lowestUnconfirmed = Math.max(lowestUnconfirmed, deliveryTag + 1);
+        } else {
+            complete(deliveryTag, ack);
+            if (deliveryTag == lowestUnconfirmed) {
+                lowestUnconfirmed++;
+            }
+        }
+    }
+
+    private void complete(long seq, boolean ack) {
+        int index = (int) (seq & mask);
+        Pending message = pending.get(index);
+        if (message == null || message.seq != seq || !pending.compareAndSet(index, message, null)) {
+            return; // já confirmada
+        }
+
+        if (ack) {
+            long latency = System.nanoTime() - message.publishedAt;
+            stats.acked.incrementAndGet();
+            stats.totalLatencyNanos.addAndGet(latency);
+            stats.maxLatencyNanos.accumulateAndGet(latency, Math::max);
+            if (message.outcome != null) {
+                message.outcome.confirmed();
+            }
+        } else {
+            stats.nacked.incrementAndGet();
+            retryOrFail(message);
+        }
+        signalSlotFreed();
+        permits.release();
+    }
+
+    private void retryOrFail(Pending message) {
+        if (message.attempts < maxRetries) {
+            message.attempts++;
+            stats.retried.incrementAndGet();
+            retries.add(message);
+        } else {
+            fail(message);
+        }
+    }
+
+    private void fail(Pending message) {
+        stats.failed.incrementAndGet();
+        if (message.outcome != null) {
+            message.outcome.failed();
+        }
+    }
+
+    /**
+     * Canal caiu: as confirmações pendentes não chegam mais. Devolve as mensagens à fila de
+     * reenvio (dentro do limite de tentativas) e libera a janela.
+     */
+    private void abandonPending() {
+        if (closing) {
+            return; // fechamento próprio: o close conta o que sobrou
+        }
+        int released = 0;
+        for (int index = 0; index < pending.length(); index++) {
+            Pending message = pending.getAndSet(index, null);
+            if (message != null) {
+                retryOrFail(message);
+                released++;
+            }
+        }
+        // O canal recuperado entra em confirmSelect de novo e numera a partir de 1
+        lowestUnconfirmed = 1;
+        signalSlotFreed();
+        permits.release(released);
+    }
+
+    public int getOutstanding() {
+        return window - permits.availablePermits();
+    }
+
+    /**
+     * Reenvia os nacks pendentes e espera as confirmações (até o timeout); o que sobrar conta
+     * como perdido. Depois fecha o canal.
+     */
+    @Override
+    public void close() throws IOException {
+        if (confirms) {
+            drain();
+        }
+        closing = true;
+        try {
+            if (channel.isOpen()) {
+                channel.close();
+            }
+        } catch (TimeoutException e) {
+            throw new IOException("Timeout ao fechar o canal", e);
+        } finally {
+            if (confirms) {
+                failRemaining();
+            }
+        }
+    }
+
+    private void drain() {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(CLOSE_TIMEOUT_MS);
+        // A thread pode chegar interrompida (encerramento do gerador): espera mesmo assim até o prazo
+        boolean interrupted = Thread.interrupted();
+        try {
+            do {
+                resendRetries();
+                long remaining = deadline - System.nanoTime();
+                if (!permits.tryAcquire(window, Math.max(0, remaining), TimeUnit.NANOSECONDS)) {
+                    return;
+                }
+                permits.release(window);
+            } while (!retries.isEmpty() && System.nanoTime() < deadline);
+        } catch (InterruptedException e) {
+            interrupted = true;
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Erro ao reenviar publicações ao fechar o canal: " + e.getMessage());
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private void failRemaining() {
+        long lost = 0;
+        for (int index = 0; index < pending.length(); index++) {
+            Pending message = pending.getAndSet(index, null);
+            if (message != null) {
+                fail(message);
+                lost++;
+            }
+        }
+        Pending message;
+        while ((message = retries.poll()) != null) {
+            fail(message);
+            lost++;
+        }
+        if (lost > 0) {
+            System.err.println("⚠️ " + lost + " publicações sem confirmação ao fechar o canal");
+        }
+    }
+
+    private static class Pending {
+        final String exchange;
+        final String routingKey;
+        final AMQP.BasicProperties properties;
+        final byte[] body;
+        final Outcome outcome;
+        long seq;
+        long publishedAt;
+        int attempts;
+
+        Pending(String exchange, String routingKey, AMQP.BasicProperties properties, byte[] body, Outcome outcome) {
+            this.exchange = exchange;
+            this.routingKey = routingKey;
+            this.properties = properties;
+            this.body = body;
+            this.outcome = outcome;
+        }
+    }
+}
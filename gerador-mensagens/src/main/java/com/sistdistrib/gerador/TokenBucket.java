@@ -0,0 +1,94 @@
+package com.sistdistrib.gerador;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Controle de taxa por token bucket, compartilhado pelas threads publicadoras.
+ *
+ * Cada token tem um horário agendado ({@code nextFreeNanos} avança um intervalo por
+ * token), então a taxa não acumula erro como somas de {@code sleep}. Tokens não usados
+ * se acumulam até {@code burst}, o que permite recuperar pequenos atrasos. A taxa pode
+ * mudar a qualquer momento ({@link #setRate}); taxa 0 pausa a publicação.
+ */
+public class TokenBucket {
+
+    // Só reserva tokens até este horizonte; além disso a thread dorme e tenta de novo,
+    // para que uma mudança de taxa valha logo
+    private static final long RESERVE_HORIZON_NANOS = TimeUnit.MILLISECONDS.toNanos(50);
+
+    private final int burst;
+    private volatile double ratePerSecond;
+    private long intervalNanos;
+    private long burstNanos;
+    private long nextFreeNanos;
+
+    /**
+     * @param ratePerSecond Tokens por segundo
+     * @param burst Máximo de tokens acumulados
+     */
+    public TokenBucket(double ratePerSecond, int burst) {
+        this.burst = Math.max(1, burst);
+        this.nextFreeNanos = System.nanoTime();
+        updateRate(ratePerSecond);
+    }
+
+    /**
+     * Altera a taxa; tokens já agendados para longe são trazidos para o novo intervalo.
+     */
+    public synchronized void setRate(double ratePerSecond) {
+        updateRate(ratePerSecond);
+    }
+
+    private void updateRate(double ratePerSecond) {
+        this.ratePerSecond = Math.max(0, ratePerSecond);
+        if (this.ratePerSecond == 0) {
+            intervalNanos = 0;
+            return;
+        }
+        intervalNanos = Math.max(1, Math.round(TimeUnit.SECONDS.toNanos(1) / this.ratePerSecond));
+        burstNanos = intervalNanos * burst;
+        nextFreeNanos = Math.min(nextFreeNanos, System.nanoTime() + intervalNanos);
+    }
+
+    /**
+     * Bloqueia até o próximo token.
+     */
+    public void acquire() throws InterruptedException {
+        while (true) {
+            long waitNanos;
+            boolean reserved = false;
+            synchronized (this) {
+                long now = System.nanoTime();
+                waitNanos = RESERVE_HORIZON_NANOS;
+                if (intervalNanos > 0) {
+                    // Tempo ocioso vira no máximo 'burst' tokens
+                    long earliest = now - burstNanos + intervalNanos;
+                    if (nextFreeNanos < earliest) {
+                        nextFreeNanos = earliest;
+                    }
+                    if (nextFreeNanos - now <= RESERVE_HORIZON_NANOS) {
+                        waitNanos = nextFreeNanos - now;
+                        nextFreeNanos += intervalNanos;
+                        reserved = true;
+                    }
+                }
+            }
+
+            if (waitNanos > 0) {
+                // parkNanos tem resolução de dezenas de µs; Thread.sleep arredondaria para 1 ms
+                LockSupport.parkNanos(this, waitNanos);
+                if (Thread.interrupted()) {
+                    throw new InterruptedException();
+                }
+            }
+            if (reserved) {
+                return;
+            }
+        }
+    }
+
+    public double getRatePerSecond() {
+        return ratePerSecond;
+    }
+}
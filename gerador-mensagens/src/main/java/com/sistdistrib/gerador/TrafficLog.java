@@ -0,0 +1,189 @@
+package com.sistdistrib.gerador;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HexFormat;
+
+/**
+ * Log binário compacto do tráfego publicado, para gravar e reproduzir padrões de carga.
+ *
+ * Cabeçalho: int mágico ("STRF"), byte versão, long instante inicial (epoch ms).
+ * Registro: varint microssegundos desde o registro anterior, byte flags (bit 0: tem hash),
+ * byte tamanho da routing key, routing key, short tamanho do nome, nome UTF-8,
+ * 32 bytes do SHA-256 (se houver) e varint tamanho da imagem.
+ *
+ * Um registro incompleto no fim do arquivo (queda durante a gravação) é ignorado na leitura.
+ */
+public final class TrafficLog {
+
+    private static final int MAGIC = 0x53545246; // "STRF"
+    private static final byte VERSION = 1;
+    private static final int FLAG_HASH = 1;
+    private static final HexFormat HEX = HexFormat.of();
+
+    private TrafficLog() {
+    }
+
+    /**
+     * Mensagem gravada.
+     */
+    public static class Record {
+        private final long offsetMicros;
+        private final String routingKey;
+        private final String filename;
+        private final String hash;
+        private final long size;
+
+        Record(long offsetMicros, String routingKey, String filename, String hash, long size) {
+            this.offsetMicros = offsetMicros;
+            this.routingKey = routingKey;
+            this.filename = filename;
+            this.hash = hash;
+            this.size = size;
+        }
+
+        /** Microssegundos desde o início da gravação. */
+        public long getOffsetMicros() { return offsetMicros; }
+        public String getRoutingKey() { return routingKey; }
+        public String getFilename() { return filename; }
+        /** SHA-256 em hex, ou null se não foi gravado. */
+        public String getHash() { return hash; }
+        public long getSize() { return size; }
+    }
+
+    /**
+     * Grava os registros; thread-safe (as threads publicadoras dividem o mesmo arquivo).
+     */
+    public static class Writer implements AutoCloseable {
+        private final DataOutputStream out;
+        private final long startNanos;
+        private long lastMicros;
+        private long count;
+
+        public Writer(Path path) throws IOException {
+            this.out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path), 64 * 1024));
+            this.startNanos = System.nanoTime();
+            out.writeInt(MAGIC);
+            out.writeByte(VERSION);
+            out.writeLong(System.currentTimeMillis());
+        }
+
+        public synchronized void record(String routingKey, String filename, String hash, long size) throws IOException {
+            // Instante tomado dentro do lock: os registros saem em ordem de tempo
+            long micros = (System.nanoTime() - startNanos) / 1000;
+            byte[] key = routingKey.getBytes(StandardCharsets.UTF_8);
+            byte[] name = filename.getBytes(StandardCharsets.UTF_8);
+
+            writeVarLong(out, micros - lastMicros);
+            out.writeByte(hash != null ? FLAG_HASH : 0);
+            out.writeByte(key.length);
+            out.write(key);
+            out.writeShort(name.length);
+            out.write(name);
+            if (hash != null) {
+                out.write(HEX.parseHex(hash));
+            }
+            writeVarLong(out, size);
+
+            lastMicros = micros;
+            count++;
+        }
+
+        public synchronized void flush() throws IOException {
+            out.flush();
+        }
+
+        public synchronized long getCount() {
+            return count;
+        }
+
+        @Override
+        public synchronized void close() throws IOException {
+            out.close();
+        }
+    }
+
+    /**
+     * Lê os registros em ordem.
+     */
+    public static class Reader implements AutoCloseable {
+        private final DataInputStream in;
+        private final long startEpochMillis;
+        private long offsetMicros;
+
+        public Reader(Path path) throws IOException {
+            this.in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path), 64 * 1024));
+            if (in.readInt() != MAGIC) {
+                in.close();
+                throw new IOException("Arquivo não é um log de tráfego: " + path);
+            }
+            byte version = in.readByte();
+            if (version != VERSION) {
+                in.close();
+                throw new IOException("Versão do log de tráfego não suportada: " + version);
+            }
+            this.startEpochMillis = in.readLong();
+        }
+
+        /**
+         * Próximo registro, ou null no fim do arquivo.
+         */
+        public Record next() throws IOException {
+            try {
+                offsetMicros += readVarLong(in);
+                int flags = in.readUnsignedByte();
+                byte[] key = new byte[in.readUnsignedByte()];
+                in.readFully(key);
+                byte[] name = new byte[in.readUnsignedShort()];
+                in.readFully(name);
+                String hash = null;
+                if ((flags & FLAG_HASH) != 0) {
+                    byte[] digest = new byte[32];
+                    in.readFully(digest);
+                    hash = HEX.formatHex(digest);
+                }
+                long size = readVarLong(in);
+                return new Record(offsetMicros, new String(key, StandardCharsets.UTF_8),
+                        new String(name, StandardCharsets.UTF_8), hash, size);
+            } catch (EOFException e) {
+                return null;
+            }
+        }
+
+        public long getStartEpochMillis() {
+            return startEpochMillis;
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+
+    private static void writeVarLong(DataOutputStream out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.writeByte((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+
+    private static long readVarLong(DataInputStream in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Varint inválido no log de tráfego");
+    }
+}
@@ -0,0 +1,133 @@
+package com.sistdistrib.gerador;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Reprodução de um {@link TrafficLog} respeitando os intervalos gravados.
+ *
+ * As threads publicadoras dividem o mesmo leitor: cada uma pega o próximo registro e
+ * espera até o horário dele (instante gravado dividido pela velocidade) antes de publicar.
+ * Com velocidade 0 ("max") os registros saem sem espera. O atraso em relação ao horário
+ * agendado é medido para mostrar se o gerador acompanhou a gravação.
+ */
+public class TrafficReplay implements AutoCloseable {
+
+    private final TrafficLog.Reader reader;
+    private final double speed;
+
+    private long startNanos;
+    private long firstOffsetMicros;
+    private boolean finished;
+
+    private final AtomicLong replayed = new AtomicLong();
+    private final AtomicLong skipped = new AtomicLong();
+    private final AtomicLong maxLagNanos = new AtomicLong();
+    private final AtomicLong totalLagNanos = new AtomicLong();
+
+    /**
+     * @param path Arquivo gravado com TRAFFIC_RECORD
+     * @param speed Multiplicador de velocidade (1 = tempo real); 0 = o mais rápido possível
+     */
+    public TrafficReplay(Path path, double speed) throws IOException {
+        this.reader = new TrafficLog.Reader(path);
+        this.speed = speed;
+    }
+
+    /**
+     * Interpreta REPLAY_SPEED: "1", "10", "10x" ou "max".
+     */
+    public static double parseSpeed(String value) {
+        String speed = value.trim().toLowerCase();
+        if (speed.equals("max")) {
+            return 0;
+        }
+        if (speed.endsWith("x")) {
+            speed = speed.substring(0, speed.length() - 1);
+        }
+        double parsed = Double.parseDouble(speed);
+        if (parsed <= 0) {
+            throw new IllegalArgumentException("REPLAY_SPEED deve ser positivo ou 'max': " + value);
+        }
+        return parsed;
+    }
+
+    /**
+     * Próximo registro, devolvido no horário em que deve ser publicado; null no fim da gravação.
+     */
+    public TrafficLog.Record next() throws IOException, InterruptedException {
+        TrafficLog.Record record;
+        long dueNanos;
+        synchronized (this) {
+            if (finished) {
+                return null;
+            }
+            record = reader.next();
+            if (record == null) {
+                finished = true;
+                return null;
+            }
+            if (startNanos == 0) {
+                startNanos = System.nanoTime();
+                firstOffsetMicros = record.getOffsetMicros();
+            }
+            if (speed == 0) {
+                return record;
+            }
+            dueNanos = startNanos + (long) ((record.getOffsetMicros() - firstOffsetMicros) * 1000 / speed);
+        }
+
+        long wait;
+        while ((wait = dueNanos - System.nanoTime()) > 0) {
+            LockSupport.parkNanos(wait);
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+        }
+        long lag = -wait;
+        totalLagNanos.addAndGet(lag);
+        maxLagNanos.accumulateAndGet(lag, Math::max);
+        return record;
+    }
+
+    /**
+     * Conta um registro publicado.
+     */
+    public void replayed() {
+        replayed.incrementAndGet();
+    }
+
+    /**
+     * Conta um registro cuja imagem não existe mais no conjunto carregado.
+     */
+    public void skipped() {
+        skipped.incrementAndGet();
+    }
+
+    public synchronized boolean isFinished() {
+        return finished;
+    }
+
+    public String getSpeedLabel() {
+        return speed == 0 ? "max" : speed + "x";
+    }
+
+    public long getStartEpochMillis() {
+        return reader.getStartEpochMillis();
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    @Override
+    public String toString() {
+        long count = replayed.get();
+        return String.format("%d reproduzidas, %d sem imagem, atraso médio %.1f ms (máx %.1f ms)",
+                count, skipped.get(), count == 0 || speed == 0 ? 0.0 : totalLagNanos.get() / (double) count / 1_000_000.0,
+                maxLagNanos.get() / 1_000_000.0);
+    }
+}